@@ -0,0 +1,36 @@
+package com.example.webdriverproxy.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée des bancs d'essai : lance JMH avec les options de la ligne de commande et ajoute toujours le
+ * profileur GC, afin que chaque résultat indique le débit d'allocation par opération ({@code gc.alloc.rate.norm}).
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [options JMH, par exemple JsonMapperBenchmark -p payload=screenshot2MB]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Lance les bancs d'essai sélectionnés.
+     *
+     * @param args les options JMH
+     * @throws CommandLineOptionException si les options sont invalides
+     * @throws RunnerException            si un banc d'essai échoue
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.webdriverproxy.benchmark;
+
+import com.example.webdriverproxy.filter.ErrorDetectionFilter;
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.service.ErrorAnalyticsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc d'essai du chemin d'analyse de {@link ErrorDetectionFilter} : une commande de recherche d'élément dont la
+ * réponse est une erreur W3C "no such element", traitée de bout en bout par le filtre, comptage compris.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorDetectionBenchmark {
+
+    private GatewayFilter filter;
+    private GatewayFilterChain chain;
+
+    @Setup
+    public void setUp() {
+        ErrorAnalyticsService errorAnalyticsService =
+                new ErrorAnalyticsService(new JsonMapper(), true, Duration.ofMinutes(1), 60, 20, 2048, 4);
+        filter = new ErrorDetectionFilter(new JsonMapper(), errorAnalyticsService).apply(new ErrorDetectionFilter.Config());
+        chain = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            exchange.getAttributes().put("cachedRequestBody", Payloads.FIND_ELEMENT_REQUEST);
+            exchange.getAttributes().put("cachedResponseBody", Payloads.NO_SUCH_ELEMENT);
+            return Mono.empty();
+        };
+    }
+
+    @Benchmark
+    public MockServerWebExchange noSuchElement() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/wd/hub/session/6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3/element").build());
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.webdriverproxy.benchmark;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc d'essai de {@link JsonMapper} sur les réponses traitées à chaque commande : création de session,
+ * capture d'écran de 2 Mo et erreur W3C.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonMapperBenchmark {
+
+    @Param({"newSession", "screenshot2MB", "noSuchElement"})
+    public String payload;
+
+    private final JsonMapper jsonMapper = new JsonMapper();
+    private String response;
+
+    @Setup
+    public void setUp() {
+        switch (payload) {
+            case "newSession":
+                response = Payloads.NEW_SESSION;
+                break;
+            case "screenshot2MB":
+                response = Payloads.screenshot(2 * 1024 * 1024);
+                break;
+            default:
+                response = Payloads.NO_SUCH_ELEMENT;
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> getValue() {
+        return jsonMapper.getValue(response);
+    }
+
+    @Benchmark
+    public Map<String, Object> getCapabilities() {
+        Map<String, Object> value = jsonMapper.getValue(response);
+        return value != null ? jsonMapper.getCapabilities(value) : null;
+    }
+
+    @Benchmark
+    public Map<String, Object> extractNewSession() {
+        return jsonMapper.extract(response, JsonMapper.VALUE_SESSION_ID, JsonMapper.VALUE_CAPABILITIES);
+    }
+
+    @Benchmark
+    public boolean isErrorResponse() {
+        return jsonMapper.isErrorResponse(response);
+    }
+}
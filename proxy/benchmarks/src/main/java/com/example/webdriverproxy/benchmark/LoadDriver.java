@@ -0,0 +1,300 @@
+package com.example.webdriverproxy.benchmark;
+
+import com.example.webdriverproxy.ProxyApplication;
+import com.example.webdriverproxy.journal.CommandJournalReader;
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.CommandRecord;
+import io.netty.handler.codec.http.HttpMethod;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un banc d'essai de charge de bout en bout : démarre un {@link StubGrid}, lance le proxy complet dans le même
+ * processus devant ce Grid simulé, puis fait jouer des milliers de sessions synthétiques simultanées à travers toute la
+ * chaîne de filtres de la passerelle. Chaque session crée sa session, enchaîne ses commandes puis la supprime.
+ * <p>
+ * Pour chaque commande, le surcoût est la latence observée par le client moins la durée de traitement annoncée par le
+ * nœud simulé. La même charge est d'abord jouée directement contre le Grid simulé : le surcoût mesuré alors est celui
+ * du client et de la boucle locale, et la différence entre les deux phases est le surcoût propre au proxy.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.webdriverproxy.benchmark.LoadDriver \
+ *     --sessions=2000 --concurrency=1000 --commands=20 --command-latency=5ms --payload=2KB --error-rate=0.01 \
+ *     [--replay=journal] [--proxy.admission.max-creates-per-node=16 ...]
+ * </pre>
+ * Options : {@code sessions} (1000), {@code concurrency} (nombre de sessions simultanées, toutes par défaut),
+ * {@code commands} (commandes par session synthétique, 20), {@code nodes} (2), {@code create-latency} (20ms),
+ * {@code command-latency} (2ms), {@code payload} (taille des réponses, 1KB), {@code error-rate} (0),
+ * {@code warmup} (sessions de préchauffage, 200), {@code direct} (phase de référence, true) et {@code replay}
+ * (répertoire d'un journal des commandes dont les séquences de commandes par session sont rejouées à la place des
+ * sessions synthétiques ; les corps y sont tronqués à {@code proxy.journal.max-body-bytes}). Les options
+ * {@code --proxy.*}, {@code --server.*}, {@code --spring.*} et {@code --logging.*} sont transmises au proxy.
+ */
+public class LoadDriver {
+
+    private static final String CREATE_SESSION_BODY =
+            "{\"capabilities\":{\"alwaysMatch\":{\"browserName\":\"chrome\"}}}";
+    private static final JsonMapper JSON_MAPPER = new JsonMapper();
+
+    private LoadDriver() {
+    }
+
+    /**
+     * Une commande d'une séquence jouée par une session : le chemin est relatif à celui de la session.
+     *
+     * @param method la méthode HTTP
+     * @param path   le chemin après {@code /session/<id>}, par exemple {@code /element}
+     * @param body   le corps de la requête, ou null
+     */
+    record Command(HttpMethod method, String path, String body) {}
+
+    /**
+     * Les mesures d'une phase de charge.
+     */
+    static final class Phase {
+
+        private final String name;
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        private final Histogram overhead = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        private final AtomicLong commands = new AtomicLong();
+        private final AtomicLong webDriverErrors = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private long elapsedNanos;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        void record(long latencyNanos, long serviceNanos, int status) {
+            commands.incrementAndGet();
+            latency.recordValue(Math.min(latencyNanos, latency.getHighestTrackableValue()));
+            overhead.recordValue(Math.max(0, Math.min(latencyNanos - serviceNanos, overhead.getHighestTrackableValue())));
+            if (status >= 500 || status == 0) {
+                failures.incrementAndGet();
+            } else if (status >= 400) {
+                webDriverErrors.incrementAndGet();
+            }
+        }
+
+        void fail() {
+            failures.incrementAndGet();
+        }
+
+        long overheadAt(double percentile) {
+            return overhead.getValueAtPercentile(percentile);
+        }
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-8s %8d cmd %8.1f s %10.0f cmd/s | latence p50 %8.3f ms p99 %8.3f ms | "
+                            + "surcoût p50 %8.3f ms p99 %8.3f ms | erreurs WebDriver %d, échecs %d%n",
+                    name, commands.get(), seconds, commands.get() / seconds,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(overheadAt(50)), millis(overheadAt(99)), webDriverErrors.get(), failures.get());
+        }
+    }
+
+    /**
+     * Lance le banc d'essai de charge.
+     *
+     * @param args les options du banc d'essai et du proxy, au format {@code --nom=valeur}
+     * @throws IOException si le journal à rejouer ne peut pas être lu
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        List<String> proxyArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--proxy.") || arg.startsWith("--server.") || arg.startsWith("--spring.")
+                    || arg.startsWith("--logging.")) {
+                proxyArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Option invalide : " + arg);
+            }
+        }
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "1000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", String.valueOf(sessions)));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "200"));
+        List<List<Command>> scripts = options.containsKey("replay")
+                ? loadScripts(Path.of(options.get("replay")))
+                : List.of(syntheticScript(Integer.parseInt(options.getOrDefault("commands", "20"))));
+        if (scripts.isEmpty()) {
+            throw new IllegalArgumentException("Aucune session à rejouer dans " + options.get("replay"));
+        }
+
+        try (StubGrid stubGrid = new StubGrid(
+                Integer.parseInt(options.getOrDefault("nodes", "2")),
+                DurationStyle.detectAndParse(options.getOrDefault("create-latency", "20ms")),
+                DurationStyle.detectAndParse(options.getOrDefault("command-latency", "2ms")),
+                (int) DataSize.parse(options.getOrDefault("payload", "1KB")).toBytes(),
+                Double.parseDouble(options.getOrDefault("error-rate", "0")))) {
+            List<String> nodeUrls = stubGrid.getNodeUrls();
+            List<String> springArgs = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.example.webdriverproxy=WARN",
+                    "--logging.level.org.springframework.cloud.gateway=WARN",
+                    "--logging.level.proxy=OFF",
+                    "--proxy.selenium.url=" + nodeUrls.get(0),
+                    "--proxy.selenium.nodes=" + String.join(",", nodeUrls),
+                    "--proxy.journal.enabled=false",
+                    "--proxy.session-journal.enabled=false",
+                    "--proxy.admission.max-queue-size=" + Math.max(concurrency, 200),
+                    "--proxy.node-pool.max-connections=" + Math.max(concurrency, 200)));
+            // Les options transmises, placées après, remplacent les valeurs par défaut
+            springArgs.addAll(proxyArgs);
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ProxyApplication.class)
+                    .run(springArgs.toArray(String[]::new));
+            String proxyUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + "/wd/hub";
+            ConnectionProvider connectionProvider = ConnectionProvider.builder("load-driver")
+                    .maxConnections(concurrency)
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            HttpClient httpClient = HttpClient.create(connectionProvider).responseTimeout(Duration.ofMinutes(1));
+            try {
+                System.out.printf("%d session(s), %d simultanée(s), %d séquence(s) de commandes, nœuds simulés %s%n",
+                        sessions, concurrency, scripts.size(), nodeUrls);
+                run(new Phase("warmup"), httpClient, proxyUrl, scripts, warmup, concurrency);
+                Phase direct = null;
+                if (Boolean.parseBoolean(options.getOrDefault("direct", "true"))) {
+                    direct = run(new Phase("direct"), httpClient, nodeUrls.get(0), scripts, sessions, concurrency);
+                    direct.print();
+                }
+                Phase proxy = run(new Phase("proxy"), httpClient, proxyUrl, scripts, sessions, concurrency);
+                proxy.print();
+                if (direct != null) {
+                    System.out.printf("Surcoût propre au proxy : p50 %.3f ms, p99 %.3f ms%n",
+                            millis(proxy.overheadAt(50) - direct.overheadAt(50)),
+                            millis(proxy.overheadAt(99) - direct.overheadAt(99)));
+                }
+            } finally {
+                connectionProvider.disposeLater().block();
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Joue une phase de charge : chaque session exécute une séquence de commandes, à tour de rôle parmi celles
+     * fournies, avec au plus {@code concurrency} sessions simultanées.
+     */
+    static Phase run(Phase phase, HttpClient httpClient, String baseUrl, List<List<Command>> scripts, int sessions,
+                     int concurrency) {
+        long start = System.nanoTime();
+        Flux.range(0, sessions)
+                .flatMap(i -> runSession(phase, httpClient, baseUrl, scripts.get(i % scripts.size())), concurrency)
+                .blockLast();
+        phase.elapsedNanos = System.nanoTime() - start;
+        return phase;
+    }
+
+    private static Mono<Void> runSession(Phase phase, HttpClient httpClient, String baseUrl, List<Command> script) {
+        return httpClient.post()
+                .uri(baseUrl + "/session")
+                .send(ByteBufFlux.fromString(Mono.just(CREATE_SESSION_BODY)))
+                .responseSingle((response, body) -> body.asString())
+                .map(body -> (String) JSON_MAPPER.extract(body, JsonMapper.VALUE_SESSION_ID).get(JsonMapper.VALUE_SESSION_ID))
+                .flatMap(sessionId -> Flux.fromIterable(script)
+                        .concatMap(command -> send(phase, httpClient, baseUrl + "/session/" + sessionId, command))
+                        .then(httpClient.delete()
+                                .uri(baseUrl + "/session/" + sessionId)
+                                .responseSingle((response, body) -> body.then())))
+                .onErrorResume(e -> {
+                    phase.fail();
+                    return Mono.empty();
+                });
+    }
+
+    private static Mono<Void> send(Phase phase, HttpClient httpClient, String sessionUrl, Command command) {
+        long start = System.nanoTime();
+        HttpClient.RequestSender request = httpClient.request(command.method()).uri(sessionUrl + command.path());
+        HttpClient.ResponseReceiver<?> receiver = command.body() != null
+                ? request.send(ByteBufFlux.fromString(Mono.just(command.body())))
+                : request;
+        return receiver.responseSingle((response, body) -> body.asByteArray()
+                        .defaultIfEmpty(new byte[0])
+                        .doOnNext(ignored -> {
+                            String serviceNanos = response.responseHeaders().get(StubGrid.SERVICE_TIME_HEADER);
+                            phase.record(System.nanoTime() - start,
+                                    serviceNanos != null ? Long.parseLong(serviceNanos) : 0, response.status().code());
+                        }))
+                .onErrorResume(e -> {
+                    phase.record(System.nanoTime() - start, 0, 0);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Construit la séquence d'une session synthétique : navigation, recherches d'éléments, lectures, scripts et une
+     * capture d'écran, répétés jusqu'au nombre de commandes demandé.
+     */
+    static List<Command> syntheticScript(int commands) {
+        List<Command> cycle = List.of(
+                new Command(HttpMethod.POST, "/url", "{\"url\":\"https://example.com\"}"),
+                new Command(HttpMethod.POST, "/element", "{\"using\":\"css selector\",\"value\":\"#main\"}"),
+                new Command(HttpMethod.GET, "/title", null),
+                new Command(HttpMethod.POST, "/elements", "{\"using\":\"xpath\",\"value\":\"//a\"}"),
+                new Command(HttpMethod.POST, "/execute/sync", "{\"script\":\"return document.readyState\",\"args\":[]}"),
+                new Command(HttpMethod.GET, "/url", null),
+                new Command(HttpMethod.GET, "/screenshot", null));
+        List<Command> script = new ArrayList<>(commands);
+        for (int i = 0; i < commands; i++) {
+            script.add(cycle.get(i % cycle.size()));
+        }
+        return script;
+    }
+
+    /**
+     * Extrait d'un journal des commandes les séquences de commandes de chaque session, dans leur ordre d'exécution.
+     * Les créations et suppressions de session, jouées par chaque session, sont écartées.
+     */
+    static List<List<Command>> loadScripts(Path directory) throws IOException {
+        Map<String, List<Command>> scripts = new LinkedHashMap<>();
+        for (Path segment : CommandJournalReader.listSegments(directory)) {
+            CommandJournalReader.read(segment, commandRecord -> toCommand(commandRecord, scripts));
+        }
+        return scripts.values().stream().filter(script -> !script.isEmpty()).toList();
+    }
+
+    private static void toCommand(CommandRecord commandRecord, Map<String, List<Command>> scripts) {
+        String path = commandRecord.getPath();
+        int idStart = path.indexOf("/session/");
+        if (idStart < 0) {
+            return;
+        }
+        idStart += "/session/".length();
+        int idEnd = path.indexOf('/', idStart);
+        if (idEnd < 0) {
+            // Création ou suppression de la session
+            return;
+        }
+        scripts.computeIfAbsent(path.substring(idStart, idEnd), sessionId -> new ArrayList<>())
+                .add(new Command(HttpMethod.valueOf(commandRecord.getMethod()), path.substring(idEnd), commandRecord.getBody()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
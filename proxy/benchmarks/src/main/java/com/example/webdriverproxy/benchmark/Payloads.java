@@ -0,0 +1,58 @@
+package com.example.webdriverproxy.benchmark;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Des corps de réponse WebDriver réalistes utilisés par les bancs d'essai.
+ */
+final class Payloads {
+
+    /** Une réponse de création de session Chrome, avec ses capacités complètes. */
+    static final String NEW_SESSION = "{\"value\":{\"capabilities\":{\"acceptInsecureCerts\":false,"
+            + "\"browserName\":\"chrome\",\"browserVersion\":\"124.0.6367.91\","
+            + "\"chrome\":{\"chromedriverVersion\":\"124.0.6367.91 (51df0e5e17a8b0a4f281c1665dbd1b8a0c6b46af)\","
+            + "\"userDataDir\":\"/tmp/.org.chromium.Chromium.Wr0mgl\"},\"fedcm:accounts\":true,"
+            + "\"goog:chromeOptions\":{\"debuggerAddress\":\"localhost:37517\"},\"networkConnectionEnabled\":false,"
+            + "\"pageLoadStrategy\":\"normal\",\"platformName\":\"linux\",\"proxy\":{},"
+            + "\"se:cdp\":\"ws://172.18.0.3:4444/session/6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3/se/cdp\","
+            + "\"se:cdpVersion\":\"124.0.6367.91\",\"se:vnc\":\"ws://172.18.0.3:4444/session/6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3/se/vnc\","
+            + "\"se:vncEnabled\":true,\"se:vncLocalAddress\":\"ws://172.18.0.3:7900\",\"setWindowRect\":true,"
+            + "\"strictFileInteractability\":false,\"timeouts\":{\"implicit\":0,\"pageLoad\":300000,\"script\":30000},"
+            + "\"unhandledPromptBehavior\":\"dismiss and notify\",\"webauthn:extension:credBlob\":true,"
+            + "\"webauthn:extension:largeBlob\":true,\"webauthn:extension:minPinLength\":true,"
+            + "\"webauthn:extension:prf\":true,\"webauthn:virtualAuthenticators\":true},"
+            + "\"sessionId\":\"6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3\"}}";
+
+    /** Une réponse d'erreur W3C "no such element" avec sa trace de pile. */
+    static final String NO_SUCH_ELEMENT = "{\"value\":{\"error\":\"no such element\","
+            + "\"message\":\"no such element: Unable to locate element: {\\\"method\\\":\\\"xpath\\\",\\\"selector\\\":\\\"//non-existent-element\\\"}\\n"
+            + "  (Session info: chrome=124.0.6367.91)\",\"stacktrace\":\"" + stacktrace() + "\"}}";
+
+    /** Le corps de la requête de recherche d'élément à l'origine de l'erreur. */
+    static final String FIND_ELEMENT_REQUEST = "{\"using\":\"xpath\",\"value\":\"//non-existent-element\"}";
+
+    private Payloads() {
+    }
+
+    /**
+     * Construit une réponse de capture d'écran dont l'image encodée en base64 fait la taille demandée.
+     *
+     * @param base64Bytes la taille approximative de la valeur base64, en octets
+     * @return la réponse JSON de capture d'écran
+     */
+    static String screenshot(int base64Bytes) {
+        byte[] png = new byte[base64Bytes / 4 * 3];
+        new Random(42).nextBytes(png);
+        return "{\"value\":\"" + Base64.getEncoder().encodeToString(png) + "\"}";
+    }
+
+    private static String stacktrace() {
+        StringBuilder stacktrace = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            stacktrace.append("#").append(i).append(" 0x55d4c0b3e").append(Integer.toHexString(i * 4099))
+                    .append(" <unknown>\\n");
+        }
+        return stacktrace.toString();
+    }
+}
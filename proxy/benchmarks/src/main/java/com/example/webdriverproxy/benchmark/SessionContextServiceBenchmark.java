@@ -0,0 +1,89 @@
+package com.example.webdriverproxy.benchmark;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.LocalSessionRegistry;
+import com.example.webdriverproxy.service.SessionContextService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc d'essai de {@link SessionContextService} sous contention : recherches de session concurrentes, seules ou
+ * mêlées à des créations de session qui provoquent des évictions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionContextServiceBenchmark {
+
+    private static final int SESSIONS = 4096;
+
+    private final String[] sessionIds = new String[SESSIONS];
+    private final String[] responses = new String[SESSIONS];
+    private SessionContextService sessionContextService;
+
+    @Setup
+    public void setUp() {
+        GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub", "http://localhost:4445/wd/hub"));
+        sessionContextService = new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(),
+                SESSIONS, Duration.ofHours(1), Duration.ofSeconds(30));
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = String.format("%032x", i);
+            responses[i] = Payloads.NEW_SESSION.replace("6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3", sessionIds[i]);
+            sessionContextService.submitSessionContext(responses[i], sessionContextService.initSessionContext());
+        }
+    }
+
+    /**
+     * La position propre à chaque thread dans les sessions pré-enregistrées.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next() {
+            next = (next + 1) & (SESSIONS - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SessionContext getSessionContext(Cursor cursor) {
+        return sessionContextService.getSessionContext(sessionIds[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public SessionContext mixedGet(Cursor cursor) {
+        return sessionContextService.findSessionContext(sessionIds[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public String mixedSubmit(Cursor cursor) {
+        return sessionContextService.submitSessionContext(responses[cursor.next()], sessionContextService.initSessionContext());
+    }
+}
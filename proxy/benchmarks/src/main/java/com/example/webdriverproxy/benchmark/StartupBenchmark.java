@@ -0,0 +1,257 @@
+package com.example.webdriverproxy.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.jar.JarFile;
+
+/**
+ * Un banc d'essai du démarrage : mesure, pour l'archive exécutable du proxy lancée dans un processus séparé devant un
+ * {@link StubGrid}, le temps écoulé jusqu'à la première création de session relayée avec succès et la mémoire résidente
+ * du processus à cet instant.
+ * <p>
+ * Deux lancements sont comparés : l'archive telle quelle ({@code java -jar}), puis le lancement rapide. Pour ce dernier,
+ * l'archive est extraite (mode {@code tools} de Spring Boot), les classes chargées par un démarrage d'entraînement qui
+ * joue quelques sessions synthétiques sont enregistrées dans une archive CDS ({@code -XX:ArchiveClassesAtExit}), puis
+ * chaque lancement mesuré la réutilise ({@code -XX:SharedArchiveFile}). Si l'archive a été construite avec le profil
+ * Maven {@code fast-startup}, le contexte précalculé par Spring AOT est aussi utilisé ({@code -Dspring.aot.enabled=true}).
+ * <pre>
+ * mvn -Pfast-startup install
+ * java -cp benchmarks/target/benchmarks.jar com.example.webdriverproxy.benchmark.StartupBenchmark \
+ *     --jar=proxy/target/webdriverproxy-0.0.1-SNAPSHOT.jar --runs=5 [--proxy.session.cache.max-size=5000 ...]
+ * </pre>
+ * Options : {@code jar} (l'archive exécutable du proxy, obligatoire), {@code runs} (lancements mesurés par variante, 5),
+ * {@code dir} (répertoire de l'archive extraite et de l'archive CDS, {@code fast-startup} à côté de l'archive),
+ * {@code training-sessions} (sessions jouées pendant l'entraînement, 200), {@code timeout} (délai maximal d'un
+ * démarrage, 2m) et {@code java} (l'exécutable Java, celui du banc d'essai par défaut). Les options {@code --proxy.*},
+ * {@code --server.*}, {@code --spring.*} et {@code --logging.*} sont transmises au proxy. L'extraction et
+ * l'entraînement sont à refaire à chaque nouvelle archive : une archive CDS ne sert qu'avec le chemin de classes qui
+ * l'a produite.
+ */
+public class StartupBenchmark {
+
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/com/example/webdriverproxy/ProxyApplication__ApplicationContextInitializer.class";
+    private static final String CREATE_SESSION_BODY =
+            "{\"capabilities\":{\"alwaysMatch\":{\"browserName\":\"chrome\"}}}";
+    private static final String CDS_ARCHIVE = "proxy.jsa";
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Un lancement mesuré.
+     *
+     * @param millis   le temps écoulé jusqu'à la première création de session relayée, en millisecondes
+     * @param rssBytes la mémoire résidente du processus à cet instant, ou -1 si elle n'est pas disponible
+     */
+    record Launch(long millis, long rssBytes) {}
+
+    /**
+     * Lance le banc d'essai du démarrage.
+     *
+     * @param args les options du banc d'essai et du proxy, au format {@code --nom=valeur}
+     * @throws IOException          si l'archive ne peut pas être extraite ou un processus lancé
+     * @throws InterruptedException si le banc d'essai est interrompu
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        List<String> proxyArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--proxy.") || arg.startsWith("--server.") || arg.startsWith("--spring.")
+                    || arg.startsWith("--logging.")) {
+                proxyArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Option invalide : " + arg);
+            }
+        }
+        if (!options.containsKey("jar")) {
+            throw new IllegalArgumentException("Option obligatoire : --jar=<archive exécutable du proxy>");
+        }
+        Path jar = Path.of(options.get("jar")).toAbsolutePath();
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Path directory = Path.of(options.getOrDefault("dir", jar.resolveSibling("fast-startup").toString())).toAbsolutePath();
+        int trainingSessions = Integer.parseInt(options.getOrDefault("training-sessions", "200"));
+        Duration timeout = DurationStyle.detectAndParse(options.getOrDefault("timeout", "2m"));
+        String java = options.getOrDefault("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+
+        boolean aot;
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            aot = jarFile.getEntry(AOT_INITIALIZER) != null;
+        }
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("startup-benchmark")
+                .maxConnections(64)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider).responseTimeout(Duration.ofSeconds(30));
+        try (StubGrid stubGrid = new StubGrid(1, Duration.ZERO, Duration.ZERO, 1024, 0.05)) {
+            String nodeUrl = stubGrid.getNodeUrls().get(0);
+            Path cdsArchive = directory.resolve(CDS_ARCHIVE);
+            List<String> aotJvmArgs = aot ? List.of("-Dspring.aot.enabled=true") : List.of();
+            List<String> fastJvmArgs = new ArrayList<>(aotJvmArgs);
+            fastJvmArgs.add("-XX:SharedArchiveFile=" + cdsArchive);
+            Path extractedJar = directory.resolve(jar.getFileName());
+
+            System.out.printf("Archive %s (%s), extraction dans %s%n", jar,
+                    aot ? "contexte précalculé par Spring AOT" : "sans Spring AOT, profil fast-startup absent", directory);
+            run(List.of(java, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination",
+                    directory.toString(), "--force"), directory.resolveSibling(directory.getFileName() + "-extract.log"), timeout);
+
+            // Entraînement : l'archive CDS est écrite à l'arrêt normal du processus, après quelques sessions relayées
+            Files.deleteIfExists(cdsArchive);
+            List<String> trainingJvmArgs = new ArrayList<>(aotJvmArgs);
+            trainingJvmArgs.add("-XX:ArchiveClassesAtExit=" + cdsArchive);
+            Launch training = launch(java, trainingJvmArgs, extractedJar, nodeUrl, proxyArgs, directory.resolve("training.log"),
+                    timeout, httpClient, proxyUrl -> {
+                        LoadDriver.Phase phase = LoadDriver.run(new LoadDriver.Phase("training"), httpClient, proxyUrl,
+                                List.of(LoadDriver.syntheticScript(20)), trainingSessions, Math.min(trainingSessions, 50));
+                        phase.print();
+                    });
+            if (!Files.exists(cdsArchive)) {
+                throw new IllegalStateException("Archive CDS non produite, voir " + directory.resolve("training.log"));
+            }
+            System.out.printf("Entraînement : premier démarrage en %d ms, archive CDS de %.1f MB%n", training.millis(),
+                    Files.size(cdsArchive) / 1e6);
+
+            Map<String, List<Launch>> launches = new LinkedHashMap<>();
+            for (int i = 0; i < runs; i++) {
+                // Les variantes alternent, pour qu'une variation de charge de la machine les touche toutes les deux
+                launches.computeIfAbsent("default", name -> new ArrayList<>())
+                        .add(launch(java, List.of(), jar, nodeUrl, proxyArgs, directory.resolve("default.log"), timeout,
+                                httpClient, proxyUrl -> {}));
+                launches.computeIfAbsent("fast-startup", name -> new ArrayList<>())
+                        .add(launch(java, fastJvmArgs, extractedJar, nodeUrl, proxyArgs, directory.resolve("fast-startup.log"),
+                                timeout, httpClient, proxyUrl -> {}));
+            }
+            launches.forEach(StartupBenchmark::print);
+            System.out.printf("Démarrage médian %.2f fois plus rapide%n",
+                    median(launches.get("default"), Launch::millis) / (double) median(launches.get("fast-startup"), Launch::millis));
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+    }
+
+    /**
+     * Lance le proxy dans un processus séparé, attend sa première création de session relayée, exécute l'action
+     * fournie avec l'URL du proxy puis arrête le processus normalement.
+     */
+    private static Launch launch(String java, List<String> jvmArgs, Path jar, String nodeUrl, List<String> proxyArgs,
+                                 Path log, Duration timeout, HttpClient httpClient,
+                                 Consumer<String> action) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(java));
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.webdriverproxy=WARN",
+                "--logging.level.org.springframework.cloud.gateway=WARN",
+                "--logging.level.proxy=OFF",
+                "--proxy.selenium.url=" + nodeUrl,
+                "--proxy.selenium.nodes=" + nodeUrl,
+                "--proxy.journal.enabled=false",
+                "--proxy.session-journal.enabled=false"));
+        // Les options transmises, placées après, remplacent les valeurs par défaut
+        command.addAll(proxyArgs);
+        String proxyUrl = "http://127.0.0.1:" + port + "/wd/hub";
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (createSession(httpClient, proxyUrl) != 200) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Le proxy s'est arrêté au démarrage, voir " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Le proxy n'a relayé aucune session après " + timeout + ", voir " + log);
+                }
+                Thread.sleep(10);
+            }
+            Launch launch = new Launch(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), residentBytes(process.pid()));
+            action.accept(proxyUrl);
+            return launch;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int createSession(HttpClient httpClient, String proxyUrl) {
+        return httpClient.post()
+                .uri(proxyUrl + "/session")
+                .send(ByteBufFlux.fromString(Mono.just(CREATE_SESSION_BODY)))
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                .onErrorReturn(0)
+                .blockOptional()
+                .orElse(0);
+    }
+
+    private static void run(List<String> command, Path log, Duration timeout) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Échec de " + String.join(" ", command) + ", voir " + log);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lit la mémoire résidente d'un processus dans {@code /proc/<pid>/status} ; -1 hors de Linux.
+     */
+    private static long residentBytes(long pid) {
+        try {
+            return Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                    .findFirst()
+                    .orElse(-1L);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void print(String variant, List<Launch> launches) {
+        long[] millis = launches.stream().mapToLong(Launch::millis).sorted().toArray();
+        long rss = median(launches, Launch::rssBytes);
+        System.out.printf("%-13s première session relayée min %6d ms médiane %6d ms max %6d ms | mémoire résidente %s%n",
+                variant, millis[0], millis[millis.length / 2], millis[millis.length - 1],
+                rss < 0 ? "n/d" : String.format("%.0f MB", rss / 1e6));
+    }
+
+    private static long median(List<Launch> launches, ToLongFunction<Launch> value) {
+        long[] values = launches.stream().mapToLong(value).toArray();
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.webdriverproxy.benchmark;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un Grid Selenium simulé, servi dans le processus par Reactor Netty, qui répond aux commandes WebDriver sans
+ * navigateur. Chaque nœud écoute sur son propre port ; les latences de création de session et de commande, la taille
+ * des réponses et la proportion d'erreurs {@code no such element} sont configurables. Les attentes ne bloquent aucun
+ * thread, si bien que quelques cœurs suffisent à simuler des milliers de sessions simultanées.
+ * <p>
+ * Chaque réponse porte l'en-tête {@value #SERVICE_TIME_HEADER}, la durée passée par le nœud simulé à traiter la
+ * commande, en nanosecondes ; {@link LoadDriver} la retranche de la latence observée pour isoler le surcoût du proxy.
+ * Les URL WebSocket annoncées à la création de session ({@code se:cdp}, {@code se:vnc}) désignent le nœud simulé, qui
+ * renvoie chaque trame reçue à l'identique.
+ */
+public final class StubGrid implements AutoCloseable {
+
+    /** L'en-tête de réponse indiquant la durée de traitement de la commande par le nœud simulé, en nanosecondes. */
+    public static final String SERVICE_TIME_HEADER = "X-Stub-Service-Nanos";
+
+    private static final String BASE_PATH = "/wd/hub";
+    private static final String ADVERTISED_NODE = "ws://172.18.0.3:4444";
+    private static final WebsocketServerSpec WEBSOCKET_SPEC = WebsocketServerSpec.builder()
+            .maxFramePayloadLength(64 * 1024 * 1024)
+            .build();
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final Duration createLatency;
+    private final Duration commandLatency;
+    private final double errorRate;
+    private final byte[] commandResponse;
+    private final byte[] screenshotResponse;
+    private final byte[] errorResponse;
+    private final AtomicLong commandCount = new AtomicLong();
+
+    /**
+     * Démarre un Grid simulé sur des ports libres de l'interface locale.
+     *
+     * @param nodes          le nombre de nœuds simulés
+     * @param createLatency  la durée d'une création de session
+     * @param commandLatency la durée d'une commande
+     * @param payloadBytes   la taille approximative de la valeur des réponses aux commandes et aux captures d'écran
+     * @param errorRate      la proportion des commandes qui échouent avec une erreur {@code no such element}
+     */
+    public StubGrid(int nodes, Duration createLatency, Duration commandLatency, int payloadBytes, double errorRate) {
+        this.createLatency = createLatency;
+        this.commandLatency = commandLatency;
+        this.errorRate = errorRate;
+        this.commandResponse = ("{\"value\":\"" + "x".repeat(payloadBytes) + "\"}").getBytes(StandardCharsets.UTF_8);
+        this.screenshotResponse = Payloads.screenshot(payloadBytes).getBytes(StandardCharsets.UTF_8);
+        this.errorResponse = Payloads.NO_SUCH_ELEMENT.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < nodes; i++) {
+            servers.add(HttpServer.create()
+                    .host("127.0.0.1")
+                    .port(0)
+                    .handle(this::handle)
+                    .bindNow());
+        }
+    }
+
+    /**
+     * Retourne les URL des nœuds simulés, au format attendu par {@code proxy.selenium.nodes}.
+     *
+     * @return les URL des nœuds, par exemple {@code http://127.0.0.1:41234/wd/hub}
+     */
+    public List<String> getNodeUrls() {
+        return servers.stream().map(server -> "http://127.0.0.1:" + server.port() + BASE_PATH).toList();
+    }
+
+    /**
+     * Retourne le nombre de requêtes reçues par l'ensemble des nœuds simulés.
+     *
+     * @return le nombre de requêtes reçues
+     */
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * Arrête les nœuds simulés.
+     */
+    @Override
+    public void close() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        if (request.requestHeaders().containsValue(HttpHeaderNames.UPGRADE, "websocket", true)) {
+            return response.sendWebsocket((in, out) -> out.send(in.receive().retain()), WEBSOCKET_SPEC);
+        }
+        long start = System.nanoTime();
+        commandCount.incrementAndGet();
+        String path = request.path();
+        HttpMethod method = request.method();
+        Duration latency;
+        HttpResponseStatus status = HttpResponseStatus.OK;
+        byte[] body;
+        if (method == HttpMethod.POST && path.endsWith("session")) {
+            latency = createLatency;
+            body = Payloads.NEW_SESSION.replace("6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3", UUID.randomUUID().toString().replace("-", ""))
+                    .replace(ADVERTISED_NODE, "ws://" + request.hostAddress().getHostString() + ":" + request.hostAddress().getPort())
+                    .getBytes(StandardCharsets.UTF_8);
+        } else if (method == HttpMethod.DELETE || path.endsWith("status")) {
+            latency = Duration.ZERO;
+            body = "{\"value\":null}".getBytes(StandardCharsets.UTF_8);
+        } else if (path.endsWith("screenshot")) {
+            latency = commandLatency;
+            body = screenshotResponse;
+        } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            latency = commandLatency;
+            status = HttpResponseStatus.NOT_FOUND;
+            body = errorResponse;
+        } else {
+            latency = commandLatency;
+            body = commandResponse;
+        }
+        HttpResponseStatus responseStatus = status;
+        Mono<Void> delay = latency.isZero() ? Mono.empty() : Mono.delay(latency).then();
+        return request.receive().then()
+                .then(delay)
+                .then(Mono.defer(() -> response.status(responseStatus)
+                        .header(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8")
+                        .header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+                        .header(SERVICE_TIME_HEADER, String.valueOf(System.nanoTime() - start))
+                        .sendByteArray(Mono.just(body))
+                        .then()));
+    }
+}
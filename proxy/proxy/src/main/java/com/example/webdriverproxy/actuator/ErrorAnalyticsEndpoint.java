@@ -0,0 +1,45 @@
+package com.example.webdriverproxy.actuator;
+
+import com.example.webdriverproxy.model.ErrorReport;
+import com.example.webdriverproxy.service.ErrorAnalyticsService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Un point de terminaison Actuator ({@code /actuator/errors}) qui expose la synthèse des erreurs WebDriver agrégées
+ * par {@link ErrorAnalyticsService} : nombre d'erreurs par type et par commande, et localisateurs qui échouent le plus.
+ * Le paramètre {@code window} choisit la fenêtre glissante, par exemple {@code /actuator/errors?window=5m} ; sans
+ * paramètre, la synthèse couvre toute la durée conservée.
+ */
+@Component
+@Endpoint(id = "errors")
+public class ErrorAnalyticsEndpoint {
+
+    private final ErrorAnalyticsService errorAnalyticsService;
+
+    /**
+     * Construit une instance de {@code ErrorAnalyticsEndpoint}.
+     *
+     * @param errorAnalyticsService le service qui agrège les erreurs
+     */
+    public ErrorAnalyticsEndpoint(ErrorAnalyticsService errorAnalyticsService) {
+        this.errorAnalyticsService = errorAnalyticsService;
+    }
+
+    /**
+     * Retourne la synthèse des erreurs d'une fenêtre glissante se terminant maintenant.
+     *
+     * @param window la durée de la fenêtre, par exemple {@code 5m} ou {@code PT1H}, ou null pour toute la rétention
+     * @return la synthèse des erreurs
+     */
+    @ReadOperation
+    public ErrorReport errors(@Nullable String window) {
+        Duration duration = window != null ? DurationStyle.detectAndParse(window) : errorAnalyticsService.getRetention();
+        return errorAnalyticsService.report(duration);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.webdriverproxy.actuator;
+
+import com.example.webdriverproxy.model.WebSocketTraffic;
+import com.example.webdriverproxy.service.WebSocketRelayService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Un point de terminaison Actuator ({@code /actuator/websockets}) qui expose le trafic WebSocket (BiDi, CDP, VNC)
+ * relayé par {@link WebSocketRelayService} : connexions ouvertes, trames et octets dans chaque sens, pour chaque
+ * session, ou pour une seule avec {@code /actuator/websockets/{sessionId}}.
+ */
+@Component
+@Endpoint(id = "websockets")
+public class WebSocketTrafficEndpoint {
+
+    private final WebSocketRelayService webSocketRelayService;
+
+    /**
+     * Construit une instance de {@code WebSocketTrafficEndpoint}.
+     *
+     * @param webSocketRelayService le service qui relaie les connexions WebSocket des sessions
+     */
+    public WebSocketTrafficEndpoint(WebSocketRelayService webSocketRelayService) {
+        this.webSocketRelayService = webSocketRelayService;
+    }
+
+    /**
+     * Retourne le trafic WebSocket relayé pour chaque session.
+     *
+     * @return le trafic par session
+     */
+    @ReadOperation
+    public List<WebSocketTraffic> traffic() {
+        return webSocketRelayService.getTraffic();
+    }
+
+    /**
+     * Retourne le trafic WebSocket relayé pour une session.
+     *
+     * @param sessionId l'identifiant de la session attribué par le Grid
+     * @return le trafic de la session, ou null (réponse 404) si aucune connexion n'a été relayée pour elle
+     */
+    @ReadOperation
+    public WebSocketTraffic session(@Selector String sessionId) {
+        return webSocketRelayService.getTraffic(sessionId);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.webdriverproxy.config;
+
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.service.GridNodeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * La configuration du client HTTP qui relaie les commandes vers les nœuds Selenium.
+ * Chaque nœud dispose de son propre pool de connexions persistantes, avec ses limites de taille et son éviction des
+ * connexions inactives : un nœud lent ou saturé épuise son pool sans priver les autres nœuds de connexions. Les
+ * autres hôtes gardent le pool défini par {@code spring.cloud.gateway.httpclient.pool}.
+ * <p>
+ * Le même client sert aux commandes envoyées directement par le proxy via {@code WebClient} (lots, attente des
+ * éléments, sondes de santé, pool de sessions). Les métriques Reactor Netty des pools
+ * ({@code reactor.netty.connection.provider.*}, étiquetées par {@code remote.address}) exposent leur saturation.
+ */
+@Slf4j(topic = "proxy")
+@Configuration(proxyBeanMethods = false)
+public class NodeConnectionPoolConfiguration {
+
+    /**
+     * Remplace la fabrique du client HTTP de la passerelle par une fabrique dotée d'un pool par nœud.
+     *
+     * @param properties            les propriétés du client HTTP de la passerelle
+     * @param serverProperties      les propriétés du serveur
+     * @param sslConfigurer         la configuration SSL du client HTTP de la passerelle
+     * @param customizers           les personnalisations du client HTTP de la passerelle
+     * @param gridNodeService       le service qui gère les nœuds Selenium
+     * @param maxConnections        le nombre maximal de connexions ouvertes vers chaque nœud
+     * @param pendingAcquireMaxCount le nombre maximal de commandes en attente d'une connexion vers un nœud
+     * @param pendingAcquireTimeout la durée d'attente maximale d'une connexion vers un nœud
+     * @param maxIdleTime           la durée au-delà de laquelle une connexion inactive est fermée
+     * @param maxLifeTime           la durée de vie maximale d'une connexion
+     * @param evictionInterval      l'intervalle de recherche des connexions à fermer
+     * @return la fabrique du client HTTP de la passerelle
+     */
+    @Bean
+    public HttpClientFactory nodeHttpClientFactory(HttpClientProperties properties, ServerProperties serverProperties,
+                                                   HttpClientSslConfigurer sslConfigurer,
+                                                   List<HttpClientCustomizer> customizers, GridNodeService gridNodeService,
+                                                   @Value("${proxy.node-pool.max-connections:200}") int maxConnections,
+                                                   @Value("${proxy.node-pool.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+                                                   @Value("${proxy.node-pool.pending-acquire-timeout:30s}") Duration pendingAcquireTimeout,
+                                                   @Value("${proxy.node-pool.max-idle-time:30s}") Duration maxIdleTime,
+                                                   @Value("${proxy.node-pool.max-life-time:10m}") Duration maxLifeTime,
+                                                   @Value("${proxy.node-pool.eviction-interval:15s}") Duration evictionInterval) {
+        return new HttpClientFactory(properties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                HttpClientProperties.Pool pool = properties.getPool();
+                if (pool.getType() == HttpClientProperties.Pool.PoolType.DISABLED) {
+                    return super.buildConnectionProvider(properties);
+                }
+                boolean fixed = pool.getType() == HttpClientProperties.Pool.PoolType.FIXED;
+                ConnectionProvider.Builder builder = ConnectionProvider.builder(pool.getName())
+                        .maxConnections(fixed ? pool.getMaxConnections() : Integer.MAX_VALUE)
+                        .pendingAcquireMaxCount(-1)
+                        .pendingAcquireTimeout(Duration.ofMillis(fixed ? pool.getAcquireTimeout() : 0))
+                        .evictInBackground(pool.getEvictionInterval())
+                        .metrics(true);
+                if (pool.getMaxIdleTime() != null) {
+                    builder.maxIdleTime(pool.getMaxIdleTime());
+                }
+                if (pool.getMaxLifeTime() != null) {
+                    builder.maxLifeTime(pool.getMaxLifeTime());
+                }
+                for (GridNode node : gridNodeService.getNodes()) {
+                    InetSocketAddress address = InetSocketAddress.createUnresolved(node.getUrl().getHost(),
+                            node.getUrl().getPort() != -1 ? node.getUrl().getPort() : node.getUrl().getDefaultPort());
+                    builder.forRemoteHost(address, spec -> spec
+                            .maxConnections(maxConnections)
+                            .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                            .pendingAcquireTimeout(pendingAcquireTimeout)
+                            .maxIdleTime(maxIdleTime)
+                            .maxLifeTime(maxLifeTime)
+                            .evictInBackground(evictionInterval)
+                            .metrics(true));
+                }
+                log.info("[Proxy] Pools de connexions dédiés : {} connexions au plus par nœud", maxConnections);
+                if (pool.getLeasingStrategy() == HttpClientProperties.Pool.LeasingStrategy.FIFO) {
+                    builder.fifo();
+                } else {
+                    builder.lifo();
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    /**
+     * Fait utiliser aux clients {@code WebClient} du proxy le client HTTP de la passerelle et ses pools par nœud.
+     *
+     * @param httpClient le client HTTP de la passerelle
+     * @return la personnalisation des {@code WebClient.Builder} injectés
+     */
+    @Bean
+    public WebClientCustomizer nodeWebClientCustomizer(HttpClient httpClient) {
+        return webClientBuilder -> webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+}
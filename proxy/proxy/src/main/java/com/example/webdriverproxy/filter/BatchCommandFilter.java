@@ -0,0 +1,118 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.BatchCommandService;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.ReadCacheService;
+import com.example.webdriverproxy.service.SessionContextService;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre Spring Cloud Gateway qui expose le point de terminaison de lot du proxy,
+ * {@code POST /wd/hub/session/{id}/proxy/batch}. Le lot est exécuté par {@link BatchCommandService} sur le nœud de
+ * la session et la réponse regroupée est renvoyée directement, sans poursuivre la chaîne de filtres.
+ * Une session inconnue du proxy donne une erreur {@code invalid session id}, un lot mal formé une erreur
+ * {@code invalid argument}.
+ */
+@Component
+public class BatchCommandFilter extends AbstractGatewayFilterFactory<BatchCommandFilter.Config> {
+
+    private final BatchCommandService batchCommandService;
+    private final ReadCacheService readCacheService;
+    private final SessionContextService sessionContextService;
+    private final GridNodeService gridNodeService;
+    private final PathMapper pathMapper;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code BatchCommandFilter} avec les dépendances requises.
+     *
+     * @param batchCommandService   le service qui exécute les lots de commandes
+     * @param readCacheService      le service dont le cache des lectures est vidé autour de chaque lot
+     * @param sessionContextService le service qui conserve le nœud de chaque session
+     * @param gridNodeService       le service qui gère les nœuds Selenium
+     * @param pathMapper            le service d'analyse des chemins de commande
+     * @param jsonMapper            le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public BatchCommandFilter(BatchCommandService batchCommandService, ReadCacheService readCacheService,
+                              SessionContextService sessionContextService, GridNodeService gridNodeService,
+                              PathMapper pathMapper, JsonMapper jsonMapper) {
+        super(Config.class);
+        this.batchCommandService = batchCommandService;
+        this.readCacheService = readCacheService;
+        this.sessionContextService = sessionContextService;
+        this.gridNodeService = gridNodeService;
+        this.pathMapper = pathMapper;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui exécute le lot de commandes reçu.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui répond avec les résultats du lot
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpResponse response = exchange.getResponse();
+            String sessionId = pathMapper.getSessionId(exchange.getRequest().getPath().value());
+            SessionContext taggedSession = exchange.getAttribute(SessionIdFilter.TAGGED_SESSION_ATTR);
+            Mono<SessionContext> sessionContext = taggedSession != null ? Mono.just(taggedSession)
+                    : sessionId != null
+                    ? sessionContextService.resolveSessionContext(sessionId).filter(found -> found.getUrl() != null)
+                    : Mono.empty();
+            return sessionContext
+                    .flatMap(found -> execute(exchange, found).thenReturn(Boolean.TRUE))
+                    .switchIfEmpty(Mono.defer(() -> write(response, HttpStatus.NOT_FOUND,
+                            jsonMapper.toErrorResponse("invalid session id", "[Proxy] Session inconnue : " + sessionId))
+                            .thenReturn(Boolean.TRUE)))
+                    .then();
+        };
+    }
+
+    private Mono<Void> execute(ServerWebExchange exchange, SessionContext sessionContext) {
+        ServerHttpResponse response = exchange.getResponse();
+        exchange.getAttributes().put(SessionRoutingFilter.ROUTED_NODE_ATTR, gridNodeService.getNode(sessionContext.getUrl()));
+        return DataBufferUtils.join(exchange.getRequest().getBody())
+                .map(buffer -> {
+                    String body = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty("")
+                .doOnNext(body -> exchange.getAttributes().put("cachedRequestBody", body))
+                .doOnNext(body -> readCacheService.invalidate(sessionContext.getSessionId()))
+                .flatMap(body -> batchCommandService.execute(sessionContext, body)
+                        .doFinally(signal -> readCacheService.invalidate(sessionContext.getSessionId())))
+                .flatMap(result -> write(response, HttpStatus.OK, result))
+                .onErrorResume(IllegalArgumentException.class, e -> write(response, HttpStatus.BAD_REQUEST,
+                        jsonMapper.toErrorResponse("invalid argument", "[Proxy] Lot invalide : " + e.getMessage())));
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, HttpStatus status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    /**
+     * Classe de configuration pour {@code BatchCommandFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
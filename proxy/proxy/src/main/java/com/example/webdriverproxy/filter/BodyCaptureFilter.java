@@ -0,0 +1,139 @@
+package com.example.webdriverproxy.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Un filtre Spring Cloud Gateway qui transmet les corps de requête et de réponse sans les décoder ni les copier.
+ * Les {@link DataBuffer} reçus sont relayés tels quels ; seul un préfixe borné du corps de la requête, ainsi que
+ * celui des réponses en erreur, est recopié au passage dans les attributs "cachedRequestBody" et "cachedResponseBody"
+ * pour les filtres qui en ont besoin, comme {@link ErrorDetectionFilter}.
+ */
+@Component
+public class BodyCaptureFilter extends AbstractGatewayFilterFactory<BodyCaptureFilter.Config> {
+
+    /** L'ordre du filtre : avant {@link NettyWriteResponseFilter}, afin que la réponse décorée soit celle écrite. */
+    public static final int BODY_CAPTURE_FILTER_ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private final int maxBytes;
+
+    /**
+     * Construit une instance de {@code BodyCaptureFilter}.
+     *
+     * @param maxBytes le nombre maximal d'octets recopiés pour chaque corps
+     */
+    public BodyCaptureFilter(@Value("${proxy.body-capture.max-bytes:16384}") int maxBytes) {
+        super(Config.class);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui décore la requête et la réponse de l'échange.
+     * Le corps de la requête est recopié jusqu'à la limite configurée ; celui de la réponse ne l'est que si le statut
+     * est une erreur. Les corps complets continuent de circuler en flux vers le nœud et vers le client.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui gère la capture bornée des corps
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    BoundedCapture capture = new BoundedCapture(maxBytes);
+                    return super.getBody()
+                            .doOnNext(capture::append)
+                            .doOnComplete(() -> capture.storeIn(exchange, "cachedRequestBody"));
+                }
+            };
+            ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    HttpStatusCode status = getStatusCode();
+                    if (status == null || !status.isError()) {
+                        return super.writeWith(body);
+                    }
+                    BoundedCapture capture = new BoundedCapture(maxBytes);
+                    return super.writeWith(Flux.from(body)
+                            .doOnNext(capture::append)
+                            .doOnComplete(() -> capture.storeIn(exchange, "cachedResponseBody")));
+                }
+            };
+            return chain.filter(exchange.mutate().request(request).response(response).build());
+        }, BODY_CAPTURE_FILTER_ORDER);
+    }
+
+    /**
+     * Une copie bornée des premiers octets d'un corps transmis en flux, allouée seulement si le corps n'est pas vide.
+     */
+    private static class BoundedCapture {
+
+        private final int maxBytes;
+        private byte[] bytes;
+        private int length;
+        private boolean truncated;
+
+        BoundedCapture(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void append(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            int copied = Math.min(readable, maxBytes - length);
+            if (copied > 0) {
+                if (bytes == null || bytes.length < length + copied) {
+                    int capacity = Math.min(maxBytes, Math.max(length + copied, bytes == null ? 0 : bytes.length * 2));
+                    bytes = bytes == null ? new byte[capacity] : Arrays.copyOf(bytes, capacity);
+                }
+                buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), length, copied);
+                length += copied;
+            }
+            truncated |= copied < readable;
+        }
+
+        void storeIn(ServerWebExchange exchange, String attribute) {
+            if (length > 0) {
+                String body = new String(bytes, 0, truncated ? completeLength() : length, StandardCharsets.UTF_8);
+                exchange.getAttributes().put(attribute, truncated ? body + "…" : body);
+            }
+        }
+
+        /**
+         * Retourne la longueur du préfixe capturé sans le dernier caractère UTF-8 s'il a été coupé par la limite.
+         */
+        private int completeLength() {
+            int lead = length - 1;
+            while (lead > 0 && length - lead < 4 && (bytes[lead] & 0xC0) == 0x80) {
+                lead--;
+            }
+            int first = bytes[lead] & 0xFF;
+            int charLength = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+            return lead + charLength > length ? lead : length;
+        }
+    }
+
+    /**
+     * Classe de configuration pour {@code BodyCaptureFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -1,48 +1,82 @@
 package com.example.webdriverproxy.filter;
 
+import com.example.webdriverproxy.journal.CommandJournal;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.CommandRecord;
+import com.example.webdriverproxy.model.SessionContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 /**
  * Un filtre Spring Cloud Gateway qui journalise les détails des commandes interceptées dans les requêtes proxy.
- * Ce filtre capture et enregistre le chemin, la méthode HTTP et le corps de la requête (si disponible) pour chaque
- * commande interceptée, facilitant le suivi et le débogage.
+ * Ce filtre capture le chemin, la méthode HTTP, le corps de la requête (si disponible), le statut et la durée de
+ * chaque commande interceptée, et les publie dans le {@link CommandJournal} plutôt que de les écrire de manière
+ * synchrone dans les logs, facilitant le suivi et le débogage sans ralentir la boucle d'événements.
  */
 @Slf4j(topic = "proxy")
 @Component
 public class CommandLoggingFilter extends AbstractGatewayFilterFactory<CommandLoggingFilter.Config> {
 
+    private final CommandJournal commandJournal;
+    private final PathMapper pathMapper;
+
     /**
      * Construit une instance de {@code CommandLoggingFilter}.
      * Initialise le filtre avec la classe de configuration spécifiée.
+     *
+     * @param commandJournal le journal dans lequel les commandes sont publiées
+     * @param pathMapper     le service d'analyse des chemins de commande
      */
-    public CommandLoggingFilter() {
+    public CommandLoggingFilter(CommandJournal commandJournal, PathMapper pathMapper) {
         super(Config.class);
+        this.commandJournal = commandJournal;
+        this.pathMapper = pathMapper;
     }
 
     /**
      * Crée et applique un {@link GatewayFilter} pour journaliser les commandes interceptées.
-     * Ce filtre extrait les informations de la requête (chemin, méthode et corps mis en cache) et les enregistre
-     * avant de passer la requête à la chaîne de filtres suivante.
+     * Une fois la réponse écrite, ce filtre extrait les informations de la requête (chemin, méthode et corps mis en
+     * cache) et de la réponse (statut et durée), puis les publie dans le journal des commandes. Il s'exécute avant
+     * {@link BodyCaptureFilter} afin que le corps capturé soit disponible.
      *
      * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
      * @return un {@link GatewayFilter} qui gère la journalisation des commandes
      */
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
-            ServerHttpRequest request = exchange.getRequest();
-            String cachedBody = exchange.getAttribute("cachedRequestBody");
-            log.info("Commande interceptée : Chemin={}, Méthode={}, Corps={}",
-                    request.getPath().value(),
-                    request.getMethod().toString(),
-                    cachedBody != null ? cachedBody : "Pas de corps");
-            return chain.filter(exchange);
-        };
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            long startNanos = System.nanoTime();
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                ServerHttpRequest request = exchange.getRequest();
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                String path = request.getPath().value();
+                String cachedBody = exchange.getAttribute("cachedRequestBody");
+                String sessionId = pathMapper.getSessionId(path);
+                SessionContext createdSession = exchange.getAttribute(InitSessionFilter.SESSION_CONTEXT_ATTR);
+                if (sessionId == null && createdSession != null) {
+                    sessionId = createdSession.getSessionId();
+                }
+                CommandRecord commandRecord = new CommandRecord()
+                        .setTimestamp(System.currentTimeMillis())
+                        .setDurationNanos(System.nanoTime() - startNanos)
+                        .setStatus(status != null ? status.value() : 0)
+                        .setSessionId(sessionId)
+                        .setMethod(request.getMethod().name())
+                        .setPath(path)
+                        .setBody(cachedBody);
+                commandJournal.record(commandRecord);
+                if (log.isTraceEnabled()) {
+                    log.trace("Commande interceptée : Chemin={}, Méthode={}, Corps={}",
+                            path, commandRecord.getMethod(), cachedBody != null ? cachedBody : "Pas de corps");
+                }
+            }));
+        }, BodyCaptureFilter.BODY_CAPTURE_FILTER_ORDER - 1);
     }
 
     /**
@@ -0,0 +1,73 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import com.example.webdriverproxy.service.CommandMetricsService;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Un filtre global Spring Cloud Gateway qui mesure chaque commande relayée par le proxy et publie ses durées
+ * dans {@link CommandMetricsService}. Il s'exécute en tête de chaîne, de sorte que la durée totale couvre tous les
+ * filtres du proxy ainsi que l'écriture de la réponse ; le temps de premier octet du nœud est mesuré en fin de
+ * chaîne par {@link UpstreamTimingFilter}. Les connexions WebSocket relayées par {@link WebSocketRelayFilter}, qui
+ * durent autant que leur session, ne sont pas mesurées comme des commandes.
+ */
+@Component
+public class CommandMetricsFilter implements GlobalFilter, Ordered {
+
+    /** L'attribut d'échange contenant le {@link CommandTiming} de la commande. */
+    public static final String COMMAND_TIMING_ATTR = "proxyCommandTiming";
+
+    private static final String WEBSOCKET = "websocket";
+
+    private final CommandMetricsService commandMetricsService;
+
+    /**
+     * Construit une instance de {@code CommandMetricsFilter}.
+     *
+     * @param commandMetricsService le service qui publie les métriques des commandes
+     */
+    public CommandMetricsFilter(CommandMetricsService commandMetricsService) {
+        this.commandMetricsService = commandMetricsService;
+    }
+
+    /**
+     * Mesure la commande de bout en bout, puis enregistre ses durées étiquetées par modèle de commande, nœud de
+     * routage et issue. Une commande interrompue par le client est enregistrée avec une issue inconnue.
+     *
+     * @param exchange l'échange en cours
+     * @param chain    la suite de la chaîne de filtres
+     * @return un {@link Mono} qui se termine après l'écriture de la réponse
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (WEBSOCKET.equalsIgnoreCase(exchange.getRequest().getHeaders().getUpgrade())) {
+            return chain.filter(exchange);
+        }
+        CommandTiming timing = new CommandTiming();
+        timing.setStartNanos(System.nanoTime());
+        exchange.getAttributes().put(COMMAND_TIMING_ATTR, timing);
+        return chain.filter(exchange).doFinally(signal -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            commandMetricsService.recordCommand(
+                    WebDriverCommand.of(request.getMethod(), request.getPath().value()),
+                    exchange.getAttribute(SessionRoutingFilter.ROUTED_NODE_ATTR),
+                    status != null ? status.value() : 0,
+                    timing,
+                    System.nanoTime());
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+}
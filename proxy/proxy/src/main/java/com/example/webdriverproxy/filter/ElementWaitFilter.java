@@ -0,0 +1,128 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.NodeResponse;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import com.example.webdriverproxy.service.ElementWaitService;
+import com.example.webdriverproxy.service.SessionContextService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre Spring Cloud Gateway qui prend en charge l'attente des éléments pour les clients qui la demandent.
+ * Une recherche d'élément est alors renouvelée par {@link ElementWaitService} directement auprès du nœud de la session
+ * tant que l'élément est introuvable, et seule la réponse finale est renvoyée au client, au lieu d'un aller-retour
+ * client-proxy-nœud par tentative.
+ * <p>
+ * L'attente est activée par l'en-tête {@value #ELEMENT_WAIT_HEADER} (en millisecondes) ou, pour toute la session,
+ * par la capacité {@code proxy:elementWait} de la demande de création. Sans l'un ou l'autre, la commande est relayée
+ * normalement.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class ElementWaitFilter extends AbstractGatewayFilterFactory<ElementWaitFilter.Config> {
+
+    /** L'en-tête de requête indiquant le délai d'attente de l'élément, en millisecondes. */
+    public static final String ELEMENT_WAIT_HEADER = "X-Proxy-Element-Wait";
+
+    private final ElementWaitService elementWaitService;
+    private final SessionContextService sessionContextService;
+    private final PathMapper pathMapper;
+
+    /**
+     * Construit une instance de {@code ElementWaitFilter} avec les dépendances requises.
+     *
+     * @param elementWaitService    le service qui renouvelle les recherches d'élément
+     * @param sessionContextService le service qui conserve le nœud de chaque session
+     * @param pathMapper            le service d'analyse des chemins de commande
+     */
+    public ElementWaitFilter(ElementWaitService elementWaitService, SessionContextService sessionContextService,
+                             PathMapper pathMapper) {
+        super(Config.class);
+        this.elementWaitService = elementWaitService;
+        this.sessionContextService = sessionContextService;
+        this.pathMapper = pathMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui exécute les recherches d'élément avec attente.
+     * Le filtre s'exécute après {@link SessionRoutingFilter}, si bien que les autres commandes et les sessions
+     * inconnues du proxy suivent le routage habituel.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui répond directement aux recherches d'élément avec attente
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String path = request.getPath().value();
+            WebDriverCommand command = WebDriverCommand.of(request.getMethod(), path);
+            if (!ElementWaitService.FIND_COMMANDS.contains(command)) {
+                return chain.filter(exchange);
+            }
+            String sessionId = pathMapper.getSessionId(path);
+            SessionContext cached = sessionId != null ? sessionContextService.findSessionContext(sessionId) : null;
+            SessionContext sessionContext = cached != null ? cached : exchange.getAttribute(SessionIdFilter.TAGGED_SESSION_ATTR);
+            if (sessionContext == null || sessionContext.getUrl() == null) {
+                return chain.filter(exchange);
+            }
+            long waitMillis = elementWaitService.getWaitMillis(getRequestedWaitMillis(request, sessionContext));
+            if (waitMillis == 0) {
+                return chain.filter(exchange);
+            }
+            CommandTiming timing = exchange.getAttribute(CommandMetricsFilter.COMMAND_TIMING_ATTR);
+            String commandPath = pathMapper.getCommandPath(path);
+            return DataBufferUtils.join(request.getBody())
+                    .map(buffer -> {
+                        String body = buffer.toString(StandardCharsets.UTF_8);
+                        DataBufferUtils.release(buffer);
+                        return body;
+                    })
+                    .defaultIfEmpty("")
+                    .flatMap(body -> elementWaitService.find(sessionContext, command, commandPath, body, waitMillis, timing))
+                    .flatMap(result -> write(exchange.getResponse(), result));
+        }, RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 2);
+    }
+
+    private long getRequestedWaitMillis(ServerHttpRequest request, SessionContext sessionContext) {
+        String header = request.getHeaders().getFirst(ELEMENT_WAIT_HEADER);
+        if (header == null) {
+            return sessionContext.getElementWaitMillis();
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            log.warn("[Proxy] En-tête {} invalide : {}", ELEMENT_WAIT_HEADER, header);
+            return 0;
+        }
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, NodeResponse result) {
+        byte[] bytes = result.getBody().getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatusCode.valueOf(result.getStatus()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    /**
+     * Classe de configuration pour {@code ElementWaitFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -1,10 +1,13 @@
 package com.example.webdriverproxy.filter;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import com.example.webdriverproxy.service.ErrorAnalyticsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
@@ -16,12 +19,15 @@ import java.util.List;
  * Un filtre Spring Cloud Gateway qui détecte et journalise les erreurs dans les réponses des requêtes proxy.
  * Ce filtre analyse les réponses pour identifier les codes d'état d'erreur, puis vérifie si elles contiennent des types
  * d'erreurs spécifiques prédéfinis tels que "no such element", "stale element reference" ou "timeout".
+ * Chaque erreur est comptée par {@link ErrorAnalyticsService}, qui en tient la synthèse dans une mémoire fixe ; le
+ * détail de chaque erreur n'est journalisé qu'au niveau DEBUG.
  */
 @Slf4j(topic = "proxy")
 @Component
 public class ErrorDetectionFilter extends AbstractGatewayFilterFactory<ErrorDetectionFilter.Config> {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonMapper jsonMapper;
+    private final ErrorAnalyticsService errorAnalyticsService;
     private final List<String> detectableErrors = Arrays.asList(
             "no such element",
             "stale element reference",
@@ -31,49 +37,57 @@ public class ErrorDetectionFilter extends AbstractGatewayFilterFactory<ErrorDete
     /**
      * Construit une instance de {@code ErrorDetectionFilter}.
      * Initialise le filtre avec la classe de configuration spécifiée.
+     *
+     * @param jsonMapper            le service de mappage JSON utilisé pour lire le type d'erreur
+     * @param errorAnalyticsService le service qui agrège les erreurs
      */
-    public ErrorDetectionFilter() {
+    public ErrorDetectionFilter(JsonMapper jsonMapper, ErrorAnalyticsService errorAnalyticsService) {
         super(Config.class);
+        this.jsonMapper = jsonMapper;
+        this.errorAnalyticsService = errorAnalyticsService;
     }
 
     /**
      * Crée et applique un {@link GatewayFilter} pour détecter les erreurs dans les réponses.
      * Ce filtre vérifie le code d'état de la réponse après l'exécution de la chaîne de filtres. En cas d'erreur,
-     * il analyse le corps de la réponse pour identifier les types d'erreurs spécifiques et les journalise.
+     * il analyse le corps de la réponse pour identifier les types d'erreurs spécifiques, les compte et les journalise.
+     * Le filtre s'exécute avant {@link BodyCaptureFilter} afin de lire les corps une fois la réponse entièrement écrite.
      *
      * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
      * @return un {@link GatewayFilter} qui gère la détection des erreurs
      */
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
             return chain.filter(exchange).then(Mono.fromRunnable(() -> {
                 ServerHttpResponse response = exchange.getResponse();
                 if (response.getStatusCode() != null && response.getStatusCode().isError()) {
+                    ServerHttpRequest request = exchange.getRequest();
                     String responseBody = exchange.getAttribute("cachedResponseBody");
                     String requestBody = exchange.getAttribute("cachedRequestBody");
-                    log.error("Erreur détectée : Statut={}, Corps de la requête={}, Corps de la réponse={}",
+                    log.debug("Erreur détectée : Statut={}, Corps de la requête={}, Corps de la réponse={}",
                             response.getStatusCode().value(), requestBody, responseBody);
-                    if (responseBody != null && requestBody != null) {
+                    String errorType = null;
+                    if (responseBody != null) {
                         try {
-                            JsonNode jsonNode = objectMapper.readTree(responseBody);
-                            JsonNode errorNode = jsonNode.path("value").path("error");
-                            if (!errorNode.isMissingNode()) {
-                                String errorType = errorNode.asText();
+                            errorType = jsonMapper.getError(responseBody);
+                            if (errorType != null) {
                                 if (detectableErrors.contains(errorType)) {
-                                    log.error("Erreur spécifique détectée : Type={}, Localisateur dans la requête={}",
+                                    log.debug("Erreur spécifique détectée : Type={}, Localisateur dans la requête={}",
                                             errorType, requestBody);
                                 } else {
-                                    log.error("Type d'erreur inconnu : {}", errorType);
+                                    log.debug("Type d'erreur inconnu : {}", errorType);
                                 }
                             }
                         } catch (Exception e) {
-                            log.error("Échec de l'analyse du corps de la réponse : {}", e.getMessage());
+                            log.debug("Échec de l'analyse du corps de la réponse : {}", e.getMessage());
                         }
                     }
+                    errorAnalyticsService.record(WebDriverCommand.of(request.getMethod(), request.getPath().value()),
+                            errorType != null ? errorType : "http " + response.getStatusCode().value(), requestBody);
                 }
             }));
-        };
+        }, BodyCaptureFilter.BODY_CAPTURE_FILTER_ORDER - 1);
     }
 
     /**
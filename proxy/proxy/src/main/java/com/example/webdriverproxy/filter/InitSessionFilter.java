@@ -1,68 +1,179 @@
 package com.example.webdriverproxy.filter;
 
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
 import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.GridNodeService;
 import com.example.webdriverproxy.service.SessionContextService;
+import com.example.webdriverproxy.service.SessionIdService;
+import com.example.webdriverproxy.service.SessionReaperService;
+import com.example.webdriverproxy.service.WebSocketRelayService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Un filtre Spring Cloud Gateway responsable de l'initialisation des contextes de session pour les requêtes proxy Selenium WebDriver.
- * Ce filtre intercepte les requêtes de création de session, initialise un {@link SessionContext} à partir du corps de la requête fourni,
- * et modifie le corps de la réponse si nécessaire. Il est conçu pour s'exécuter avec la plus haute priorité parmi les filtres.
+ * Ce filtre intercepte les requêtes de création de session, choisit le nœud Selenium qui hébergera la session,
+ * initialise un {@link SessionContext} à partir du corps de la requête fourni et modifie le corps de la réponse si nécessaire.
+ * Il est conçu pour s'exécuter avec la plus haute priorité parmi les filtres.
  */
 @Component
 @Slf4j(topic = "proxy")
 public class InitSessionFilter extends AbstractGatewayFilterFactory<InitSessionFilter.Config> implements Ordered {
 
+    /** L'attribut d'échange contenant le {@link SessionContext} en cours de création. */
+    public static final String SESSION_CONTEXT_ATTR = "proxySessionContext";
+
+    private static final String NODE_ATTR = "proxyReservedNode";
+    private static final String CREATE_START_ATTR = "proxyCreateStart";
+    private static final String SETTLED_ATTR = "proxyCreateSettled";
+
+    private final ModifyRequestBodyGatewayFilterFactory modifyRequestBodyFilterFactory;
     private final ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilterFactory;
+    private final CacheRequestBodyRewrite cacheRequestBodyRewrite;
     private final SessionContextService sessionContextService;
+    private final GridNodeService gridNodeService;
+    private final SessionReaperService sessionReaperService;
+    private final SessionIdService sessionIdService;
+    private final WebSocketRelayService webSocketRelayService;
+    private final JsonMapper jsonMapper;
 
     /**
      * Construit une instance de {@code InitSessionFilter} avec les dépendances requises.
      *
+     * @param modifyRequestBodyFilterFactory  la fabrique utilisée pour mettre en cache le corps de requête
      * @param modifyResponseBodyFilterFactory la fabrique utilisée pour modifier les corps de réponse
+     * @param cacheRequestBodyRewrite         la fonction qui met en cache le corps de la requête
      * @param sessionContextService           le service responsable de la gestion du contexte de session
+     * @param gridNodeService                 le service qui suit la charge des nœuds Selenium
+     * @param sessionReaperService            le service qui supprime les sessions abandonnées par leur client
+     * @param sessionIdService                le service qui marque les identifiants de session de leur nœud
+     * @param webSocketRelayService           le service qui fait passer par le proxy les connexions WebSocket
+     * @param jsonMapper                      le service de mappage JSON utilisé pour les réponses d'erreur
      */
-    public InitSessionFilter(ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilterFactory, SessionContextService sessionContextService) {
+    public InitSessionFilter(ModifyRequestBodyGatewayFilterFactory modifyRequestBodyFilterFactory,
+                             ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilterFactory,
+                             CacheRequestBodyRewrite cacheRequestBodyRewrite,
+                             SessionContextService sessionContextService,
+                             GridNodeService gridNodeService,
+                             SessionReaperService sessionReaperService,
+                             SessionIdService sessionIdService,
+                             WebSocketRelayService webSocketRelayService,
+                             JsonMapper jsonMapper) {
         super(Config.class);
+        this.modifyRequestBodyFilterFactory = modifyRequestBodyFilterFactory;
         this.modifyResponseBodyFilterFactory = modifyResponseBodyFilterFactory;
+        this.cacheRequestBodyRewrite = cacheRequestBodyRewrite;
         this.sessionContextService = sessionContextService;
+        this.gridNodeService = gridNodeService;
+        this.sessionReaperService = sessionReaperService;
+        this.sessionIdService = sessionIdService;
+        this.webSocketRelayService = webSocketRelayService;
+        this.jsonMapper = jsonMapper;
     }
 
     /**
      * Crée et applique un {@link GatewayFilter} pour traiter l'initialisation de la session.
-     * Cette méthode récupère le corps de la requête mis en cache, initialise le contexte de session, le soumet au service,
-     * et renvoie le corps de réponse original. En cas d'erreur, elle définit un statut HTTP 500 et renvoie un message d'erreur.
+     * Avant le transfert, le filtre réserve le nœud Selenium le moins chargé et place le contexte de session dans les
+     * attributs de l'échange afin que {@link SessionRoutingFilter} y envoie la requête. À la réception de la réponse,
+     * il rattache le corps de la requête mis en cache, soumet le contexte au service et renvoie le corps de réponse
+     * original, dont l'identifiant de session est marqué de son nœud si {@link SessionIdService} est activé et dont les
+     * URL WebSocket du nœud sont remplacées par celles du proxy par {@link WebSocketRelayService}.
+     * Une réponse d'erreur du Grid est relayée telle quelle, avec son statut ; toute autre erreur donne un statut HTTP
+     * 500 et une erreur W3C {@code session not created}.
+     * <p>
+     * Si le client se déconnecte pendant la création, la requête vers le Grid n'est pas interrompue : le Grid créerait
+     * la session malgré tout sans que personne ne la supprime. La création se poursuit donc jusqu'à la réponse du nœud,
+     * puis la session obtenue est aussitôt supprimée par {@link SessionReaperService}.
      *
      * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
      * @return un {@link GatewayFilter} qui gère la logique d'initialisation de session
      */
     @Override
     public GatewayFilter apply(Config config) {
+        final ModifyRequestBodyGatewayFilterFactory.Config requestConfig = new ModifyRequestBodyGatewayFilterFactory.Config();
+        requestConfig.setRewriteFunction(String.class, String.class, cacheRequestBodyRewrite);
+        final GatewayFilter requestFilter = modifyRequestBodyFilterFactory.apply(requestConfig);
+
         final ModifyResponseBodyGatewayFilterFactory.Config modifyConfig = new ModifyResponseBodyGatewayFilterFactory.Config();
         modifyConfig.setRewriteFunction(String.class, String.class, (swe, responseBody) -> {
             String requestBody = swe.getAttribute("cachedRequestBody");
             log.info("Requête /wd/hub/session reçue avec le corps : {}", requestBody);
+            HttpStatusCode status = swe.getResponse().getStatusCode();
+            if (status != null && status.isError()) {
+                // Le Grid a refusé la création : sa réponse est relayée telle quelle et la réservation libérée en fin d'échange
+                log.warn("[Proxy] Création de session refusée par le Grid ({}) : {}", status.value(), responseBody);
+                return Mono.justOrEmpty(responseBody);
+            }
             try {
-                SessionContext sessionContext = sessionContextService.initSessionContext(requestBody);
+                SessionContext sessionContext = swe.getRequiredAttribute(SESSION_CONTEXT_ATTR);
+                sessionContext.setCreateSessionReqBody(requestBody);
                 log.info("Contexte de session initialisé : {}", sessionContext);
                 sessionContextService.submitSessionContext(responseBody, sessionContext);
+                long startNanos = swe.getRequiredAttribute(CREATE_START_ATTR);
+                GridNode node = swe.getRequiredAttribute(NODE_ATTR);
+                gridNodeService.commitSession(node, System.nanoTime() - startNanos);
+                swe.getAttributes().remove(NODE_ATTR);
                 log.info("Contexte de session soumis");
-                return Mono.just(responseBody); // Renvoie la réponse originale de Selenium Grid
+                // Le client s'est déconnecté pendant la création : la session n'a plus de propriétaire
+                AtomicBoolean settled = swe.getRequiredAttribute(SETTLED_ATTR);
+                if (!settled.compareAndSet(false, true)) {
+                    sessionReaperService.reap(sessionContext, SessionReaperService.ABANDONED);
+                }
+                // Renvoie la réponse de Selenium Grid, avec l'identifiant de session marqué de son nœud si activé
+                String clientResponse = sessionIdService.tagResponse(responseBody, sessionContext, node);
+                return Mono.just(webSocketRelayService.rewriteResponse(clientResponse, sessionContext.getSessionId(),
+                        swe.getRequest().getURI()));
             } catch (Exception e) {
                 log.error("Erreur dans InitSessionFilter : ", e);
                 swe.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-                return Mono.just("{\"value\": {\"error\": \"session non créée\", \"message\": \"" + e.getMessage() + "\", \"stacktrace\": \"\"}}");
+                return Mono.just(jsonMapper.toErrorResponse("session not created", "[Proxy] Session non créée : " + e.getMessage()));
             }
         });
-        return modifyResponseBodyFilterFactory.apply(modifyConfig);
+        final GatewayFilter responseFilter = modifyResponseBodyFilterFactory.apply(modifyConfig);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            // Un nœud déjà réservé par SessionAdmissionFilter est repris, avec la charge de libérer sa réservation
+            GridNode admittedNode = (GridNode) exchange.getAttributes().remove(SessionAdmissionFilter.ADMITTED_NODE_ATTR);
+            SessionContext sessionContext = admittedNode != null
+                    ? sessionContextService.initSessionContext(admittedNode)
+                    : sessionContextService.initSessionContext();
+            exchange.getAttributes().put(SESSION_CONTEXT_ATTR, sessionContext);
+            exchange.getAttributes().put(NODE_ATTR, gridNodeService.getNode(sessionContext.getUrl()));
+            exchange.getAttributes().put(CREATE_START_ATTR, System.nanoTime());
+            // Passe à true à la soumission du contexte ou à la déconnexion du client ; le second des deux supprime la session
+            AtomicBoolean settled = new AtomicBoolean();
+            exchange.getAttributes().put(SETTLED_ATTR, settled);
+            return requestFilter.filter(exchange, requestExchange -> responseFilter.filter(requestExchange, chain))
+                    .doFinally(signal -> {
+                        // La réservation n'a pas été confirmée : la création a échoué
+                        GridNode node = exchange.getAttribute(NODE_ATTR);
+                        if (node != null) {
+                            gridNodeService.releaseSession(node);
+                        }
+                    })
+                    // cache() isole la création de l'annulation du client : elle se poursuit jusqu'à la réponse du Grid
+                    .cache()
+                    .doOnCancel(() -> {
+                        log.warn("[Proxy] Client déconnecté pendant la création de la session sur {}", sessionContext.getUrl());
+                        // La session a pu être soumise juste avant la déconnexion
+                        if (!settled.compareAndSet(false, true)) {
+                            sessionReaperService.reap(sessionContext, SessionReaperService.ABANDONED);
+                        }
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
     }
 
     /**
@@ -0,0 +1,63 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre global Spring Cloud Gateway qui fait échouer immédiatement les commandes routées vers un nœud hors service.
+ * Lorsque le disjoncteur du nœud choisi par {@link SessionRoutingFilter} est ouvert, la commande n'est pas transmise :
+ * le client reçoit aussitôt une réponse {@code 503} au lieu d'attendre l'expiration d'une connexion vers le nœud.
+ */
+@Component
+public class NodeCircuitFilter implements GlobalFilter, Ordered {
+
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code NodeCircuitFilter}.
+     *
+     * @param jsonMapper le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public NodeCircuitFilter(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Refuse la commande si son nœud est hors service, ou la laisse poursuivre vers le nœud.
+     *
+     * @param exchange l'échange en cours
+     * @param chain    la suite de la chaîne de filtres
+     * @return un {@link Mono} qui se termine une fois la commande relayée ou refusée
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        GridNode node = exchange.getAttribute(SessionRoutingFilter.ROUTED_NODE_ATTR);
+        if (node == null || !node.isCircuitOpen()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        byte[] body = jsonMapper.toErrorResponse("unknown error", "[Proxy] Nœud Selenium hors service : " + node.getName())
+                .getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 2;
+    }
+}
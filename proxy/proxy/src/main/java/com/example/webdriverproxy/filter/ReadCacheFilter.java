@@ -0,0 +1,129 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.SessionReadCache;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import com.example.webdriverproxy.service.ReadCacheService;
+import com.example.webdriverproxy.service.SessionContextService;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Un filtre Spring Cloud Gateway qui sert les lectures répétées d'une session depuis son cache des lectures, géré par
+ * {@link ReadCacheService}, pour les sessions qui l'ont demandé par la capacité {@code proxy:readCache}.
+ * Une lecture absente du cache est relayée au nœud et sa réponse réussie y est conservée au passage ; une commande qui
+ * modifie l'état de la session vide le cache avant son envoi et après sa réponse. Les réponses servies par le cache
+ * portent l'en-tête {@value #READ_CACHE_HEADER}.
+ */
+@Component
+public class ReadCacheFilter extends AbstractGatewayFilterFactory<ReadCacheFilter.Config> {
+
+    /** L'en-tête de réponse signalant une lecture servie par le cache de la session. */
+    public static final String READ_CACHE_HEADER = "X-Proxy-Read-Cache";
+
+    private final ReadCacheService readCacheService;
+    private final SessionContextService sessionContextService;
+    private final PathMapper pathMapper;
+
+    /**
+     * Construit une instance de {@code ReadCacheFilter} avec les dépendances requises.
+     *
+     * @param readCacheService      le service qui gère le cache des lectures des sessions
+     * @param sessionContextService le service qui conserve le contexte de chaque session
+     * @param pathMapper            le service d'analyse des chemins de commande
+     */
+    public ReadCacheFilter(ReadCacheService readCacheService, SessionContextService sessionContextService,
+                           PathMapper pathMapper) {
+        super(Config.class);
+        this.readCacheService = readCacheService;
+        this.sessionContextService = sessionContextService;
+        this.pathMapper = pathMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui sert, conserve ou invalide les lectures de la session.
+     * Comme {@link BodyCaptureFilter}, le filtre s'exécute avant {@link NettyWriteResponseFilter}, afin que la réponse
+     * décorée soit celle écrite ; une lecture servie par le cache ne passe donc ni par le routage ni par le nœud.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui gère le cache des lectures
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String path = request.getPath().value();
+            String sessionId = pathMapper.getSessionId(path);
+            SessionContext sessionContext = sessionId != null ? sessionContextService.findSessionContext(sessionId) : null;
+            SessionReadCache readCache = sessionContext != null ? readCacheService.getCache(sessionContext) : null;
+            if (readCache == null) {
+                return chain.filter(exchange);
+            }
+            WebDriverCommand command = WebDriverCommand.of(request.getMethod(), path);
+            if (readCacheService.invalidates(request.getMethod(), command)) {
+                readCache.invalidate();
+                return chain.filter(exchange).doFinally(signal -> readCache.invalidate());
+            }
+            if (!readCacheService.isCacheable(command)) {
+                return chain.filter(exchange);
+            }
+            String commandPath = pathMapper.getCommandPath(path);
+            SessionReadCache.CachedRead cached = readCache.get(commandPath, System.nanoTime());
+            if (cached != null) {
+                readCacheService.recordHit();
+                return write(exchange.getResponse(), cached);
+            }
+            readCacheService.recordMiss();
+            long generation = readCache.getGeneration();
+            long ttlNanos = readCacheService.getTtlNanos(sessionContext);
+            ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()) {
+                        return super.writeWith(body);
+                    }
+                    // Les lectures mises en cache sont de courtes réponses JSON : le corps est rassemblé puis recopié
+                    return DataBufferUtils.join(Flux.from(body)).flatMap(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+                        readCache.put(commandPath, generation,
+                                new SessionReadCache.CachedRead(HttpStatus.OK.value(), bytes, System.nanoTime() + ttlNanos));
+                        return super.writeWith(Mono.just(buffer));
+                    });
+                }
+            };
+            return chain.filter(exchange.mutate().response(response).build());
+        }, BodyCaptureFilter.BODY_CAPTURE_FILTER_ORDER - 2);
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, SessionReadCache.CachedRead cached) {
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(cached.body().length);
+        response.getHeaders().set(READ_CACHE_HEADER, "hit");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * Classe de configuration pour {@code ReadCacheFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -0,0 +1,87 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.service.ScreenshotStoreService;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Un filtre Spring Cloud Gateway qui sert les captures d'écran conservées par {@link ScreenshotStoreService},
+ * sur {@code GET /wd/hub/proxy/screenshots/{id}}. Le contenu PNG est transmis depuis sa projection en mémoire, sans
+ * copie dans le tas Java. Une capture étant identifiée par son contenu, la réponse porte un {@code ETag} et une
+ * requête {@code If-None-Match} correspondante reçoit {@code 304}.
+ */
+@Component
+public class ScreenshotDownloadFilter extends AbstractGatewayFilterFactory<ScreenshotDownloadFilter.Config> {
+
+    private final ScreenshotStoreService screenshotStoreService;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code ScreenshotDownloadFilter}.
+     *
+     * @param screenshotStoreService le magasin des captures d'écran
+     * @param jsonMapper             le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public ScreenshotDownloadFilter(ScreenshotStoreService screenshotStoreService, JsonMapper jsonMapper) {
+        super(Config.class);
+        this.screenshotStoreService = screenshotStoreService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui répond avec la capture demandée.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui répond sans poursuivre la chaîne de filtres
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpResponse response = exchange.getResponse();
+            String path = exchange.getRequest().getPath().value();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            String etag = "\"" + id + "\"";
+            if (exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(etag);
+                return response.setComplete();
+            }
+            // La projection d'un fichier non encore ouvert est une entrée/sortie bloquante
+            return Mono.fromCallable(() -> Optional.ofNullable(screenshotStoreService.open(id)))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(screenshot -> screenshot.isPresent()
+                            ? write(response, HttpStatus.OK, MediaType.IMAGE_PNG, etag, screenshot.get())
+                            : write(response, HttpStatus.NOT_FOUND, MediaType.APPLICATION_JSON, null, ByteBuffer.wrap(
+                                    jsonMapper.toErrorResponse("unknown error", "[Proxy] Capture d'écran inconnue : " + id)
+                                            .getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, HttpStatus status, MediaType contentType, String etag,
+                             ByteBuffer body) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(contentType);
+        response.getHeaders().setContentLength(body.remaining());
+        if (etag != null) {
+            response.getHeaders().setETag(etag);
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Classe de configuration pour {@code ScreenshotDownloadFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
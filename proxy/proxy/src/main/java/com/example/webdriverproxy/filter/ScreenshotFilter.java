@@ -0,0 +1,146 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.StoredScreenshot;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import com.example.webdriverproxy.service.ScreenshotStoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un filtre Spring Cloud Gateway qui remplace, à la demande du client, l'image base64 des réponses de capture d'écran
+ * par une livraison plus compacte. L'image est décodée dans {@link ScreenshotStoreService}, puis renvoyée selon
+ * l'en-tête {@value #SCREENSHOT_HEADER} de la requête :
+ * <ul>
+ *     <li>{@code binary} : le contenu PNG brut, de type {@code image/png} ;</li>
+ *     <li>{@code reference} : une référence {@code {"value": {"id": ..., "size": ..., "url": ...}}}, dont l'image se
+ *     télécharge ensuite avec {@link ScreenshotDownloadFilter}.</li>
+ * </ul>
+ * Sans cet en-tête, ou si le magasin de captures est désactivé, la réponse est relayée telle quelle. L'identifiant de
+ * la capture est exposé dans l'en-tête de réponse {@value #SCREENSHOT_ID_HEADER}.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class ScreenshotFilter extends AbstractGatewayFilterFactory<ScreenshotFilter.Config> {
+
+    /** L'en-tête de requête choisissant la livraison de la capture : {@code binary} ou {@code reference}. */
+    public static final String SCREENSHOT_HEADER = "X-Proxy-Screenshot";
+
+    /** L'en-tête de réponse contenant l'identifiant de la capture conservée. */
+    public static final String SCREENSHOT_ID_HEADER = "X-Proxy-Screenshot-Id";
+
+    /** Le chemin de téléchargement des captures conservées, suivi de leur identifiant. */
+    public static final String DOWNLOAD_PATH = "/wd/hub/proxy/screenshots/";
+
+    private static final String BINARY = "binary";
+    private static final String REFERENCE = "reference";
+
+    private final ScreenshotStoreService screenshotStoreService;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code ScreenshotFilter}.
+     *
+     * @param screenshotStoreService le magasin dans lequel les captures sont décodées et conservées
+     * @param jsonMapper             le service de mappage JSON utilisé pour les références
+     */
+    public ScreenshotFilter(ScreenshotStoreService screenshotStoreService, JsonMapper jsonMapper) {
+        super(Config.class);
+        this.screenshotStoreService = screenshotStoreService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui décore la réponse des commandes de capture d'écran.
+     * Le filtre s'exécute dans le même ordre que {@link BodyCaptureFilter} : les réponses en erreur, seules capturées
+     * par ce dernier, ne sont jamais transformées.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui gère la livraison des captures d'écran
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String delivery = request.getHeaders().getFirst(SCREENSHOT_HEADER);
+            if (!screenshotStoreService.isEnabled() || (!BINARY.equalsIgnoreCase(delivery) && !REFERENCE.equalsIgnoreCase(delivery))) {
+                return chain.filter(exchange);
+            }
+            WebDriverCommand command = WebDriverCommand.of(request.getMethod(), request.getPath().value());
+            if (command != WebDriverCommand.TAKE_SCREENSHOT && command != WebDriverCommand.TAKE_ELEMENT_SCREENSHOT) {
+                return chain.filter(exchange);
+            }
+            boolean binary = BINARY.equalsIgnoreCase(delivery);
+            ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    if (getStatusCode() != HttpStatus.OK) {
+                        return super.writeWith(body);
+                    }
+                    return DataBufferUtils.join(body).flatMap(buffer -> deliver(getDelegate(), buffer, binary));
+                }
+            };
+            return chain.filter(exchange.mutate().response(response).build());
+        }, BodyCaptureFilter.BODY_CAPTURE_FILTER_ORDER);
+    }
+
+    private Mono<Void> deliver(ServerHttpResponse response, DataBuffer buffer, boolean binary) {
+        int readPosition = buffer.readPosition();
+        return Mono.fromCallable(() -> screenshotStoreService.store(buffer.asInputStream()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("[Proxy] Capture d'écran relayée en base64, échec de sa conservation : {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .map(screenshot -> {
+                    DataBufferUtils.release(buffer);
+                    HttpHeaders headers = response.getHeaders();
+                    headers.set(SCREENSHOT_ID_HEADER, screenshot.getId());
+                    headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                    if (binary) {
+                        headers.setContentType(MediaType.IMAGE_PNG);
+                        headers.setETag("\"" + screenshot.getId() + "\"");
+                        headers.setContentLength(screenshot.getSize());
+                        return response.bufferFactory().wrap(screenshotStoreService.open(screenshot.getId()));
+                    }
+                    byte[] reference = toReference(screenshot).getBytes(StandardCharsets.UTF_8);
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    headers.setContentLength(reference.length);
+                    return response.bufferFactory().wrap(reference);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> buffer.readPosition(readPosition)))
+                .flatMap(content -> response.writeWith(Mono.just(content)));
+    }
+
+    private String toReference(StoredScreenshot screenshot) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("id", screenshot.getId());
+        value.put("size", screenshot.getSize());
+        value.put("url", DOWNLOAD_PATH + screenshot.getId());
+        return jsonMapper.toJson(Map.of("value", value));
+    }
+
+    /**
+     * Classe de configuration pour {@code ScreenshotFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
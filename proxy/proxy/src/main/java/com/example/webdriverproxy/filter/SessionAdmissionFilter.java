@@ -0,0 +1,155 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.SessionAdmissionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Un filtre Spring Cloud Gateway qui soumet les créations de session au contrôle d'admission de
+ * {@link SessionAdmissionService}. La classe de priorité de la demande est lue dans l'en-tête
+ * {@value #PRIORITY_HEADER} ou, à défaut, dans la capacité {@code proxy:priority}. Une demande admise poursuit son chemin
+ * vers {@link InitSessionFilter} avec le nœud qui lui a été réservé ; une demande refusée reçoit aussitôt une réponse
+ * {@code 503} avec un en-tête {@code Retry-After}. Lorsque le contrôle d'admission est désactivé, le filtre laisse
+ * passer la demande sans lire son corps.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class SessionAdmissionFilter extends AbstractGatewayFilterFactory<SessionAdmissionFilter.Config> {
+
+    /** L'en-tête de requête indiquant la classe de priorité de la création de session. */
+    public static final String PRIORITY_HEADER = "X-Proxy-Priority";
+
+    /** L'attribut d'échange contenant le {@link GridNode} réservé à la demande admise. */
+    public static final String ADMITTED_NODE_ATTR = "proxyAdmittedNode";
+
+    private final SessionAdmissionService sessionAdmissionService;
+    private final GridNodeService gridNodeService;
+    private final JsonMapper jsonMapper;
+    private final String retryAfterSeconds;
+
+    /**
+     * Construit une instance de {@code SessionAdmissionFilter} avec les dépendances requises.
+     *
+     * @param sessionAdmissionService le service de contrôle d'admission
+     * @param gridNodeService         le service qui gère les nœuds Selenium
+     * @param jsonMapper              le service de mappage JSON utilisé pour lire la priorité et les réponses d'erreur
+     * @param retryAfter              le délai suggéré aux clients refusés avant une nouvelle tentative
+     */
+    public SessionAdmissionFilter(SessionAdmissionService sessionAdmissionService, GridNodeService gridNodeService,
+                                  JsonMapper jsonMapper, @Value("${proxy.admission.retry-after:5s}") Duration retryAfter) {
+        super(Config.class);
+        this.sessionAdmissionService = sessionAdmissionService;
+        this.gridNodeService = gridNodeService;
+        this.jsonMapper = jsonMapper;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui admet ou refuse la demande de création.
+     * Le filtre s'exécute après {@link SessionPoolFilter}, déclaré avant lui sur la route, afin que les sessions
+     * servies depuis le pool ne soient pas retenues, et avant {@link InitSessionFilter}, qui reprend le nœud réservé.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui gère l'admission des créations de session
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!sessionAdmissionService.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            String priorityClass = exchange.getRequest().getHeaders().getFirst(PRIORITY_HEADER);
+            return DataBufferUtils.join(exchange.getRequest().getBody())
+                    .map(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        int priority = sessionAdmissionService.getPriority(
+                                priorityClass != null ? priorityClass : getPriorityCapability(bytes));
+                        return sessionAdmissionService.admit(priority)
+                                .flatMap(node -> forward(exchange, chain, bytes, node).thenReturn(Boolean.TRUE))
+                                .switchIfEmpty(Mono.defer(() -> reject(exchange).thenReturn(Boolean.FALSE)))
+                                .then();
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    private String getPriorityCapability(byte[] bytes) {
+        String requestBody = new String(bytes, StandardCharsets.UTF_8);
+        if (!requestBody.contains(JsonMapper.PRIORITY_CAPABILITY)) {
+            return null;
+        }
+        try {
+            Object priority = jsonMapper.getRequestedCapability(requestBody, JsonMapper.PRIORITY_CAPABILITY);
+            return priority != null ? priority.toString() : null;
+        } catch (RuntimeException e) {
+            // Un corps invalide est transmis tel quel : le Grid renverra l'erreur WebDriver appropriée
+            return null;
+        }
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, byte[] bytes, GridNode node) {
+        exchange.getAttributes().put(ADMITTED_NODE_ATTR, node);
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+            }
+        };
+        return chain.filter(exchange.mutate().request(request).build())
+                .doFinally(signal -> {
+                    // Le nœud n'a pas été repris par InitSessionFilter : la réservation est rendue ici
+                    GridNode unused = (GridNode) exchange.getAttributes().remove(ADMITTED_NODE_ATTR);
+                    if (unused != null) {
+                        gridNodeService.releaseSession(unused);
+                    }
+                });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        log.warn("[Proxy] Création de session refusée par le contrôle d'admission ({} en attente)",
+                sessionAdmissionService.getQueuedCount());
+        ServerHttpResponse response = exchange.getResponse();
+        byte[] body = jsonMapper.toErrorResponse("session not created",
+                "[Proxy] Trop de créations de session en cours, réessayez dans " + retryAfterSeconds + " s")
+                .getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Classe de configuration pour {@code SessionAdmissionFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
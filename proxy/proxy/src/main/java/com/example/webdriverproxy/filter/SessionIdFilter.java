@@ -0,0 +1,102 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.SessionIdService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre global Spring Cloud Gateway qui reconnaît les identifiants de session marqués de leur nœud par
+ * {@link SessionIdService}. Il s'exécute avant tous les autres filtres : l'identifiant marqué est remplacé dans le
+ * chemin de la requête par l'identifiant attribué par le Grid, et le nœud qu'il désigne est placé dans l'attribut
+ * {@link #TAGGED_SESSION_ATTR}, où {@link SessionRoutingFilter} le lit sans consulter le registre des sessions.
+ * Un identifiant marqué mais altéré reçoit aussitôt une erreur {@code invalid session id}.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class SessionIdFilter implements GlobalFilter, Ordered {
+
+    /** L'attribut d'échange contenant le {@link SessionContext} minimal tiré d'un identifiant de session marqué. */
+    public static final String TAGGED_SESSION_ATTR = "proxyTaggedSession";
+
+    private final SessionIdService sessionIdService;
+    private final PathMapper pathMapper;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code SessionIdFilter}.
+     *
+     * @param sessionIdService le service qui marque les identifiants de session
+     * @param pathMapper       le service d'analyse des chemins de commande
+     * @param jsonMapper       le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public SessionIdFilter(SessionIdService sessionIdService, PathMapper pathMapper, JsonMapper jsonMapper) {
+        this.sessionIdService = sessionIdService;
+        this.pathMapper = pathMapper;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Remplace l'identifiant de session marqué du chemin par celui du Grid, ou rejette un identifiant altéré.
+     *
+     * @param exchange l'échange en cours
+     * @param chain    la suite de la chaîne de filtres
+     * @return un {@link Mono} qui se termine après le traitement de la requête
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!sessionIdService.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getPath().value();
+        String clientSessionId = pathMapper.getSessionId(path);
+        if (clientSessionId == null) {
+            return chain.filter(exchange);
+        }
+        SessionContext taggedSession;
+        try {
+            taggedSession = sessionIdService.untag(clientSessionId);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return reject(exchange.getResponse(), e.getMessage());
+        }
+        if (taggedSession == null) {
+            return chain.filter(exchange);
+        }
+        exchange.getAttributes().put(TAGGED_SESSION_ATTR, taggedSession);
+        int idStart = path.indexOf("/session/") + "/session/".length();
+        String sessionPath = path.substring(0, idStart) + taggedSession.getSessionId()
+                + path.substring(idStart + clientSessionId.length());
+        return chain.filter(exchange.mutate().request(request -> request.path(sessionPath)).build());
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, String message) {
+        byte[] body = jsonMapper.toErrorResponse("invalid session id", message).getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.NOT_FOUND);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Définit l'ordre d'exécution de ce filtre, avant tous les autres.
+     *
+     * @return la valeur de priorité, définie à {@link Ordered#HIGHEST_PRECEDENCE}
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
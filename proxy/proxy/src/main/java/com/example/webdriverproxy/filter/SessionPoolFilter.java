@@ -0,0 +1,149 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.PooledSession;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.SessionContextService;
+import com.example.webdriverproxy.service.SessionIdService;
+import com.example.webdriverproxy.service.SessionPoolService;
+import com.example.webdriverproxy.service.WebSocketRelayService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre Spring Cloud Gateway qui sert les créations de session depuis le pool de sessions préparées.
+ * Il lit le corps de la demande, calcule la clé normalisée des capacités demandées et, si {@link SessionPoolService}
+ * dispose d'une session prête pour elles, l'enregistre dans {@link SessionContextService} et renvoie immédiatement sa
+ * réponse de création. Sinon, la demande poursuit son chemin vers {@link InitSessionFilter} avec son corps intact.
+ * Lorsque le pool est désactivé, le filtre laisse passer la demande sans lire son corps.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class SessionPoolFilter extends AbstractGatewayFilterFactory<SessionPoolFilter.Config> {
+
+    private final SessionPoolService sessionPoolService;
+    private final SessionContextService sessionContextService;
+    private final SessionIdService sessionIdService;
+    private final WebSocketRelayService webSocketRelayService;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code SessionPoolFilter} avec les dépendances requises.
+     *
+     * @param sessionPoolService    le service qui maintient les sessions préparées
+     * @param sessionContextService le service dans lequel les sessions servies sont enregistrées
+     * @param sessionIdService      le service qui marque les identifiants de session de leur nœud
+     * @param webSocketRelayService le service qui fait passer par le proxy les connexions WebSocket
+     * @param jsonMapper            le service de mappage JSON utilisé pour normaliser les capacités
+     */
+    public SessionPoolFilter(SessionPoolService sessionPoolService, SessionContextService sessionContextService,
+                             SessionIdService sessionIdService, WebSocketRelayService webSocketRelayService,
+                             JsonMapper jsonMapper) {
+        super(Config.class);
+        this.sessionPoolService = sessionPoolService;
+        this.sessionContextService = sessionContextService;
+        this.sessionIdService = sessionIdService;
+        this.webSocketRelayService = webSocketRelayService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui tente de servir la demande de création depuis le pool.
+     * Le filtre s'exécute avant {@link InitSessionFilter}, afin qu'aucun nœud ne soit réservé pour une demande servie.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui sert les sessions préparées
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!sessionPoolService.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            return DataBufferUtils.join(exchange.getRequest().getBody())
+                    .map(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        String requestBody = new String(bytes, StandardCharsets.UTF_8);
+                        PooledSession session = acquire(requestBody);
+                        if (session != null) {
+                            try {
+                                return serve(exchange, session, requestBody);
+                            } catch (RuntimeException e) {
+                                log.error("[Proxy] Session du pool inutilisable, création transmise au Grid : ", e);
+                                sessionPoolService.discard(session);
+                            }
+                        }
+                        return forward(exchange, chain, bytes);
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    private PooledSession acquire(String requestBody) {
+        try {
+            String capabilitiesKey = jsonMapper.getCapabilitiesKey(requestBody);
+            return capabilitiesKey != null ? sessionPoolService.acquire(capabilitiesKey, requestBody) : null;
+        } catch (RuntimeException e) {
+            // Un corps invalide est transmis tel quel : le Grid renverra l'erreur WebDriver appropriée
+            return null;
+        }
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, PooledSession session, String requestBody) {
+        SessionContext sessionContext = new SessionContext()
+                .setUrl(session.getNode().getUrl())
+                .setCreateSessionReqBody(requestBody);
+        sessionContextService.submitSessionContext(session.getResponseBody(), sessionContext);
+        log.info("[Proxy] Session servie depuis le pool : {} sur {}", sessionContext.getSessionId(), session.getNode().getUrl());
+        exchange.getAttributes().put(InitSessionFilter.SESSION_CONTEXT_ATTR, sessionContext);
+        exchange.getAttributes().put(SessionRoutingFilter.ROUTED_NODE_ATTR, session.getNode());
+        exchange.getAttributes().put("cachedRequestBody", requestBody);
+
+        ServerHttpResponse response = exchange.getResponse();
+        String clientResponse = sessionIdService.tagResponse(session.getResponseBody(), sessionContext, session.getNode());
+        byte[] responseBytes = webSocketRelayService.rewriteResponse(clientResponse, sessionContext.getSessionId(),
+                exchange.getRequest().getURI()).getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(responseBytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(responseBytes)));
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, byte[] bytes) {
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+            }
+        };
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    /**
+     * Classe de configuration pour {@code SessionPoolFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -0,0 +1,128 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.ClusterSessionRegistry;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.SessionRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un filtre Spring Cloud Gateway qui expose aux autres instances du proxy la partition locale du registre des
+ * sessions partagé, sur {@code /wd/hub/proxy/registry/sessions/{id}} : {@code GET} lit une session, {@code PUT} la
+ * conserve et {@code DELETE} la retire. Lorsque le registre n'est pas partagé, le point de terminaison répond
+ * {@code 404}.
+ * <p>
+ * Chaque échange doit porter la clé du cluster dans l'en-tête {@value ClusterSessionRegistry#SECRET_HEADER},
+ * faute de quoi il est refusé ({@code 403}). Une session conservée doit être rattachée à un nœud configuré : le proxy ne
+ * transmet ainsi de commandes qu'aux nœuds de sa configuration.
+ */
+@Component
+public class SessionRegistryFilter extends AbstractGatewayFilterFactory<SessionRegistryFilter.Config> {
+
+    private final SessionRegistry sessionRegistry;
+    private final GridNodeService gridNodeService;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code SessionRegistryFilter}.
+     *
+     * @param sessionRegistry le registre des sessions
+     * @param gridNodeService le service des nœuds, auxquels les sessions conservées doivent être rattachées
+     * @param jsonMapper      le service de mappage JSON utilisé pour transmettre les contextes de session
+     */
+    public SessionRegistryFilter(SessionRegistry sessionRegistry, GridNodeService gridNodeService,
+                                 JsonMapper jsonMapper) {
+        super(Config.class);
+        this.sessionRegistry = sessionRegistry;
+        this.gridNodeService = gridNodeService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui répond aux échanges du registre partagé.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui répond sans poursuivre la chaîne de filtres
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpResponse response = exchange.getResponse();
+            String path = exchange.getRequest().getPath().value();
+            String sessionId = path.substring(path.lastIndexOf('/') + 1);
+            HttpMethod method = exchange.getRequest().getMethod();
+            if (!(sessionRegistry instanceof ClusterSessionRegistry registry)) {
+                return write(response, HttpStatus.NOT_FOUND,
+                        jsonMapper.toErrorResponse("unknown command", "[Proxy] Registre de sessions non partagé"));
+            }
+            String secret = exchange.getRequest().getHeaders().getFirst(ClusterSessionRegistry.SECRET_HEADER);
+            if (!registry.isAuthorized(secret)) {
+                return write(response, HttpStatus.FORBIDDEN,
+                        jsonMapper.toErrorResponse("unknown error", "[Proxy] Accès au registre de sessions refusé"));
+            }
+            if (HttpMethod.GET.equals(method)) {
+                SessionContext sessionContext = registry.findLocal(sessionId);
+                return sessionContext != null
+                        ? write(response, HttpStatus.OK, jsonMapper.toJson(sessionContext))
+                        : write(response, HttpStatus.NOT_FOUND,
+                                jsonMapper.toErrorResponse("invalid session id", "[Proxy] Session inconnue : " + sessionId));
+            }
+            if (HttpMethod.DELETE.equals(method)) {
+                registry.removeLocal(sessionId);
+                response.setStatusCode(HttpStatus.NO_CONTENT);
+                return response.setComplete();
+            }
+            if (!HttpMethod.PUT.equals(method)) {
+                return write(response, HttpStatus.METHOD_NOT_ALLOWED,
+                        jsonMapper.toErrorResponse("unknown method", "[Proxy] Méthode non prise en charge : " + method));
+            }
+            return DataBufferUtils.join(exchange.getRequest().getBody())
+                    .map(buffer -> {
+                        String body = buffer.toString(StandardCharsets.UTF_8);
+                        DataBufferUtils.release(buffer);
+                        return body;
+                    })
+                    .map(body -> jsonMapper.fromJson(body, SessionContext.class))
+                    .filter(sessionContext -> sessionId.equals(sessionContext.getSessionId())
+                            && sessionContext.getUrl() != null
+                            && gridNodeService.getNode(sessionContext.getUrl()) != null)
+                    .flatMap(sessionContext -> {
+                        registry.storeLocal(sessionContext);
+                        response.setStatusCode(HttpStatus.NO_CONTENT);
+                        return response.setComplete().thenReturn(Boolean.TRUE);
+                    })
+                    .switchIfEmpty(Mono.defer(() -> write(response, HttpStatus.BAD_REQUEST,
+                            jsonMapper.toErrorResponse("invalid argument", "[Proxy] Contexte de session invalide"))
+                            .thenReturn(Boolean.TRUE)))
+                    .onErrorResume(RuntimeException.class, e -> write(response, HttpStatus.BAD_REQUEST,
+                            jsonMapper.toErrorResponse("invalid argument", "[Proxy] " + e.getMessage()))
+                            .thenReturn(Boolean.TRUE))
+                    .then();
+        };
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, HttpStatus status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    /**
+     * Classe de configuration pour {@code SessionRegistryFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -0,0 +1,153 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.SessionContextService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * Un filtre Spring Cloud Gateway qui route chaque commande WebDriver vers le nœud Selenium hébergeant sa session.
+ * Le nœud est lu dans le {@link SessionContext} de la session : celui en cours de création placé dans les attributs
+ * de l'échange par {@link InitSessionFilter}, ou celui enregistré dans {@link SessionContextService} pour les commandes
+ * {@code /wd/hub/session/{id}/**}, y compris lorsque la session a été créée par une autre instance du proxy partageant
+ * le même registre. Un identifiant de session marqué de son nœud, reconnu par {@link SessionIdFilter}, est routé
+ * directement vers ce nœud, même s'il est absent du cache local. Une session non marquée et inconnue du proxy reçoit
+ * une erreur {@code invalid session id} plutôt que d'être routée vers l'URI de la route, qui pourrait désigner un autre
+ * nœud que le sien.
+ * Le nœud choisi est exposé dans l'attribut {@link #ROUTED_NODE_ATTR} de l'échange.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class SessionRoutingFilter extends AbstractGatewayFilterFactory<SessionRoutingFilter.Config> {
+
+    /** L'attribut d'échange contenant le {@link GridNode} vers lequel la commande a été routée. */
+    public static final String ROUTED_NODE_ATTR = "proxyRoutedNode";
+
+    private final SessionContextService sessionContextService;
+    private final GridNodeService gridNodeService;
+    private final PathMapper pathMapper;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Construit une instance de {@code SessionRoutingFilter} avec les dépendances requises.
+     *
+     * @param sessionContextService le service qui conserve le nœud de chaque session
+     * @param gridNodeService       le service qui gère les nœuds Selenium
+     * @param pathMapper            le service d'analyse des chemins de commande
+     * @param jsonMapper            le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public SessionRoutingFilter(SessionContextService sessionContextService, GridNodeService gridNodeService,
+                                PathMapper pathMapper, JsonMapper jsonMapper) {
+        super(Config.class);
+        this.sessionContextService = sessionContextService;
+        this.gridNodeService = gridNodeService;
+        this.pathMapper = pathMapper;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui réécrit l'URL cible de la requête vers le nœud de la session.
+     * Le filtre s'exécute juste après {@link RouteToRequestUrlFilter} afin de remplacer l'hôte calculé depuis la route.
+     * Après une suppression de session réussie, il retire la session du cache, ce qui la décompte de son nœud.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui gère le routage par session
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            SessionContext sessionContext = exchange.getAttribute(InitSessionFilter.SESSION_CONTEXT_ATTR);
+            if (sessionContext != null) {
+                return route(exchange, chain, sessionContext);
+            }
+            SessionContext taggedSession = exchange.getAttribute(SessionIdFilter.TAGGED_SESSION_ATTR);
+            if (taggedSession != null) {
+                // Le nœud est désigné par l'identifiant, dont le code HMAC a été vérifié : le cache local n'est lu que pour
+                // renouveler l'inactivité, et une session qu'il ne contient pas (après un redémarrage ou sur une autre
+                // instance) est routée malgré tout vers son nœud
+                SessionContext cached = sessionContextService.touchSessionContext(taggedSession.getSessionId());
+                return route(exchange, chain, cached != null ? cached : taggedSession);
+            }
+            String sessionId = pathMapper.getSessionId(exchange.getRequest().getPath().value());
+            if (sessionId == null) {
+                return chain.filter(exchange);
+            }
+            return sessionContextService.resolveSessionContext(sessionId)
+                    .flatMap(resolved -> route(exchange, chain, resolved).thenReturn(Boolean.TRUE))
+                    .switchIfEmpty(Mono.defer(() -> reject(exchange.getResponse(), sessionId).thenReturn(Boolean.TRUE)))
+                    .then();
+        }, RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1);
+    }
+
+    private Mono<Void> route(ServerWebExchange exchange, GatewayFilterChain chain, SessionContext sessionContext) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+        if (sessionContext.getUrl() == null) {
+            return chain.filter(exchange);
+        }
+        routeTo(exchange, sessionContext.getUrl());
+        GridNode node = gridNodeService.getNode(sessionContext.getUrl());
+        if (node != null) {
+            exchange.getAttributes().put(ROUTED_NODE_ATTR, node);
+        }
+        if (request.getMethod() != HttpMethod.DELETE || !pathMapper.isSessionPath(path)) {
+            return chain.filter(exchange);
+        }
+        String sessionId = sessionContext.getSessionId();
+        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+            if (exchange.getResponse().getStatusCode() != null && exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                sessionContextService.removeSessionContext(sessionId);
+            }
+        }));
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, String sessionId) {
+        String message = "[Proxy] Session inconnue : " + sessionId;
+        log.warn(message);
+        byte[] body = jsonMapper.toErrorResponse("invalid session id", message).getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.NOT_FOUND);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private void routeTo(ServerWebExchange exchange, URL nodeUrl) {
+        URI requestUrl = exchange.getRequiredAttribute(GATEWAY_REQUEST_URL_ATTR);
+        URI nodeRequestUrl = UriComponentsBuilder.fromUri(requestUrl)
+                .scheme(nodeUrl.getProtocol())
+                .host(nodeUrl.getHost())
+                .port(nodeUrl.getPort())
+                .build(true)
+                .toUri();
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, nodeRequestUrl);
+    }
+
+    /**
+     * Classe de configuration pour {@code SessionRoutingFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
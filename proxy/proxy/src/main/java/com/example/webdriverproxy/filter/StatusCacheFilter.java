@@ -0,0 +1,78 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.service.StatusCacheService;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un filtre Spring Cloud Gateway qui répond aux requêtes {@code /wd/hub/status} depuis {@link StatusCacheService},
+ * sans transmettre chaque requête au Grid. L'en-tête {@code Age} indique l'ancienneté de la réponse servie.
+ * Si le Grid n'a pas pu être interrogé et qu'aucune réponse récente n'est disponible, le filtre répond
+ * {@code 503} avec un statut {@code ready: false}.
+ */
+@Component
+public class StatusCacheFilter extends AbstractGatewayFilterFactory<StatusCacheFilter.Config> {
+
+    private static final byte[] UNAVAILABLE_BODY =
+            "{\"value\": {\"ready\": false, \"message\": \"[Proxy] Statut du Grid indisponible\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private final StatusCacheService statusCacheService;
+
+    /**
+     * Construit une instance de {@code StatusCacheFilter}.
+     *
+     * @param statusCacheService le service qui met en cache le statut du Grid
+     */
+    public StatusCacheFilter(StatusCacheService statusCacheService) {
+        super(Config.class);
+        this.statusCacheService = statusCacheService;
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui sert le statut du Grid depuis le cache.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui répond sans poursuivre la chaîne de filtres
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpResponse response = exchange.getResponse();
+            return statusCacheService.getStatus()
+                    .map(status -> {
+                        response.setStatusCode(HttpStatusCode.valueOf(status.getStatusCode()));
+                        response.getHeaders().setContentType(status.getContentType());
+                        response.getHeaders().set(HttpHeaders.AGE, String.valueOf(
+                                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - status.getFetchedNanos())));
+                        return status.getBody();
+                    })
+                    .onErrorResume(error -> {
+                        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        return Mono.just(UNAVAILABLE_BODY);
+                    })
+                    .flatMap(body -> write(response, body));
+        };
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, byte[] body) {
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Classe de configuration pour {@code StatusCacheFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -0,0 +1,41 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.model.CommandTiming;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Un filtre global Spring Cloud Gateway qui mesure le temps de premier octet du nœud Selenium.
+ * Placé juste avant {@link NettyRoutingFilter}, il note l'instant de transmission de la commande, puis l'instant où
+ * le client HTTP a reçu les en-têtes de la réponse, dans le {@link CommandTiming} créé par {@link CommandMetricsFilter}.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Encadre la transmission de la commande au nœud Selenium.
+     *
+     * @param exchange l'échange en cours
+     * @param chain    la suite de la chaîne de filtres
+     * @return un {@link Mono} qui se termine à la réception des en-têtes de la réponse du nœud
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        CommandTiming timing = exchange.getAttribute(CommandMetricsFilter.COMMAND_TIMING_ATTR);
+        if (timing == null) {
+            return chain.filter(exchange);
+        }
+        timing.setUpstreamStartNanos(System.nanoTime());
+        return chain.filter(exchange).doOnSuccess(ignored -> timing.setUpstreamFirstByteNanos(System.nanoTime()));
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.service.SessionContextService;
+import com.example.webdriverproxy.service.WebSocketRelayService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Un filtre Spring Cloud Gateway qui relaie les connexions WebSocket des sessions (WebDriver BiDi, CDP, VNC) vers
+ * l'URL annoncée par leur nœud, que {@link WebSocketRelayService} a remplacée par celle du proxy dans la réponse de
+ * création de session. La connexion du client est acceptée une fois celle du nœud demandée, avec les mêmes
+ * sous-protocoles ; les trames sont ensuite relayées dans les deux sens sans copie, chaque envoi ne demandant la trame
+ * suivante qu'une fois la précédente écrite, et la fermeture d'un côté ferme l'autre.
+ * <p>
+ * Une session inconnue du proxy, ou qui n'annonce aucune URL WebSocket pour le chemin demandé, reçoit une erreur
+ * {@code invalid session id} avant toute mise à niveau de la connexion.
+ */
+@Slf4j(topic = "proxy")
+@Component
+public class WebSocketRelayFilter extends AbstractGatewayFilterFactory<WebSocketRelayFilter.Config> {
+
+    private static final String SEC_WEBSOCKET_PROTOCOL = "Sec-WebSocket-Protocol";
+
+    private final WebSocketRelayService webSocketRelayService;
+    private final SessionContextService sessionContextService;
+    private final PathMapper pathMapper;
+    private final JsonMapper jsonMapper;
+    private final WebSocketService webSocketService;
+    private final WebSocketClient webSocketClient;
+
+    /**
+     * Construit une instance de {@code WebSocketRelayFilter} avec les dépendances requises.
+     *
+     * @param webSocketRelayService le service qui résout les URL WebSocket des nœuds et compte le trafic relayé
+     * @param sessionContextService le service qui conserve le contexte de chaque session
+     * @param pathMapper            le service d'analyse des chemins de commande
+     * @param jsonMapper            le service de mappage JSON utilisé pour les réponses d'erreur
+     */
+    public WebSocketRelayFilter(WebSocketRelayService webSocketRelayService, SessionContextService sessionContextService,
+                                PathMapper pathMapper, JsonMapper jsonMapper) {
+        super(Config.class);
+        this.webSocketRelayService = webSocketRelayService;
+        this.sessionContextService = sessionContextService;
+        this.pathMapper = pathMapper;
+        this.jsonMapper = jsonMapper;
+        int maxFrameSize = webSocketRelayService.getMaxFrameSize();
+        this.webSocketService = new HandshakeWebSocketService(new ReactorNettyRequestUpgradeStrategy(
+                () -> WebsocketServerSpec.builder().maxFramePayloadLength(maxFrameSize)));
+        // Une connexion par WebSocket, hors des pools des nœuds : elle est occupée pendant toute la durée du relais
+        this.webSocketClient = new ReactorNettyWebSocketClient(HttpClient.newConnection(),
+                () -> WebsocketClientSpec.builder().maxFramePayloadLength(maxFrameSize));
+    }
+
+    /**
+     * Crée et applique un {@link GatewayFilter} qui relaie la connexion WebSocket vers le nœud de la session.
+     * Le filtre s'exécute après {@link RouteToRequestUrlFilter} et termine l'échange sans poursuivre la chaîne ;
+     * si le relais est désactivé, la connexion suit la route comme toute autre requête.
+     *
+     * @param config l'objet de configuration pour ce filtre (actuellement inutilisé)
+     * @return un {@link GatewayFilter} qui relaie les connexions WebSocket
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            String path = exchange.getRequest().getPath().value();
+            String sessionId = pathMapper.getSessionId(path);
+            if (!webSocketRelayService.isEnabled() || sessionId == null) {
+                return chain.filter(exchange);
+            }
+            String commandPath = pathMapper.getCommandPath(path);
+            return sessionContextService.resolveSessionContext(sessionId)
+                    .mapNotNull(sessionContext -> webSocketRelayService.getNodeUri(sessionContext, commandPath))
+                    .flatMap(nodeUri -> relay(exchange, sessionId, nodeUri).thenReturn(Boolean.TRUE))
+                    .switchIfEmpty(Mono.defer(() -> reject(exchange.getResponse(), sessionId, commandPath)
+                            .thenReturn(Boolean.TRUE)))
+                    .then();
+        }, RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1);
+    }
+
+    private Mono<Void> relay(ServerWebExchange exchange, String sessionId, URI nodeUri) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders nodeHeaders = new HttpHeaders();
+        request.getHeaders().forEach((name, values) -> {
+            if (isForwarded(name)) {
+                nodeHeaders.addAll(name, values);
+            }
+        });
+        URI targetUri = request.getURI().getRawQuery() != null && nodeUri.getRawQuery() == null
+                ? URI.create(nodeUri + "?" + request.getURI().getRawQuery())
+                : nodeUri;
+        List<String> protocols = request.getHeaders().getOrEmpty(SEC_WEBSOCKET_PROTOCOL).stream()
+                .flatMap(header -> StringUtils.commaDelimitedListToSet(header).stream())
+                .map(String::trim)
+                .toList();
+        return webSocketService.handleRequest(exchange, new WebSocketHandler() {
+            @Override
+            public List<String> getSubProtocols() {
+                return protocols;
+            }
+
+            @Override
+            public Mono<Void> handle(WebSocketSession clientSession) {
+                WebSocketRelayService.SessionTraffic traffic = webSocketRelayService.open(sessionId);
+                log.debug("[Proxy] Connexion WebSocket relayée vers {}", targetUri);
+                return webSocketClient.execute(targetUri, nodeHeaders, new WebSocketHandler() {
+                    @Override
+                    public List<String> getSubProtocols() {
+                        return protocols;
+                    }
+
+                    @Override
+                    public Mono<Void> handle(WebSocketSession nodeSession) {
+                        return pipe(clientSession, nodeSession, traffic);
+                    }
+                }).doOnError(e -> log.warn("[Proxy] Relais WebSocket interrompu vers {} : {}", targetUri, e.getMessage()))
+                        .doFinally(signal -> {
+                            webSocketRelayService.close(sessionId, traffic);
+                            log.debug("[Proxy] Connexion WebSocket fermée vers {}", targetUri);
+                        });
+            }
+        });
+    }
+
+    private Mono<Void> pipe(WebSocketSession clientSession, WebSocketSession nodeSession,
+                            WebSocketRelayService.SessionTraffic traffic) {
+        // Le tampon reçu est libéré après sa publication : il est conservé jusqu'à son écriture de l'autre côté
+        Mono<Void> toNode = nodeSession.send(clientSession.receive().doOnNext(message -> {
+            traffic.recordToNode(message.getPayload().readableByteCount());
+            DataBufferUtils.retain(message.getPayload());
+        }));
+        Mono<Void> toClient = clientSession.send(nodeSession.receive().doOnNext(message -> {
+            traffic.recordToClient(message.getPayload().readableByteCount());
+            DataBufferUtils.retain(message.getPayload());
+        }));
+        Mono.when(clientSession.closeStatus().delayUntil(status -> nodeSession.close(toSendable(status))),
+                nodeSession.closeStatus().delayUntil(status -> clientSession.close(toSendable(status))))
+                .subscribe(null, e -> log.debug("[Proxy] Fermeture WebSocket non relayée : {}", e.getMessage()));
+        return Mono.zip(toNode, toClient).then();
+    }
+
+    /**
+     * Les codes réservés à la signalisation locale (1005 sans code, 1006 fermeture anormale, 1015 échec TLS) ne
+     * peuvent pas être envoyés dans une trame de fermeture : ils sont remplacés par un code équivalent.
+     */
+    private static CloseStatus toSendable(CloseStatus status) {
+        int code = status.getCode();
+        if (code == CloseStatus.NO_STATUS_CODE.getCode()) {
+            return CloseStatus.NORMAL;
+        }
+        if (code == CloseStatus.NO_CLOSE_FRAME.getCode() || code == CloseStatus.TLS_HANDSHAKE_FAILURE.getCode()
+                || code == 1004 || code < 1000 || code >= 5000) {
+            return CloseStatus.GOING_AWAY;
+        }
+        return status;
+    }
+
+    private static boolean isForwarded(String name) {
+        String header = name.toLowerCase(Locale.ROOT);
+        return !header.startsWith("sec-websocket") && !header.equals("host") && !header.equals("upgrade")
+                && !header.equals("connection") && !header.equals("content-length");
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, String sessionId, String commandPath) {
+        String message = "[Proxy] Aucune connexion WebSocket annoncée pour la session " + sessionId + " : " + commandPath;
+        log.warn(message);
+        byte[] body = jsonMapper.toErrorResponse("invalid session id", message).getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(HttpStatus.NOT_FOUND);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Classe de configuration pour {@code WebSocketRelayFilter}.
+     * Cette classe est un espace réservé car aucune configuration supplémentaire n'est actuellement requise.
+     */
+    public static class Config {}
+}
@@ -0,0 +1,269 @@
+package com.example.webdriverproxy.journal;
+
+import com.example.webdriverproxy.model.CommandRecord;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Un service qui journalise les commandes WebDriver dans des segments binaires projetés en mémoire.
+ * Les threads de la boucle d'événements publient les commandes dans un {@link JournalRingBuffer} sans verrou ni
+ * entrée/sortie ; un thread d'écriture unique les vide en arrière-plan dans des fichiers de segments à rotation.
+ * Lorsque le tampon est plein, la commande est abandonnée et comptée plutôt que de ralentir le proxy. Le thread
+ * d'écriture reste suspendu tant que le tampon est vide et n'est réveillé que par la publication d'une commande.
+ * Le journal est désactivé par défaut : il s'active avec {@code proxy.journal.enabled}.
+ *
+ * <p>Format d'un segment : l'entier {@link #SEGMENT_MAGIC}, puis une suite d'enregistrements composés de leur longueur
+ * (entier), de l'horodatage et de la durée (longs), du statut (entier), puis de l'identifiant de session, de la méthode,
+ * du chemin et du corps, chacun précédé de sa longueur en octets (-1 si absent). Une longueur nulle marque la fin des
+ * données ; la longueur d'un enregistrement est écrite en dernier, si bien qu'un lecteur ne voit jamais
+ * d'enregistrement partiel. Les segments se lisent avec {@link CommandJournalReader}.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class CommandJournal {
+
+    /** L'entier placé en tête de chaque segment ("WDJ1"). */
+    static final int SEGMENT_MAGIC = 0x57444A31;
+
+    /** Le suffixe des fichiers de segments. */
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int FIXED_RECORD_BYTES = Long.BYTES * 2 + Integer.BYTES + Integer.BYTES * 4;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final int maxBodyBytes;
+    private final double sampleRate;
+    private final JournalRingBuffer<CommandRecord> ringBuffer;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+
+    /**
+     * Construit une instance de {@code CommandJournal} et démarre son thread d'écriture si le journal est activé.
+     *
+     * @param enabled        indique si le journal est activé
+     * @param directory      le répertoire des segments
+     * @param segmentSize    la taille de chaque segment
+     * @param maxSegments    le nombre de segments conservés avant suppression des plus anciens
+     * @param bufferCapacity le nombre de commandes pouvant attendre l'écriture
+     * @param maxBodyBytes   le nombre maximal d'octets du corps conservés par commande
+     * @param sampleRate     la proportion des commandes réussies journalisées, entre 0 et 1 ; les erreurs le sont toujours
+     */
+    public CommandJournal(@Value("${proxy.journal.enabled:false}") boolean enabled,
+                          @Value("${proxy.journal.directory:journal}") String directory,
+                          @Value("${proxy.journal.segment-size:64MB}") DataSize segmentSize,
+                          @Value("${proxy.journal.max-segments:16}") int maxSegments,
+                          @Value("${proxy.journal.buffer-capacity:65536}") int bufferCapacity,
+                          @Value("${proxy.journal.max-body-bytes:2048}") int maxBodyBytes,
+                          @Value("${proxy.journal.sample-rate:1.0}") double sampleRate) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+        this.maxSegments = maxSegments;
+        this.maxBodyBytes = maxBodyBytes;
+        this.sampleRate = sampleRate;
+        this.ringBuffer = new JournalRingBuffer<>(bufferCapacity);
+        this.writerThread = new Thread(this::drain, "command-journal-writer");
+        this.writerThread.setDaemon(true);
+        if (enabled) {
+            writerThread.start();
+            log.info("[Proxy] Journal des commandes écrit dans : {}", this.directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Publie une commande dans le journal, sans bloquer ni effectuer d'entrée/sortie.
+     * Les commandes réussies sont échantillonnées selon le taux configuré.
+     *
+     * @param commandRecord la commande à journaliser
+     * @return true si la commande a été publiée, false si elle a été écartée par l'échantillonnage ou faute de place
+     */
+    public boolean record(CommandRecord commandRecord) {
+        if (!enabled || (commandRecord.getStatus() < 400 && !isSampled())) {
+            return false;
+        }
+        if (!ringBuffer.offer(commandRecord)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (idle) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Retourne le nombre de commandes écrites dans les segments.
+     *
+     * @return le nombre de commandes écrites
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * Retourne le nombre de commandes abandonnées faute de place dans le tampon ou dans un segment.
+     *
+     * @return le nombre de commandes abandonnées
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Arrête le thread d'écriture après avoir vidé le tampon, et force l'écriture du segment courant sur disque.
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        if (writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean isSampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void drain() {
+        try {
+            while (running) {
+                CommandRecord commandRecord = ringBuffer.poll();
+                if (commandRecord == null) {
+                    // L'attente est annoncée avant de revérifier le tampon : une commande publiée entre-temps est
+                    // soit trouvée ici, soit suivie d'un réveil
+                    idle = true;
+                    commandRecord = ringBuffer.poll();
+                    if (commandRecord == null && running) {
+                        LockSupport.park(this);
+                    }
+                    idle = false;
+                }
+                if (commandRecord != null) {
+                    write(commandRecord);
+                }
+            }
+            for (CommandRecord commandRecord = ringBuffer.poll(); commandRecord != null; commandRecord = ringBuffer.poll()) {
+                write(commandRecord);
+            }
+            closeSegment();
+        } catch (IOException e) {
+            log.error("[Proxy] Journal des commandes interrompu : {}", e.getMessage());
+        }
+    }
+
+    private void write(CommandRecord commandRecord) throws IOException {
+        byte[] sessionId = encode(commandRecord.getSessionId(), Integer.MAX_VALUE);
+        byte[] method = encode(commandRecord.getMethod(), Integer.MAX_VALUE);
+        byte[] path = encode(commandRecord.getPath(), Integer.MAX_VALUE);
+        byte[] body = encode(commandRecord.getBody(), maxBodyBytes);
+        int length = FIXED_RECORD_BYTES + length(sessionId) + length(method) + length(path) + length(body);
+        // Place pour la longueur de l'enregistrement et pour le marqueur de fin qui le suit
+        int required = Integer.BYTES + length + Integer.BYTES;
+        if (required > segmentBytes - Integer.BYTES) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (segment == null || segment.remaining() < required) {
+            openSegment();
+        }
+        int start = segment.position();
+        segment.position(start + Integer.BYTES);
+        segment.putLong(commandRecord.getTimestamp());
+        segment.putLong(commandRecord.getDurationNanos());
+        segment.putInt(commandRecord.getStatus());
+        put(sessionId);
+        put(method);
+        put(path);
+        put(body);
+        segment.putInt(start, length);
+        recorded.incrementAndGet();
+    }
+
+    private void put(byte[] bytes) {
+        if (bytes == null) {
+            segment.putInt(-1);
+        } else {
+            segment.putInt(bytes.length);
+            segment.put(bytes);
+        }
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static byte[] encode(String value, int maxBytes) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        // Recule jusqu'au début du caractère coupé par la limite
+        int length = maxBytes;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void openSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        Path segmentPath = directory.resolve(String.format("commands-%013d-%04d%s",
+                System.currentTimeMillis(), segmentIndex++ % 10000, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(SEGMENT_MAGIC);
+        deleteOldSegments();
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segmentChannel.close();
+            segment = null;
+            segmentChannel = null;
+        }
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = CommandJournalReader.listSegments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+}
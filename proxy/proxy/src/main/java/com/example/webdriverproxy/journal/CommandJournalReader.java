@@ -0,0 +1,118 @@
+package com.example.webdriverproxy.journal;
+
+import com.example.webdriverproxy.model.CommandRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Un lecteur des segments écrits par {@link CommandJournal}, utilisable aussi en ligne de commande.
+ * Exemple, depuis l'archive de l'application :
+ * <pre>
+ * java -cp webdriverproxy.jar -Dloader.main=com.example.webdriverproxy.journal.CommandJournalReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher journal [sessionId]
+ * </pre>
+ */
+public class CommandJournalReader {
+
+    private CommandJournalReader() {
+    }
+
+    /**
+     * Affiche les commandes journalisées d'un répertoire, éventuellement filtrées par session.
+     *
+     * @param args le répertoire des segments, puis facultativement l'identifiant de session à afficher
+     * @throws IOException si un segment ne peut pas être lu
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage : CommandJournalReader <répertoire> [sessionId]");
+            System.exit(1);
+        }
+        String sessionId = args.length > 1 ? args[1] : null;
+        for (Path segment : listSegments(Path.of(args[0]))) {
+            read(segment, commandRecord -> {
+                if (sessionId == null || sessionId.equals(commandRecord.getSessionId())) {
+                    System.out.printf("%s %s %s %s %d %.3fms %s%n",
+                            Instant.ofEpochMilli(commandRecord.getTimestamp()),
+                            commandRecord.getSessionId(),
+                            commandRecord.getMethod(),
+                            commandRecord.getPath(),
+                            commandRecord.getStatus(),
+                            commandRecord.getDurationNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                            commandRecord.getBody() != null ? commandRecord.getBody() : "");
+                }
+            });
+        }
+    }
+
+    /**
+     * Liste les segments d'un répertoire, du plus ancien au plus récent.
+     *
+     * @param directory le répertoire des segments
+     * @return les chemins des segments triés par nom, ou une liste vide si le répertoire n'existe pas
+     * @throws IOException si le répertoire ne peut pas être parcouru
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(CommandJournal.SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Décode les commandes d'un segment, y compris d'un segment en cours d'écriture.
+     *
+     * @param segment  le chemin du segment
+     * @param consumer le consommateur appelé pour chaque commande, dans l'ordre d'écriture
+     * @throws IOException si le segment ne peut pas être lu ou n'est pas un segment du journal
+     */
+    public static void read(Path segment, Consumer<CommandRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < Integer.BYTES || buffer.getInt() != CommandJournal.SEGMENT_MAGIC) {
+                throw new IOException("Segment de journal invalide : " + segment);
+            }
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                consumer.accept(new CommandRecord()
+                        .setTimestamp(buffer.getLong())
+                        .setDurationNanos(buffer.getLong())
+                        .setStatus(buffer.getInt())
+                        .setSessionId(getString(buffer))
+                        .setMethod(getString(buffer))
+                        .setPath(getString(buffer))
+                        .setBody(getString(buffer)));
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.webdriverproxy.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Un tampon circulaire borné, sans verrou, à producteurs multiples et consommateur unique.
+ * Chaque case porte un numéro de séquence qui indique si elle est libre pour le producteur ou publiée pour le
+ * consommateur ; les producteurs réservent une case par compare-and-set, sans jamais bloquer. Lorsque le tampon est
+ * plein, {@link #offer(Object)} échoue immédiatement plutôt que d'attendre.
+ *
+ * @param <E> le type des éléments
+ */
+class JournalRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Construit un tampon dont la capacité est arrondie à la puissance de deux supérieure.
+     *
+     * @param requestedCapacity la capacité minimale du tampon
+     */
+    JournalRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publie un élément dans le tampon. Peut être appelée simultanément par plusieurs threads.
+     *
+     * @param element l'élément à publier
+     * @return true si l'élément a été publié, false si le tampon est plein
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+        }
+        slots[index] = element;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Retire le plus ancien élément publié. Ne doit être appelée que par le thread consommateur.
+     *
+     * @return l'élément retiré, ou null si le tampon est vide
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, head + slots.length);
+        head++;
+        return element;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.webdriverproxy.journal;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.SessionContextService;
+import com.example.webdriverproxy.service.SessionRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Un service qui conserve les sessions de {@link SessionContextService} dans un journal local en ajout seul, afin
+ * qu'un redémarrage du proxy ne fasse pas perdre les sessions en cours sur le Grid. Chaque session soumise est
+ * journalisée, chaque session retirée (suppression, expiration, éviction) l'est aussi ; au démarrage, le journal est
+ * rejoué et les sessions encore présentes sont rétablies dans le cache avant que le proxy n'accepte des requêtes.
+ * <p>
+ * Comme pour {@link CommandJournal}, les threads de la boucle d'événements publient les changements dans un
+ * {@link JournalRingBuffer} ; un thread d'écriture unique les ajoute au fichier et force son écriture sur disque après
+ * chaque lot. Lorsque le fichier dépasse {@code proxy.session-journal.compaction-ratio} fois la taille des sessions
+ * vivantes, il est réécrit avec les seules sessions vivantes, puis substitué atomiquement à l'ancien.
+ *
+ * <p>Format du fichier {@value #JOURNAL_FILE} : l'entier {@link #JOURNAL_MAGIC}, puis une suite d'enregistrements
+ * composés de la longueur du contenu (entier), du contenu — le type ({@code 1} pour une session soumise, suivi de son
+ * contexte JSON ; {@code 2} pour une session retirée, suivi de son identifiant) — et du CRC32 du contenu (entier).
+ * Un enregistrement incomplet ou corrompu en fin de fichier, laissé par un arrêt brutal, est ignoré et tronqué.
+ * <p>
+ * Avec un registre des sessions partagé, les sessions sont déjà répliquées entre les instances et le journal est
+ * désactivé.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class SessionJournal {
+
+    /** Le nom du fichier du journal dans son répertoire. */
+    static final String JOURNAL_FILE = "sessions.log";
+
+    /** L'entier placé en tête du journal ("WDS1"). */
+    static final int JOURNAL_MAGIC = 0x57445331;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_OVERHEAD = Integer.BYTES * 2;
+
+    private final boolean enabled;
+    private final Path file;
+    private final JsonMapper jsonMapper;
+    private final double compactionRatio;
+    private final long minCompactionBytes;
+    private final JournalRingBuffer<Change> ringBuffer;
+    private final Map<String, byte[]> liveRecords = new LinkedHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    private FileChannel channel;
+    private long liveBytes;
+
+    /**
+     * Construit une instance de {@code SessionJournal}, rétablit les sessions journalisées puis démarre le thread
+     * d'écriture si le journal est activé.
+     *
+     * @param sessionContextService le service dont les sessions sont journalisées
+     * @param sessionRegistry       le registre des sessions ; le journal est désactivé s'il est partagé
+     * @param jsonMapper            le service de mappage JSON utilisé pour écrire et relire les contextes de session
+     * @param enabled               indique si le journal est activé
+     * @param directory             le répertoire du journal
+     * @param bufferCapacity        le nombre de changements pouvant attendre l'écriture
+     * @param compactionRatio       le rapport entre la taille du fichier et celle des sessions vivantes qui déclenche
+     *                              la compaction
+     * @param minCompactionSize     la taille de fichier en deçà de laquelle le journal n'est jamais compacté
+     * @throws IOException si le journal existant ne peut pas être lu ou ouvert
+     */
+    public SessionJournal(SessionContextService sessionContextService, SessionRegistry sessionRegistry, JsonMapper jsonMapper,
+                          @Value("${proxy.session-journal.enabled:true}") boolean enabled,
+                          @Value("${proxy.session-journal.directory:journal}") String directory,
+                          @Value("${proxy.session-journal.buffer-capacity:4096}") int bufferCapacity,
+                          @Value("${proxy.session-journal.compaction-ratio:2.0}") double compactionRatio,
+                          @Value("${proxy.session-journal.min-compaction-size:1MB}") DataSize minCompactionSize) throws IOException {
+        this.enabled = enabled && !sessionRegistry.isShared();
+        this.file = Path.of(directory).resolve(JOURNAL_FILE);
+        this.jsonMapper = jsonMapper;
+        this.compactionRatio = Math.max(1.0, compactionRatio);
+        this.minCompactionBytes = minCompactionSize.toBytes();
+        this.ringBuffer = new JournalRingBuffer<>(bufferCapacity);
+        this.writerThread = new Thread(this::drain, "session-journal-writer");
+        this.writerThread.setDaemon(true);
+        if (!this.enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long fileBytes = replay();
+        int restored = 0;
+        // Une session non rétablie est oubliée : la compaction ne la réécrit pas, et aucun retrait ne la suivrait
+        for (Iterator<byte[]> payloads = liveRecords.values().iterator(); payloads.hasNext(); ) {
+            byte[] payload = payloads.next();
+            boolean restoredSession = false;
+            try {
+                restoredSession = sessionContextService.restoreSessionContext(
+                        jsonMapper.fromJson(new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8), SessionContext.class));
+            } catch (RuntimeException e) {
+                log.warn("[Proxy] Session journalisée illisible, ignorée : {}", e.getMessage());
+            }
+            if (restoredSession) {
+                restored++;
+            } else {
+                payloads.remove();
+                liveBytes -= recordBytes(payload);
+            }
+        }
+        log.info("[Proxy] {} session(s) rétablie(s) depuis {} en {} ms", restored, file.toAbsolutePath(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (fileBytes > liveBytes + Integer.BYTES) {
+            compact();
+        } else {
+            openForAppend();
+        }
+        sessionContextService.addSubmitListener(sessionContext -> publish(new Change(PUT, sessionContext.getSessionId(), sessionContext)));
+        sessionContextService.addRemovalListener(sessionId -> publish(new Change(REMOVE, sessionId, null)));
+        writerThread.start();
+    }
+
+    /**
+     * Retourne le nombre de changements abandonnés faute de place dans le tampon.
+     *
+     * @return le nombre de changements abandonnés
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Retourne le nombre de compactions du journal depuis le démarrage.
+     *
+     * @return le nombre de compactions
+     */
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    /**
+     * Arrête le thread d'écriture après avoir vidé le tampon, et ferme le journal.
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        if (writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void publish(Change change) {
+        if (!ringBuffer.offer(change)) {
+            dropped.incrementAndGet();
+            log.warn("[Proxy] Journal des sessions saturé, changement abandonné pour la session {}", change.sessionId());
+        }
+    }
+
+    /**
+     * Relit le journal et reconstitue les sessions vivantes. Un enregistrement incomplet ou corrompu met fin à la
+     * lecture, et le fichier est tronqué à sa position.
+     *
+     * @return la taille du fichier conservée après la lecture
+     */
+    private long replay() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long valid;
+        try (FileChannel replayChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = replayChannel.size();
+            if (size < Integer.BYTES) {
+                replayChannel.truncate(0);
+                return 0;
+            }
+            MappedByteBuffer buffer = replayChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != JOURNAL_MAGIC) {
+                throw new IOException("[Proxy] Journal des sessions invalide : " + file.toAbsolutePath());
+            }
+            CRC32 crc = new CRC32();
+            valid = buffer.position();
+            while (buffer.remaining() >= RECORD_OVERHEAD) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                    break;
+                }
+                byte[] content = new byte[length];
+                buffer.get(content);
+                crc.reset();
+                crc.update(content);
+                if ((int) crc.getValue() != buffer.getInt()) {
+                    break;
+                }
+                apply(content);
+                valid = buffer.position();
+            }
+            if (valid < size) {
+                log.warn("[Proxy] Fin du journal des sessions incomplète, {} octet(s) ignoré(s)", size - valid);
+                replayChannel.truncate(valid);
+            }
+        }
+        return valid;
+    }
+
+    private void apply(byte[] content) {
+        String sessionId;
+        if (content[0] == PUT) {
+            sessionId = (String) jsonMapper.extract(new String(content, 1, content.length - 1, StandardCharsets.UTF_8),
+                    "sessionId").get("sessionId");
+            if (sessionId != null) {
+                byte[] previous = liveRecords.put(sessionId, content);
+                liveBytes += recordBytes(content) - (previous != null ? recordBytes(previous) : 0);
+            }
+        } else if (content[0] == REMOVE) {
+            sessionId = new String(content, 1, content.length - 1, StandardCharsets.UTF_8);
+            byte[] previous = liveRecords.remove(sessionId);
+            if (previous != null) {
+                liveBytes -= recordBytes(previous);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            while (running) {
+                if (!writeBatch()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+            }
+            // Les changements publiés avant l'arrêt sont tous écrits, quel que soit le nombre de lots
+            while (writeBatch()) {
+                // lot suivant
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.error("[Proxy] Journal des sessions interrompu : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit tous les changements en attente, force leur écriture sur disque, puis compacte le journal si nécessaire.
+     *
+     * @return true si au moins un changement a été écrit
+     */
+    private boolean writeBatch() throws IOException {
+        boolean written = false;
+        for (Change change = ringBuffer.poll(); change != null; change = ringBuffer.poll()) {
+            byte[] content;
+            if (change.type() == PUT) {
+                content = encode(PUT, jsonMapper.toJson(change.sessionContext()));
+            } else if (liveRecords.containsKey(change.sessionId())) {
+                content = encode(REMOVE, change.sessionId());
+            } else {
+                // Session jamais journalisée, par exemple relue dans un registre partagé
+                continue;
+            }
+            apply(content);
+            writeRecord(channel, content);
+            written = true;
+        }
+        if (written) {
+            channel.force(false);
+            long fileBytes = channel.size();
+            if (fileBytes > minCompactionBytes && fileBytes > liveBytes * compactionRatio) {
+                compact();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Réécrit le journal avec les seules sessions vivantes dans un fichier temporaire, puis le substitue à l'ancien.
+     */
+    private void compact() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Files.createDirectories(file.getParent());
+        Path compacted = file.resolveSibling(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, JOURNAL_MAGIC));
+            for (byte[] content : liveRecords.values()) {
+                writeRecord(out, content);
+            }
+            out.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        compactions.incrementAndGet();
+        log.info("[Proxy] Journal des sessions compacté : {} session(s) vivante(s)", liveRecords.size());
+        openForAppend();
+    }
+
+    private void openForAppend() throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean created = !Files.exists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (created || channel.size() == 0) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, JOURNAL_MAGIC));
+            channel.force(true);
+        }
+    }
+
+    private static void writeRecord(FileChannel out, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ByteBuffer record = ByteBuffer.allocate(recordBytes(content));
+        record.putInt(content.length).put(content).putInt((int) crc.getValue()).flip();
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    private static byte[] encode(byte type, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[bytes.length + 1];
+        content[0] = type;
+        System.arraycopy(bytes, 0, content, 1, bytes.length);
+        return content;
+    }
+
+    private static int recordBytes(byte[] content) {
+        return RECORD_OVERHEAD + content.length;
+    }
+
+    /**
+     * Un changement en attente d'écriture : une session soumise ou retirée.
+     */
+    private record Change(byte type, String sessionId, SessionContext sessionContext) {}
+}
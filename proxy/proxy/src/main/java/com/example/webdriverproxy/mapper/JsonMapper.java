@@ -1,37 +1,252 @@
 package com.example.webdriverproxy.mapper;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
-import org.openqa.selenium.json.Json;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-import static org.openqa.selenium.json.Json.MAP_TYPE;
-
 /**
  * Un service qui fournit des fonctionnalités de mappage JSON pour les données de requêtes et réponses Selenium.
- * Cette classe utilise la bibliothèque Selenium {@link Json} pour convertir les chaînes JSON en structures de données
- * Java et extraire des informations spécifiques telles que les valeurs, les capacités ou les indicateurs d'erreur.
+ * Cette classe lit les documents JSON en flux de jetons avec une unique fabrique Jackson partagée, thread-safe :
+ * seuls les chemins demandés (par exemple {@code value.sessionId}) sont matérialisés et la lecture s'arrête dès
+ * qu'ils ont tous été trouvés, sans construire le graphe d'objets complet de la réponse.
  */
 @Slf4j(topic = "proxy")
 @Service
 public class JsonMapper {
 
+    /** Le chemin de l'identifiant de session dans une réponse de création de session. */
+    public static final String VALUE_SESSION_ID = "value.sessionId";
+
+    /** Le chemin des capacités dans une réponse de création de session. */
+    public static final String VALUE_CAPABILITIES = "value.capabilities";
+
+    /** La capacité propre au proxy activant l'attente des éléments, en millisecondes. */
+    public static final String ELEMENT_WAIT_CAPABILITY = "proxy:elementWait";
+
+    /** La capacité propre au proxy activant le cache des lectures de la session, durée de validité en millisecondes. */
+    public static final String READ_CACHE_CAPABILITY = "proxy:readCache";
+
+    /** La capacité propre au proxy indiquant la classe de priorité d'une création de session. */
+    public static final String PRIORITY_CAPABILITY = "proxy:priority";
+
+    /** Le chemin du type d'erreur dans une réponse en erreur. */
+    public static final String VALUE_ERROR = "value.error";
+
     private static final String VALUE = "value";
-    private static final String ERROR = "error";
     private static final String CAPABILITIES = "capabilities";
+    private static final String DESIRED_CAPABILITIES = "desiredCapabilities";
+    private static final String CAPABILITIES_ALWAYS_MATCH = "capabilities.alwaysMatch.";
+    private static final String CAPABILITIES_FIRST_MATCH = "capabilities.firstMatch";
 
-    private final Json json = new Json();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final ObjectWriter SORTED_WRITER = OBJECT_MAPPER.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
 
     /**
      * Convertit un corps de requête JSON en une carte de clés et valeurs.
      *
      * @param requestBody le corps de la requête sous forme de chaîne JSON
      * @return une carte représentant les données JSON analysées
+     * @throws RuntimeException si le corps n'est pas un objet JSON valide
      */
     public Map<String, Object> convertRequest(String requestBody) {
-        return json.toType(requestBody, MAP_TYPE);
+        try {
+            return OBJECT_MAPPER.readValue(requestBody, MAP_TYPE);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sérialise un objet (carte, liste ou valeur simple) en chaîne JSON.
+     *
+     * @param value l'objet à sérialiser
+     * @return la représentation JSON de l'objet
+     * @throws RuntimeException si l'objet ne peut pas être sérialisé
+     */
+    public String toJson(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Désérialise une chaîne JSON en objet du type demandé.
+     *
+     * @param json la chaîne JSON
+     * @param type la classe de l'objet à construire
+     * @param <T>  le type de l'objet
+     * @return l'objet construit à partir du JSON
+     * @throws RuntimeException si le JSON est invalide ou ne correspond pas au type demandé
+     */
+    public <T> T fromJson(String json, Class<T> type) {
+        try {
+            return OBJECT_MAPPER.readValue(json, type);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Vérifie en flux qu'une chaîne est un document JSON complet, formé d'une seule valeur, sans la matérialiser.
+     *
+     * @param json la chaîne à vérifier
+     * @return true si la chaîne est un document JSON valide, false si elle est vide, tronquée ou invalide
+     */
+    public boolean isJson(String json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Construit le corps d'une réponse d'erreur WebDriver W3C.
+     *
+     * @param error   le code d'erreur W3C, par exemple {@code invalid argument}
+     * @param message le message d'erreur
+     * @return le corps JSON de la réponse d'erreur
+     */
+    public String toErrorResponse(String error, String message) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("error", error);
+        value.put("message", message);
+        value.put("stacktrace", "");
+        return toJson(Map.of(VALUE, value));
+    }
+
+    /**
+     * Extrait en flux les valeurs de chemins donnés d'un document JSON.
+     * Un chemin désigne une suite de clés d'objets séparées par des points, par exemple {@code value.error}.
+     * Les valeurs scalaires sont retournées telles quelles, les objets et tableaux sous forme de cartes et de listes.
+     * Les branches qui ne mènent à aucun chemin demandé sont sautées sans être matérialisées, et la lecture
+     * s'interrompt dès que tous les chemins ont été trouvés ; un document tronqué après eux reste donc exploitable.
+     *
+     * @param json  le document JSON
+     * @param paths les chemins à extraire
+     * @return une carte des chemins trouvés vers leurs valeurs ; les chemins absents n'y figurent pas
+     * @throws RuntimeException si le document est invalide avant que tous les chemins aient été trouvés
+     */
+    public Map<String, Object> extract(String json, String... paths) {
+        Map<String, Object> found = new HashMap<>(paths.length * 2);
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                extractObject(parser, null, paths, found);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
+        return found;
+    }
+
+    /**
+     * Décode en flux la valeur base64 de la clé {@code value} d'une réponse, par exemple une capture d'écran.
+     * Les octets décodés sont écrits au fur et à mesure dans le flux de sortie : ni la chaîne base64 ni l'image décodée
+     * ne sont matérialisées en mémoire.
+     *
+     * @param json le document JSON de la réponse
+     * @param out  le flux recevant les octets décodés
+     * @return le nombre d'octets décodés, ou -1 si {@code value} est absente ou n'est pas une chaîne
+     * @throws RuntimeException si le document ou la chaîne base64 est invalide
+     */
+    public long copyBinaryValue(InputStream json, OutputStream out) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return -1;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                JsonToken token = parser.nextToken();
+                if (VALUE.equals(parser.currentName())) {
+                    return token == JsonToken.VALUE_STRING ? parser.readBinaryValue(out) : -1;
+                }
+                parser.skipChildren();
+            }
+            return -1;
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parcourt l'objet courant du parseur en ne descendant que dans les branches menant à un chemin demandé.
+     *
+     * @return true si tous les chemins ont été trouvés et que la lecture peut s'arrêter
+     */
+    private boolean extractObject(JsonParser parser, String prefix, String[] paths, Map<String, Object> found) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix == null ? parser.currentName() : prefix + '.' + parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (isRequested(path, paths)) {
+                found.put(path, token.isStructStart() ? OBJECT_MAPPER.readValue(parser, Object.class) : scalar(parser, token));
+                if (found.size() == paths.length) {
+                    return true;
+                }
+            } else if (token == JsonToken.START_OBJECT && isParentOfRequested(path, paths)) {
+                if (extractObject(parser, path, paths, found)) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private Object scalar(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private boolean isRequested(String path, String[] paths) {
+        for (String requested : paths) {
+            if (requested.equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isParentOfRequested(String path, String[] paths) {
+        for (String requested : paths) {
+            if (requested.length() > path.length() && requested.startsWith(path) && requested.charAt(path.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -41,8 +256,7 @@ public class JsonMapper {
      * @return une carte contenant les données de la section "value", ou null si non présente
      */
     public Map<String, Object> getValue(String responseData) {
-        Map<String, Map<String, Object>> result = json.toType(responseData, Json.MAP_TYPE);
-        return result.get(VALUE);
+        return asMap(extract(responseData, VALUE).get(VALUE));
     }
 
     /**
@@ -52,7 +266,61 @@ public class JsonMapper {
      * @return une carte des capacités, ou une carte vide si elles ne sont pas présentes
      */
     public Map<String, Object> getCapabilities(Map<String, Object> value) {
-        return (Map<String, Object>) value.getOrDefault(CAPABILITIES, Collections.emptyMap());
+        Map<String, Object> capabilities = asMap(value.get(CAPABILITIES));
+        return capabilities != null ? capabilities : Collections.emptyMap();
+    }
+
+    /**
+     * Convertit une valeur lue dans un document JSON en carte à clés textuelles, si c'est un objet JSON.
+     * La carte rendue est une copie de premier niveau : pour modifier le document, elle doit y être replacée.
+     *
+     * @param value la valeur lue, par exemple par {@link #extract(String, String...)} ou {@link #convertRequest(String)}
+     * @return une carte des entrées de l'objet, ou null si la valeur n'est pas un objet JSON
+     */
+    public Map<String, Object> asMap(Object value) {
+        if (!(value instanceof Map<?, ?> map)) {
+            return null;
+        }
+        Map<String, Object> entries = new LinkedHashMap<>(Math.max(16, map.size() * 4 / 3 + 1));
+        map.forEach((key, entry) -> entries.put(String.valueOf(key), entry));
+        return entries;
+    }
+
+    /**
+     * Lit une capacité d'une demande de création de session W3C. Le Grid fusionne {@code alwaysMatch} avec chaque
+     * entrée de {@code firstMatch} : la capacité est lue dans {@code alwaysMatch}, puis à défaut dans la première entrée
+     * de {@code firstMatch} qui la définit.
+     *
+     * @param requestBody la demande de création de session
+     * @param capability  le nom de la capacité, par exemple {@code proxy:elementWait}
+     * @return la valeur de la capacité, ou null si la demande ne la définit pas
+     * @throws RuntimeException si la demande n'est pas un document JSON valide
+     */
+    public Object getRequestedCapability(String requestBody, String capability) {
+        String alwaysMatchPath = CAPABILITIES_ALWAYS_MATCH + capability;
+        Map<String, Object> found = extract(requestBody, alwaysMatchPath, CAPABILITIES_FIRST_MATCH);
+        if (found.containsKey(alwaysMatchPath)) {
+            return found.get(alwaysMatchPath);
+        }
+        if (found.get(CAPABILITIES_FIRST_MATCH) instanceof List<?> firstMatch) {
+            for (Object alternative : firstMatch) {
+                if (alternative instanceof Map<?, ?> capabilities && capabilities.containsKey(capability)) {
+                    return capabilities.get(capability);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Récupère le type d'erreur d'une réponse, sans lire le reste du document.
+     *
+     * @param responseData les données de réponse sous forme de chaîne JSON
+     * @return la valeur de "value.error", ou null si la réponse ne contient pas d'erreur
+     */
+    public String getError(String responseData) {
+        Object error = extract(responseData, VALUE_ERROR).get(VALUE_ERROR);
+        return error != null ? error.toString() : null;
     }
 
     /**
@@ -62,7 +330,29 @@ public class JsonMapper {
      * @return true si la réponse contient une clé "error" dans la section "value", false sinon
      */
     public boolean isErrorResponse(String responseData) {
-        Map<String, Object> valueMap = getValue(responseData);
-        return valueMap != null && valueMap.containsKey(ERROR);
+        return extract(responseData, VALUE_ERROR).containsKey(VALUE_ERROR);
+    }
+
+    /**
+     * Calcule une clé normalisée des capacités demandées dans un corps de création de session.
+     * Les capacités W3C ({@code capabilities}), ou à défaut les anciennes {@code desiredCapabilities}, sont
+     * sérialisées avec les clés de chaque objet triées : deux demandes équivalentes à l'ordre des clés et aux espaces
+     * près produisent la même clé.
+     *
+     * @param requestBody le corps de la requête de création de session
+     * @return la clé normalisée des capacités, ou null si le corps n'en contient pas
+     * @throws RuntimeException si le corps n'est pas un objet JSON valide
+     */
+    public String getCapabilitiesKey(String requestBody) {
+        Map<String, Object> request = convertRequest(requestBody);
+        Object capabilities = request.containsKey(CAPABILITIES) ? request.get(CAPABILITIES) : request.get(DESIRED_CAPABILITIES);
+        if (!(capabilities instanceof Map)) {
+            return null;
+        }
+        try {
+            return SORTED_WRITER.writeValueAsString(capabilities);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON invalide : " + e.getMessage(), e);
+        }
     }
 }
\ No newline at end of file
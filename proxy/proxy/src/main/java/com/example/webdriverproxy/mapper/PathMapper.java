@@ -0,0 +1,64 @@
+package com.example.webdriverproxy.mapper;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Un service qui analyse les chemins des commandes WebDriver reçues par le proxy.
+ * Il extrait notamment l'identifiant de session des chemins de la forme {@code /wd/hub/session/{id}/...}.
+ */
+@Service
+public class PathMapper {
+
+    private static final String SESSION_SEGMENT = "/session/";
+
+    /**
+     * Extrait l'identifiant de session d'un chemin de commande WebDriver.
+     *
+     * @param path le chemin de la requête, par exemple {@code /wd/hub/session/abc/url}
+     * @return l'identifiant de session, ou null si le chemin ne désigne pas une session existante
+     */
+    public String getSessionId(String path) {
+        int start = path.indexOf(SESSION_SEGMENT);
+        if (start < 0) {
+            return null;
+        }
+        start += SESSION_SEGMENT.length();
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        return end > start ? path.substring(start, end) : null;
+    }
+
+    /**
+     * Indique si un chemin désigne la session elle-même ({@code /session/{id}}), sans commande.
+     * Une requête DELETE sur ce chemin termine la session.
+     *
+     * @param path le chemin de la requête
+     * @return true si le chemin se termine par l'identifiant de session, false sinon
+     */
+    public boolean isSessionPath(String path) {
+        int start = path.indexOf(SESSION_SEGMENT);
+        if (start < 0) {
+            return false;
+        }
+        int idStart = start + SESSION_SEGMENT.length();
+        int end = path.indexOf('/', idStart);
+        return idStart < path.length() && (end < 0 || end == path.length() - 1);
+    }
+
+    /**
+     * Extrait le chemin d'une commande relatif à sa session.
+     *
+     * @param path le chemin de la requête, par exemple {@code /wd/hub/session/abc/element}
+     * @return le chemin relatif à la session, par exemple {@code /element}, ou null si le chemin ne désigne pas une session
+     */
+    public String getCommandPath(String path) {
+        int start = path.indexOf(SESSION_SEGMENT);
+        if (start < 0) {
+            return null;
+        }
+        int end = path.indexOf('/', start + SESSION_SEGMENT.length());
+        return end < 0 ? "" : path.substring(end);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant une commande WebDriver d'un lot exécuté par le proxy pour une session.
+ * Le chemin est relatif à la session, par exemple {@code /element} ou {@code /element/{elementId}/click}.
+ */
+@Data
+@Accessors(chain = true)
+public class BatchCommand {
+
+    /** La méthode HTTP de la commande. */
+    private String method;
+
+    /** Le chemin de la commande, relatif à {@code /wd/hub/session/{id}}. */
+    private String path;
+
+    /** Le corps JSON de la commande, ou null pour une commande sans corps. */
+    private String body;
+}
@@ -0,0 +1,34 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant une commande WebDriver enregistrée dans le journal des commandes du proxy.
+ * Elle conserve l'horodatage, la session, la requête, le statut de la réponse et la durée de traitement de la commande.
+ */
+@Data
+@Accessors(chain = true)
+public class CommandRecord {
+
+    /** L'horodatage de la fin de la commande, en millisecondes depuis l'epoch. */
+    private long timestamp;
+
+    /** La durée totale de la commande à travers le proxy, en nanosecondes. */
+    private long durationNanos;
+
+    /** Le code de statut HTTP de la réponse, ou 0 s'il est inconnu. */
+    private int status;
+
+    /** L'identifiant de la session, ou null pour une commande hors session. */
+    private String sessionId;
+
+    /** La méthode HTTP de la commande. */
+    private String method;
+
+    /** Le chemin de la commande. */
+    private String path;
+
+    /** Le corps de la requête, éventuellement tronqué, ou null s'il est absent. */
+    private String body;
+}
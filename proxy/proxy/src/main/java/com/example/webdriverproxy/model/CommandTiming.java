@@ -0,0 +1,21 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+
+/**
+ * Une classe modèle regroupant les instants mesurés au cours du traitement d'une commande par le proxy.
+ * Une seule instance est créée par échange, afin de ne pas multiplier les attributs ni les valeurs encapsulées.
+ * Les instants sont exprimés en nanosecondes selon {@link System#nanoTime()} ; 0 signifie « non atteint ».
+ */
+@Data
+public class CommandTiming {
+
+    /** L'instant de réception de la commande par le proxy. */
+    private long startNanos;
+
+    /** L'instant de transmission de la commande au nœud Selenium. */
+    private long upstreamStartNanos;
+
+    /** L'instant de réception des en-têtes de la réponse du nœud Selenium. */
+    private long upstreamFirstByteNanos;
+}
@@ -0,0 +1,48 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Une classe modèle représentant la synthèse des erreurs WebDriver observées par le proxy sur une fenêtre de temps
+ * glissante : le nombre d'erreurs par type et par commande, et les localisateurs qui échouent le plus souvent.
+ */
+@Data
+@Accessors(chain = true)
+public class ErrorReport {
+
+    /** La durée de la fenêtre couverte, au format ISO-8601, par exemple {@code PT5M}. */
+    private String window;
+
+    /** Le nombre total d'erreurs dans la fenêtre. */
+    private long total;
+
+    /** Le nombre d'erreurs par type W3C ({@code no such element}, {@code timeout}...), par ordre décroissant. */
+    private Map<String, Long> errorTypes;
+
+    /** Le nombre d'erreurs par modèle de commande, par exemple {@code POST /session/{id}/element}. */
+    private Map<String, Long> endpoints;
+
+    /** Les localisateurs qui échouent le plus souvent, par ordre décroissant. */
+    private List<FailingLocator> locators;
+
+    /**
+     * Un localisateur d'élément en échec et son nombre estimé d'échecs.
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class FailingLocator {
+
+        /** La stratégie et la valeur du localisateur, par exemple {@code css selector=#submit}. */
+        private String locator;
+
+        /** Le nombre estimé d'échecs, jamais inférieur au nombre réel. */
+        private long count;
+
+        /** Le type de la dernière erreur observée pour ce localisateur. */
+        private String lastErrorType;
+    }
+}
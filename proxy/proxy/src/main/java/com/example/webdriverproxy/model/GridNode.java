@@ -0,0 +1,110 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Getter;
+
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Une classe modèle représentant un nœud Selenium Grid (hub ou nœud standalone) vers lequel le proxy peut router.
+ * Elle suit la charge courante du nœud : sessions actives, créations en cours et latence récente de création de session,
+ * ainsi que sa santé, mesurée par des sondes périodiques qui commandent son disjoncteur.
+ */
+@Getter
+public class GridNode {
+
+    /** Poids de la dernière mesure dans la moyenne mobile exponentielle de latence. */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    /** La position du nœud dans la liste des nœuds configurés. */
+    private final int index;
+
+    /** L'URL du serveur Selenium du nœud. */
+    private final URL url;
+
+    /** Le nom court du nœud ({@code hôte:port}), utilisé comme étiquette des métriques. */
+    private final String name;
+
+    /** Le nombre de sessions actuellement ouvertes sur le nœud via le proxy. */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    /** Le nombre de créations de session envoyées au nœud et non encore terminées. */
+    private final AtomicInteger pendingSessions = new AtomicInteger();
+
+    /**
+     * La moyenne mobile exponentielle de la latence de création de session, en millisecondes, initialisée par la
+     * première mesure ; {@code NaN} tant qu'aucune création n'a abouti sur le nœud.
+     */
+    private volatile double createLatencyMillis = Double.NaN;
+
+    /** Le nombre de sondes de santé consécutives en échec. */
+    private final AtomicInteger consecutiveProbeFailures = new AtomicInteger();
+
+    /** Indique si le disjoncteur du nœud est ouvert : le nœud est alors considéré comme hors service. */
+    private volatile boolean circuitOpen;
+
+    /**
+     * Construit un nœud pour l'URL Selenium donnée.
+     *
+     * @param index la position du nœud dans la liste des nœuds configurés
+     * @param url   l'URL du serveur Selenium du nœud
+     */
+    public GridNode(int index, URL url) {
+        this.index = index;
+        this.url = url;
+        this.name = url.getHost() + ":" + (url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+    }
+
+    /**
+     * Calcule le score de charge du nœud : plus il est faible, plus le nœud est disponible.
+     * Le score estime le coût d'une nouvelle création comme le nombre de sessions (actives et en cours)
+     * pondéré par la latence récente de création. Un nœud sans mesure est évalué avec la latence a priori donnée,
+     * afin de ne pas paraître infiniment plus rapide que les nœuds déjà mesurés.
+     *
+     * @param priorLatencyMillis la latence retenue tant que le nœud n'a aucune mesure, en millisecondes
+     * @return le score de charge du nœud
+     */
+    public double getLoadScore(double priorLatencyMillis) {
+        double latencyMillis = hasCreateLatency() ? createLatencyMillis : priorLatencyMillis;
+        return (activeSessions.get() + pendingSessions.get() + 1) * latencyMillis;
+    }
+
+    /**
+     * Indique si au moins une création de session a abouti sur le nœud, c'est-à-dire si sa latence est mesurée.
+     *
+     * @return true si la latence de création du nœud est mesurée
+     */
+    public boolean hasCreateLatency() {
+        return !Double.isNaN(createLatencyMillis);
+    }
+
+    /**
+     * Intègre une nouvelle mesure de latence de création de session dans la moyenne mobile.
+     * La première mesure initialise la moyenne.
+     *
+     * @param latencyMillis la latence mesurée, en millisecondes
+     */
+    public synchronized void recordCreateLatency(double latencyMillis) {
+        createLatencyMillis = hasCreateLatency()
+                ? createLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - createLatencyMillis)
+                : latencyMillis;
+    }
+
+    /**
+     * Ouvre ou referme le disjoncteur du nœud.
+     *
+     * @param circuitOpen true pour mettre le nœud hors service, false pour le remettre en service
+     * @return true si l'état du disjoncteur a changé
+     */
+    public synchronized boolean setCircuitOpen(boolean circuitOpen) {
+        boolean changed = this.circuitOpen != circuitOpen;
+        this.circuitOpen = circuitOpen;
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "GridNode{url=" + url + ", activeSessions=" + activeSessions + ", pendingSessions=" + pendingSessions
+                + ", createLatencyMillis=" + Math.round(createLatencyMillis) + ", circuitOpen=" + circuitOpen + "}";
+    }
+}
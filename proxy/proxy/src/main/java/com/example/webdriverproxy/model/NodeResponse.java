@@ -0,0 +1,18 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant la réponse d'un nœud Selenium à une commande envoyée directement par le proxy.
+ */
+@Data
+@Accessors(chain = true)
+public class NodeResponse {
+
+    /** Le code de statut HTTP de la réponse. */
+    private int status;
+
+    /** Le corps brut de la réponse, vide s'il est absent. */
+    private String body;
+}
@@ -0,0 +1,25 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant une session WebDriver créée à l'avance et conservée dans le pool de sessions.
+ * Elle conserve le nœud qui l'héberge et la réponse de création, renvoyée telle quelle au client qui l'obtient.
+ */
+@Data
+@Accessors(chain = true)
+public class PooledSession {
+
+    /** L'identifiant de la session. */
+    private String sessionId;
+
+    /** Le nœud Selenium hébergeant la session. */
+    private GridNode node;
+
+    /** Le corps de la réponse de création de session renvoyée par le nœud. */
+    private String responseBody;
+
+    /** L'instant de création de la session, selon {@link System#nanoTime()}. */
+    private long createdNanos;
+}
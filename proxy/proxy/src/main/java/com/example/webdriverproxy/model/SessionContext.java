@@ -1,6 +1,9 @@
 package com.example.webdriverproxy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -26,4 +29,16 @@ public class SessionContext {
 
     /** Le corps de la requête utilisé pour créer la session. */
     private String createSessionReqBody;
+
+    /** Le délai d'attente des éléments demandé par la capacité {@code proxy:elementWait}, en millisecondes (0 si absent). */
+    private long elementWaitMillis;
+
+    /** La durée de validité des lectures mises en cache demandée par la capacité {@code proxy:readCache}, en millisecondes (0 si absent). */
+    private long readCacheTtlMillis;
+
+    /** Le cache des lectures de la session, créé à la première lecture et propre à chaque instance du proxy. */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SessionReadCache readCache;
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.webdriverproxy.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Le cache des lectures d'une session : les réponses aux commandes en lecture seule (URL, titre, fenêtres, état des
+ * éléments), indexées par leur chemin relatif à la session et valables jusqu'à leur échéance.
+ * <p>
+ * Toute commande qui modifie l'état de la session vide le cache et incrémente sa génération ; une réponse n'est
+ * conservée que si la génération n'a pas changé depuis l'envoi de sa commande, si bien qu'une lecture en vol pendant
+ * une modification n'est jamais mise en cache.
+ */
+public class SessionReadCache {
+
+    private final Map<String, CachedRead> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxEntries;
+
+    /**
+     * Construit un cache vide.
+     *
+     * @param maxEntries le nombre maximal de réponses conservées ; au-delà, le cache est vidé
+     */
+    public SessionReadCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Une réponse mise en cache.
+     *
+     * @param status         le code de statut HTTP
+     * @param body           le corps de la réponse
+     * @param expiresAtNanos l'échéance de la réponse, selon {@link System#nanoTime()}
+     */
+    public record CachedRead(int status, byte[] body, long expiresAtNanos) {}
+
+    /**
+     * Retourne la génération courante, à relever avant l'envoi d'une lecture.
+     *
+     * @return la génération courante
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Recherche la réponse d'une lecture encore valable.
+     *
+     * @param commandPath le chemin de la commande relatif à la session, par exemple {@code /title}
+     * @param nowNanos    l'instant présent, selon {@link System#nanoTime()}
+     * @return la réponse en cache, ou null si elle est absente ou échue
+     */
+    public CachedRead get(String commandPath, long nowNanos) {
+        CachedRead read = entries.get(commandPath);
+        if (read == null) {
+            return null;
+        }
+        if (nowNanos - read.expiresAtNanos() >= 0) {
+            entries.remove(commandPath, read);
+            return null;
+        }
+        return read;
+    }
+
+    /**
+     * Conserve la réponse d'une lecture, sauf si une modification a eu lieu depuis l'envoi de la commande.
+     *
+     * @param commandPath      le chemin de la commande relatif à la session
+     * @param sentAtGeneration la génération relevée avant l'envoi de la commande
+     * @param read             la réponse à conserver
+     * @return true si la réponse a été conservée
+     */
+    public boolean put(String commandPath, long sentAtGeneration, CachedRead read) {
+        if (generation.get() != sentAtGeneration) {
+            return false;
+        }
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(commandPath, read);
+        if (generation.get() != sentAtGeneration) {
+            // Modification concurrente : la réponse a pu être conservée après le vidage
+            entries.remove(commandPath, read);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Vide le cache après une commande qui modifie l'état de la session.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+}
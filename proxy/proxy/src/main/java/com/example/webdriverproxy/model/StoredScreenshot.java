@@ -0,0 +1,20 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant une capture d'écran conservée dans le magasin de captures du proxy.
+ * Une capture est identifiée par l'empreinte SHA-256 de son contenu PNG : deux captures identiques partagent le même
+ * identifiant et le même fichier.
+ */
+@Data
+@Accessors(chain = true)
+public class StoredScreenshot {
+
+    /** L'empreinte SHA-256 du contenu, en hexadécimal. */
+    private String id;
+
+    /** La taille de l'image décodée, en octets. */
+    private long size;
+}
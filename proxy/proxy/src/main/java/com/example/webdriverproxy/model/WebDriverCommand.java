@@ -0,0 +1,143 @@
+package com.example.webdriverproxy.model;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Une énumération des points de terminaison WebDriver W3C (et des extensions Selenium courantes) relayés par le proxy.
+ * Chaque commande associe une méthode HTTP à un modèle de chemin relatif à {@code /wd/hub}, dont les segments
+ * variables (identifiants de session, d'élément, noms) sont notés entre accolades. Le modèle normalisé, par exemple
+ * {@code POST /session/{id}/element}, sert d'étiquette stable pour les métriques et de clé de classification.
+ */
+public enum WebDriverCommand {
+
+    NEW_SESSION("POST", "/session"),
+    DELETE_SESSION("DELETE", "/session/{id}"),
+    STATUS("GET", "/status"),
+    GET_TIMEOUTS("GET", "/session/{id}/timeouts"),
+    SET_TIMEOUTS("POST", "/session/{id}/timeouts"),
+    NAVIGATE_TO("POST", "/session/{id}/url"),
+    GET_CURRENT_URL("GET", "/session/{id}/url"),
+    BACK("POST", "/session/{id}/back"),
+    FORWARD("POST", "/session/{id}/forward"),
+    REFRESH("POST", "/session/{id}/refresh"),
+    GET_TITLE("GET", "/session/{id}/title"),
+    GET_WINDOW_HANDLE("GET", "/session/{id}/window"),
+    CLOSE_WINDOW("DELETE", "/session/{id}/window"),
+    SWITCH_TO_WINDOW("POST", "/session/{id}/window"),
+    GET_WINDOW_HANDLES("GET", "/session/{id}/window/handles"),
+    NEW_WINDOW("POST", "/session/{id}/window/new"),
+    SWITCH_TO_FRAME("POST", "/session/{id}/frame"),
+    SWITCH_TO_PARENT_FRAME("POST", "/session/{id}/frame/parent"),
+    GET_WINDOW_RECT("GET", "/session/{id}/window/rect"),
+    SET_WINDOW_RECT("POST", "/session/{id}/window/rect"),
+    MAXIMIZE_WINDOW("POST", "/session/{id}/window/maximize"),
+    MINIMIZE_WINDOW("POST", "/session/{id}/window/minimize"),
+    FULLSCREEN_WINDOW("POST", "/session/{id}/window/fullscreen"),
+    GET_ACTIVE_ELEMENT("GET", "/session/{id}/element/active"),
+    GET_ELEMENT_SHADOW_ROOT("GET", "/session/{id}/element/{elementId}/shadow"),
+    FIND_ELEMENT("POST", "/session/{id}/element"),
+    FIND_ELEMENTS("POST", "/session/{id}/elements"),
+    FIND_ELEMENT_FROM_ELEMENT("POST", "/session/{id}/element/{elementId}/element"),
+    FIND_ELEMENTS_FROM_ELEMENT("POST", "/session/{id}/element/{elementId}/elements"),
+    FIND_ELEMENT_FROM_SHADOW_ROOT("POST", "/session/{id}/shadow/{shadowId}/element"),
+    FIND_ELEMENTS_FROM_SHADOW_ROOT("POST", "/session/{id}/shadow/{shadowId}/elements"),
+    IS_ELEMENT_SELECTED("GET", "/session/{id}/element/{elementId}/selected"),
+    IS_ELEMENT_DISPLAYED("GET", "/session/{id}/element/{elementId}/displayed"),
+    IS_ELEMENT_ENABLED("GET", "/session/{id}/element/{elementId}/enabled"),
+    GET_ELEMENT_ATTRIBUTE("GET", "/session/{id}/element/{elementId}/attribute/{name}"),
+    GET_ELEMENT_PROPERTY("GET", "/session/{id}/element/{elementId}/property/{name}"),
+    GET_ELEMENT_CSS_VALUE("GET", "/session/{id}/element/{elementId}/css/{name}"),
+    GET_ELEMENT_TEXT("GET", "/session/{id}/element/{elementId}/text"),
+    GET_ELEMENT_TAG_NAME("GET", "/session/{id}/element/{elementId}/name"),
+    GET_ELEMENT_RECT("GET", "/session/{id}/element/{elementId}/rect"),
+    GET_COMPUTED_ROLE("GET", "/session/{id}/element/{elementId}/computedrole"),
+    GET_COMPUTED_LABEL("GET", "/session/{id}/element/{elementId}/computedlabel"),
+    ELEMENT_CLICK("POST", "/session/{id}/element/{elementId}/click"),
+    ELEMENT_CLEAR("POST", "/session/{id}/element/{elementId}/clear"),
+    ELEMENT_SEND_KEYS("POST", "/session/{id}/element/{elementId}/value"),
+    TAKE_ELEMENT_SCREENSHOT("GET", "/session/{id}/element/{elementId}/screenshot"),
+    GET_PAGE_SOURCE("GET", "/session/{id}/source"),
+    EXECUTE_SCRIPT("POST", "/session/{id}/execute/sync"),
+    EXECUTE_ASYNC_SCRIPT("POST", "/session/{id}/execute/async"),
+    GET_ALL_COOKIES("GET", "/session/{id}/cookie"),
+    GET_NAMED_COOKIE("GET", "/session/{id}/cookie/{name}"),
+    ADD_COOKIE("POST", "/session/{id}/cookie"),
+    DELETE_COOKIE("DELETE", "/session/{id}/cookie/{name}"),
+    DELETE_ALL_COOKIES("DELETE", "/session/{id}/cookie"),
+    PERFORM_ACTIONS("POST", "/session/{id}/actions"),
+    RELEASE_ACTIONS("DELETE", "/session/{id}/actions"),
+    DISMISS_ALERT("POST", "/session/{id}/alert/dismiss"),
+    ACCEPT_ALERT("POST", "/session/{id}/alert/accept"),
+    GET_ALERT_TEXT("GET", "/session/{id}/alert/text"),
+    SEND_ALERT_TEXT("POST", "/session/{id}/alert/text"),
+    TAKE_SCREENSHOT("GET", "/session/{id}/screenshot"),
+    PRINT_PAGE("POST", "/session/{id}/print"),
+    UPLOAD_FILE("POST", "/session/{id}/se/file"),
+    BATCH("POST", "/session/{id}/proxy/batch"),
+    OTHER("*", "/**");
+
+    private static final String PATH_PREFIX = "/wd/hub";
+    private static final WebDriverCommand[] COMMANDS = values();
+
+    private final HttpMethod method;
+    private final String[] segments;
+    private final String template;
+
+    WebDriverCommand(String method, String pathTemplate) {
+        this.method = "*".equals(method) ? null : HttpMethod.valueOf(method);
+        this.segments = pathTemplate.substring(1).split("/");
+        this.template = method + " " + pathTemplate;
+    }
+
+    /**
+     * Retourne le modèle normalisé de la commande, par exemple {@code POST /session/{id}/element}.
+     *
+     * @return le modèle de la commande
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Identifie la commande WebDriver correspondant à une requête, sans allocation.
+     * Le préfixe {@code /wd/hub} est ignoré s'il est présent.
+     *
+     * @param method la méthode HTTP de la requête
+     * @param path   le chemin de la requête
+     * @return la commande correspondante, ou {@link #OTHER} si aucun modèle ne correspond
+     */
+    public static WebDriverCommand of(HttpMethod method, String path) {
+        int start = path.startsWith(PATH_PREFIX) ? PATH_PREFIX.length() : 0;
+        int end = path.length() > start + 1 && path.charAt(path.length() - 1) == '/' ? path.length() - 1 : path.length();
+        for (WebDriverCommand command : COMMANDS) {
+            if (command.method != null && command.method.equals(method) && command.matches(path, start, end)) {
+                return command;
+            }
+        }
+        return OTHER;
+    }
+
+    private boolean matches(String path, int start, int end) {
+        int position = start;
+        for (String segment : segments) {
+            if (position >= end || path.charAt(position) != '/') {
+                return false;
+            }
+            int segmentStart = position + 1;
+            int segmentEnd = path.indexOf('/', segmentStart);
+            if (segmentEnd < 0 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            int length = segmentEnd - segmentStart;
+            if (segment.charAt(0) == '{') {
+                if (length == 0) {
+                    return false;
+                }
+            } else if (length != segment.length() || !path.regionMatches(segmentStart, segment, 0, length)) {
+                return false;
+            }
+            position = segmentEnd;
+        }
+        return position == end;
+    }
+}
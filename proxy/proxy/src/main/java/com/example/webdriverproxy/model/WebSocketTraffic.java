@@ -0,0 +1,34 @@
+package com.example.webdriverproxy.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Une classe modèle représentant le trafic WebSocket (BiDi, CDP, VNC) relayé par le proxy pour une session : les
+ * connexions ouvertes et le nombre de trames et d'octets transmis dans chaque sens depuis la première connexion.
+ */
+@Data
+@Accessors(chain = true)
+public class WebSocketTraffic {
+
+    /** L'identifiant de la session attribué par le Grid. */
+    private String sessionId;
+
+    /** Le nombre de connexions WebSocket de la session actuellement relayées. */
+    private int openConnections;
+
+    /** Le nombre total de connexions WebSocket relayées pour la session. */
+    private long totalConnections;
+
+    /** Le nombre de trames relayées du client vers le nœud. */
+    private long framesToNode;
+
+    /** Le nombre d'octets de charge utile relayés du client vers le nœud. */
+    private long bytesToNode;
+
+    /** Le nombre de trames relayées du nœud vers le client. */
+    private long framesToClient;
+
+    /** Le nombre d'octets de charge utile relayés du nœud vers le client. */
+    private long bytesToClient;
+}
@@ -0,0 +1,184 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.journal.CommandJournal;
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.BatchCommand;
+import com.example.webdriverproxy.model.CommandRecord;
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.NodeResponse;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Un service qui exécute un lot de commandes WebDriver pour une session existante.
+ * Les commandes sont envoyées l'une après l'autre, dans l'ordre, au nœud Selenium de la session, puis leurs réponses
+ * sont regroupées dans une réponse unique : un enchaînement scripté ne coûte ainsi qu'un aller-retour entre le client
+ * et le proxy. Chaque commande du lot est journalisée et mesurée comme une commande relayée individuellement.
+ * <p>
+ * Le corps d'un lot a la forme suivante :
+ * <pre>
+ * {"stopOnError": true, "commands": [
+ *     {"method": "POST", "path": "/url", "body": {"url": "https://example.com"}},
+ *     {"method": "POST", "path": "/element", "body": {"using": "css selector", "value": "#login"}},
+ *     {"method": "GET", "path": "/title"}]}
+ * </pre>
+ * et la réponse regroupe le statut et la réponse brute de chaque commande exécutée :
+ * <pre>
+ * {"value": {"completed": true, "results": [{"status": 200, "response": {"value": null}}, ...]}}
+ * </pre>
+ * {@code completed} vaut false lorsque l'exécution s'est arrêtée sur une erreur avant la fin du lot. Une réponse du nœud
+ * qui n'est pas du JSON est placée dans {@code response} sous forme de chaîne.
+ */
+@Service
+public class BatchCommandService {
+
+    private static final String SESSION_PATH = "/wd/hub/session/";
+    private static final Set<String> ALLOWED_METHODS = Set.of("GET", "POST", "DELETE");
+
+    private final JsonMapper jsonMapper;
+    private final GridNodeService gridNodeService;
+    private final SessionContextService sessionContextService;
+    private final CommandJournal commandJournal;
+    private final CommandMetricsService commandMetricsService;
+    private final NodeCommandService nodeCommandService;
+    private final int maxCommands;
+    private final Duration commandTimeout;
+
+    /**
+     * Construit une instance de {@code BatchCommandService} avec les dépendances requises.
+     *
+     * @param jsonMapper            le service de mappage JSON utilisé pour lire les lots
+     * @param gridNodeService       le service qui gère les nœuds Selenium
+     * @param sessionContextService le service qui conserve les sessions, mis à jour si le lot supprime la session
+     * @param commandJournal        le journal dans lequel les commandes du lot sont publiées
+     * @param commandMetricsService le service qui publie les métriques des commandes
+     * @param nodeCommandService    le service qui envoie les commandes au nœud de la session
+     * @param maxCommands           le nombre maximal de commandes par lot
+     * @param commandTimeout        la durée maximale d'exécution d'une commande du lot
+     */
+    public BatchCommandService(JsonMapper jsonMapper, GridNodeService gridNodeService,
+                               SessionContextService sessionContextService, CommandJournal commandJournal,
+                               CommandMetricsService commandMetricsService, NodeCommandService nodeCommandService,
+                               @Value("${proxy.batch.max-commands:100}") int maxCommands,
+                               @Value("${proxy.batch.command-timeout:5m}") Duration commandTimeout) {
+        this.jsonMapper = jsonMapper;
+        this.gridNodeService = gridNodeService;
+        this.sessionContextService = sessionContextService;
+        this.commandJournal = commandJournal;
+        this.commandMetricsService = commandMetricsService;
+        this.nodeCommandService = nodeCommandService;
+        this.maxCommands = maxCommands;
+        this.commandTimeout = commandTimeout;
+    }
+
+    /**
+     * Exécute un lot de commandes dans l'ordre sur le nœud de la session.
+     *
+     * @param sessionContext le contexte de la session
+     * @param requestBody    le corps JSON du lot
+     * @return un {@link Mono} émettant le corps JSON de la réponse regroupée, ou une
+     * {@link IllegalArgumentException} si le lot est invalide
+     */
+    public Mono<String> execute(SessionContext sessionContext, String requestBody) {
+        Map<String, Object> request;
+        List<BatchCommand> commands;
+        try {
+            request = jsonMapper.convertRequest(requestBody);
+            commands = parseCommands(request);
+        } catch (RuntimeException e) {
+            return Mono.error(e instanceof IllegalArgumentException ? e : new IllegalArgumentException(e.getMessage(), e));
+        }
+        boolean stopOnError = Boolean.TRUE.equals(request.get("stopOnError"));
+        return Flux.fromIterable(commands)
+                .concatMap(command -> executeCommand(sessionContext, command))
+                .takeUntil(result -> stopOnError && result.getStatus() >= 400)
+                .collectList()
+                .map(results -> {
+                    // Les réponses JSON du nœud sont recopiées telles quelles après une simple vérification en flux ;
+                    // les autres (page HTML d'un répartiteur, corps tronqué) sont transmises comme chaîne JSON
+                    StringBuilder response = new StringBuilder("{\"value\": {\"completed\": ")
+                            .append(results.size() == commands.size())
+                            .append(", \"results\": [");
+                    for (int i = 0; i < results.size(); i++) {
+                        NodeResponse result = results.get(i);
+                        response.append(i > 0 ? ", " : "")
+                                .append("{\"status\": ").append(result.getStatus())
+                                .append(", \"response\": ").append(toResponseValue(result.getBody()))
+                                .append('}');
+                    }
+                    return response.append("]}}").toString();
+                });
+    }
+
+    private String toResponseValue(String body) {
+        if (body.isBlank()) {
+            return "null";
+        }
+        return jsonMapper.isJson(body) ? body : jsonMapper.toJson(body);
+    }
+
+    private List<BatchCommand> parseCommands(Map<String, Object> request) {
+        if (!(request.get("commands") instanceof List<?> entries) || entries.isEmpty()) {
+            throw new IllegalArgumentException("Le lot doit contenir une liste \"commands\" non vide");
+        }
+        if (entries.size() > maxCommands) {
+            throw new IllegalArgumentException("Le lot dépasse " + maxCommands + " commandes");
+        }
+        List<BatchCommand> commands = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?> command) || !(command.get("method") instanceof String method)
+                    || !(command.get("path") instanceof String path)) {
+                throw new IllegalArgumentException("Commande de lot invalide : " + entry);
+            }
+            String httpMethod = method.toUpperCase();
+            if (!ALLOWED_METHODS.contains(httpMethod)) {
+                throw new IllegalArgumentException("Méthode de commande invalide : " + method);
+            }
+            if (!path.isEmpty() && (!path.startsWith("/") || path.contains(".."))) {
+                throw new IllegalArgumentException("Chemin de commande invalide : " + path);
+            }
+            Object body = command.get("body");
+            commands.add(new BatchCommand()
+                    .setMethod(httpMethod)
+                    .setPath(path)
+                    .setBody(body != null ? jsonMapper.toJson(body) : null));
+        }
+        return commands;
+    }
+
+    private Mono<NodeResponse> executeCommand(SessionContext sessionContext, BatchCommand command) {
+        String path = SESSION_PATH + sessionContext.getSessionId() + command.getPath();
+        HttpMethod method = HttpMethod.valueOf(command.getMethod());
+        CommandTiming timing = new CommandTiming();
+        timing.setStartNanos(System.nanoTime());
+        return nodeCommandService.send(sessionContext, method, command.getPath(), command.getBody(), commandTimeout, timing)
+                .doOnNext(result -> {
+                    WebDriverCommand webDriverCommand = WebDriverCommand.of(method, path);
+                    if (webDriverCommand == WebDriverCommand.DELETE_SESSION && result.getStatus() < 300) {
+                        sessionContextService.removeSessionContext(sessionContext.getSessionId());
+                    }
+                    long endNanos = System.nanoTime();
+                    commandMetricsService.recordCommand(webDriverCommand, gridNodeService.getNode(sessionContext.getUrl()),
+                            result.getStatus(), timing, endNanos);
+                    commandJournal.record(new CommandRecord()
+                            .setTimestamp(System.currentTimeMillis())
+                            .setDurationNanos(endNanos - timing.getStartNanos())
+                            .setStatus(result.getStatus())
+                            .setSessionId(sessionContext.getSessionId())
+                            .setMethod(command.getMethod())
+                            .setPath(path)
+                            .setBody(command.getBody()));
+                });
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Un registre des sessions partagé entre plusieurs instances du proxy, pour les déployer derrière un répartiteur de
+ * charge. Chaque session est confiée à {@code proxy.session.registry.replication-factor} instances, choisies par
+ * hachage de rendez-vous de son identifiant parmi {@code proxy.session.registry.members} : chaque instance ne conserve
+ * que sa partition, et l'ajout ou la perte d'une instance ne déplace que les sessions qu'elle détenait.
+ * <p>
+ * Une session est écrite sur toutes ses répliques et lue sur la première qui répond ; une réplique qui l'avait perdue
+ * (instance redémarrée) la reçoit de nouveau à la lecture. Une instance injoignable est écartée pendant
+ * {@code proxy.session.registry.member-retry}, le temps que ses sessions soient servies par les autres répliques.
+ * <p>
+ * Les répliques expirent après {@code proxy.session.idle-timeout} sans lecture ; le cache local de chaque instance
+ * ayant une durée de vie courte, une session active est relue régulièrement par les instances qui la servent. À
+ * l'expiration, seule la première réplique joignable signale la session aux écouteurs d'expiration.
+ * <p>
+ * Les échanges entre instances portent la clé {@code proxy.session.registry.secret} dans l'en-tête
+ * {@value #SECRET_HEADER} : la partition n'est ni lue ni modifiée par un client qui ne la connaît pas.
+ */
+@Slf4j(topic = "proxy")
+@Service
+@ConditionalOnProperty(name = "proxy.session.registry.type", havingValue = "cluster")
+public class ClusterSessionRegistry implements SessionRegistry {
+
+    /** Le chemin, sur chaque instance, de la partition du registre ; l'identifiant de session y est ajouté. */
+    public static final String REGISTRY_PATH = "/wd/hub/proxy/registry/sessions/";
+
+    /** L'en-tête qui porte la clé partagée par les instances du cluster. */
+    public static final String SECRET_HEADER = "X-Proxy-Registry-Secret";
+
+    private final List<String> members;
+    private final String self;
+    private final int replicationFactor;
+    private final Duration memberRetry;
+    private final byte[] secret;
+    private final Transport transport;
+    private final Cache<String, SessionContext> partition;
+    private final Map<String, Long> unreachableUntil = new ConcurrentHashMap<>();
+    private final List<Consumer<SessionContext>> expirationListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Construit une instance de {@code ClusterSessionRegistry} dont les instances communiquent en HTTP.
+     *
+     * @param jsonMapper        le service de mappage JSON utilisé pour transmettre les contextes de session
+     * @param webClientBuilder  le constructeur du client HTTP utilisé pour joindre les autres instances
+     * @param members           les adresses de toutes les instances du cluster, y compris celle-ci
+     * @param self              l'adresse de cette instance, telle qu'elle figure dans {@code members}
+     * @param replicationFactor le nombre d'instances qui conservent chaque session
+     * @param maximumSize       le nombre maximal de sessions conservées dans la partition de cette instance
+     * @param idleTimeout       la durée sans lecture au-delà de laquelle une session expire
+     * @param timeout           la durée maximale d'un échange avec une autre instance
+     * @param memberRetry       la durée pendant laquelle une instance injoignable est écartée
+     * @param secret            la clé partagée par les instances du cluster, exigée sur leurs échanges
+     */
+    @Autowired
+    public ClusterSessionRegistry(JsonMapper jsonMapper, WebClient.Builder webClientBuilder,
+                                  @Value("${proxy.session.registry.members}") List<String> members,
+                                  @Value("${proxy.session.registry.self}") String self,
+                                  @Value("${proxy.session.registry.replication-factor:2}") int replicationFactor,
+                                  @Value("${proxy.session.maximum-size:10000}") long maximumSize,
+                                  @Value("${proxy.session.idle-timeout:1h}") Duration idleTimeout,
+                                  @Value("${proxy.session.registry.timeout:2s}") Duration timeout,
+                                  @Value("${proxy.session.registry.member-retry:10s}") Duration memberRetry,
+                                  @Value("${proxy.session.registry.secret:}") String secret) {
+        this(members, self, replicationFactor, maximumSize, idleTimeout, memberRetry, secret,
+                new HttpTransport(jsonMapper, webClientBuilder.build(), timeout, secret));
+    }
+
+    /**
+     * Construit une instance de {@code ClusterSessionRegistry} avec un transport donné, par exemple pour réunir
+     * plusieurs registres dans un même processus.
+     *
+     * @param members           les adresses de toutes les instances du cluster, y compris celle-ci
+     * @param self              l'adresse de cette instance, telle qu'elle figure dans {@code members}
+     * @param replicationFactor le nombre d'instances qui conservent chaque session
+     * @param maximumSize       le nombre maximal de sessions conservées dans la partition de cette instance
+     * @param idleTimeout       la durée sans lecture au-delà de laquelle une session expire
+     * @param memberRetry       la durée pendant laquelle une instance injoignable est écartée
+     * @param secret            la clé partagée par les instances du cluster, exigée sur leurs échanges
+     * @param transport         le transport utilisé pour joindre les autres instances
+     */
+    ClusterSessionRegistry(List<String> members, String self, int replicationFactor, long maximumSize,
+                           Duration idleTimeout, Duration memberRetry, String secret, Transport transport) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("[Proxy] La clé proxy.session.registry.secret est obligatoire avec un "
+                    + "registre de sessions partagé");
+        }
+        this.members = members.stream().map(String::trim).filter(member -> !member.isEmpty()).distinct().toList();
+        this.self = self.trim();
+        if (!this.members.contains(this.self)) {
+            throw new IllegalArgumentException("[Proxy] L'instance " + self + " ne fait pas partie du cluster " + members);
+        }
+        this.replicationFactor = Math.max(1, Math.min(replicationFactor, this.members.size()));
+        this.memberRetry = memberRetry;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.transport = transport;
+        this.partition = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleTimeout)
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String sessionId, SessionContext sessionContext, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED && sessionContext != null && isFirstReachableOwner(sessionId)) {
+                        expirationListeners.forEach(listener -> listener.accept(sessionContext));
+                    }
+                })
+                .build();
+        log.info("[Proxy] Registre de sessions partagé : instance {} parmi {}, {} réplique(s) par session",
+                this.self, this.members, this.replicationFactor);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public Mono<Void> register(SessionContext sessionContext) {
+        return Flux.fromIterable(getOwners(sessionContext.getSessionId()))
+                .flatMap(member -> put(member, sessionContext))
+                .then();
+    }
+
+    @Override
+    public Mono<SessionContext> lookup(String sessionId) {
+        return lookup(sessionId, getOwners(sessionId), 0);
+    }
+
+    private Mono<SessionContext> lookup(String sessionId, List<String> owners, int index) {
+        if (index >= owners.size()) {
+            return Mono.empty();
+        }
+        return get(owners.get(index), sessionId)
+                .doOnNext(sessionContext -> {
+                    // Les répliques précédentes ont perdu la session : elles la reçoivent de nouveau
+                    owners.subList(0, index).forEach(member -> put(member, sessionContext).subscribe());
+                    // Les répliques suivantes sont relues pour que la session n'y expire pas
+                    owners.subList(index + 1, owners.size()).forEach(member -> get(member, sessionId).subscribe());
+                })
+                .switchIfEmpty(Mono.defer(() -> lookup(sessionId, owners, index + 1)));
+    }
+
+    @Override
+    public Mono<Void> unregister(String sessionId) {
+        return Flux.fromIterable(getOwners(sessionId))
+                .flatMap(member -> remove(member, sessionId))
+                .then();
+    }
+
+    @Override
+    public void addExpirationListener(Consumer<SessionContext> listener) {
+        expirationListeners.add(listener);
+    }
+
+    /**
+     * Conserve une session dans la partition de cette instance, à la demande d'une autre instance.
+     *
+     * @param sessionContext le contexte de la session
+     */
+    public void storeLocal(SessionContext sessionContext) {
+        partition.put(sessionContext.getSessionId(), sessionContext);
+    }
+
+    /**
+     * Lit une session dans la partition de cette instance, à la demande d'une autre instance.
+     *
+     * @param sessionId l'identifiant de la session
+     * @return le contexte de la session, ou null si cette instance ne la détient pas
+     */
+    public SessionContext findLocal(String sessionId) {
+        return partition.getIfPresent(sessionId);
+    }
+
+    /**
+     * Retire une session de la partition de cette instance, à la demande d'une autre instance.
+     *
+     * @param sessionId l'identifiant de la session
+     */
+    public void removeLocal(String sessionId) {
+        partition.invalidate(sessionId);
+    }
+
+    /**
+     * Indique si une clé reçue d'une autre instance est celle du cluster, par une comparaison en temps constant.
+     *
+     * @param secret la clé reçue, ou null si elle est absente
+     * @return true si la clé est celle du cluster
+     */
+    public boolean isAuthorized(String secret) {
+        return secret != null && MessageDigest.isEqual(this.secret, secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Retourne le nombre approximatif de sessions conservées dans la partition de cette instance.
+     *
+     * @return le nombre de sessions de la partition
+     */
+    public long getPartitionSize() {
+        return partition.estimatedSize();
+    }
+
+    /**
+     * Retourne les instances qui conservent une session, les instances joignables en premier, puis par score de
+     * hachage de rendez-vous décroissant.
+     *
+     * @param sessionId l'identifiant de la session
+     * @return les répliques de la session, par ordre de préférence
+     */
+    List<String> getOwners(String sessionId) {
+        List<String> owners = new ArrayList<>(members);
+        owners.sort(Comparator.comparingLong((String member) -> score(member, sessionId)).reversed());
+        List<String> replicas = new ArrayList<>(owners.subList(0, replicationFactor));
+        replicas.sort(Comparator.comparing(member -> !isReachable(member)));
+        return replicas;
+    }
+
+    private boolean isFirstReachableOwner(String sessionId) {
+        return self.equals(getOwners(sessionId).get(0));
+    }
+
+    private boolean isReachable(String member) {
+        Long until = unreachableUntil.get(member);
+        return until == null || System.nanoTime() - until > 0;
+    }
+
+    private <T> Mono<T> markUnreachable(String member, Throwable error) {
+        if (isReachable(member)) {
+            log.warn("[Proxy] Instance {} du registre injoignable, écartée pendant {} : {}",
+                    member, memberRetry, error.getMessage());
+        }
+        unreachableUntil.put(member, System.nanoTime() + memberRetry.toNanos());
+        return Mono.empty();
+    }
+
+    private Mono<Void> put(String member, SessionContext sessionContext) {
+        if (self.equals(member)) {
+            return Mono.fromRunnable(() -> storeLocal(sessionContext));
+        }
+        return transport.put(member, sessionContext)
+                .doOnSuccess(ignored -> unreachableUntil.remove(member))
+                .onErrorResume(error -> markUnreachable(member, error));
+    }
+
+    private Mono<SessionContext> get(String member, String sessionId) {
+        if (self.equals(member)) {
+            return Mono.fromSupplier(() -> findLocal(sessionId));
+        }
+        return transport.get(member, sessionId)
+                .doOnSuccess(ignored -> unreachableUntil.remove(member))
+                .onErrorResume(error -> markUnreachable(member, error));
+    }
+
+    private Mono<Void> remove(String member, String sessionId) {
+        if (self.equals(member)) {
+            return Mono.fromRunnable(() -> removeLocal(sessionId));
+        }
+        return transport.remove(member, sessionId)
+                .onErrorResume(error -> markUnreachable(member, error));
+    }
+
+    /**
+     * Calcule le score de hachage de rendez-vous d'une instance pour une session (FNV-1a 64 bits, puis mélange final).
+     */
+    private static long score(String member, String sessionId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (member + '\n' + sessionId).getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Le moyen de joindre la partition des autres instances du cluster.
+     */
+    interface Transport {
+
+        Mono<Void> put(String member, SessionContext sessionContext);
+
+        Mono<SessionContext> get(String member, String sessionId);
+
+        Mono<Void> remove(String member, String sessionId);
+    }
+
+    /**
+     * Le transport HTTP entre instances, sur {@value #REGISTRY_PATH}.
+     */
+    private record HttpTransport(JsonMapper jsonMapper, WebClient webClient, Duration timeout, String secret)
+            implements Transport {
+
+        @Override
+        public Mono<Void> put(String member, SessionContext sessionContext) {
+            return webClient.put()
+                    .uri(member + REGISTRY_PATH + sessionContext.getSessionId())
+                    .header(SECRET_HEADER, secret)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(jsonMapper.toJson(sessionContext))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(timeout)
+                    .then();
+        }
+
+        @Override
+        public Mono<SessionContext> get(String member, String sessionId) {
+            return webClient.get()
+                    .uri(member + REGISTRY_PATH + sessionId)
+                    .header(SECRET_HEADER, secret)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchangeToMono(response -> {
+                        if (response.statusCode() == HttpStatus.NOT_FOUND) {
+                            return response.releaseBody().then(Mono.<String>empty());
+                        }
+                        if (response.statusCode().isError()) {
+                            return response.<String>createError();
+                        }
+                        return response.bodyToMono(String.class);
+                    })
+                    .timeout(timeout)
+                    .map(body -> jsonMapper.fromJson(body, SessionContext.class));
+        }
+
+        @Override
+        public Mono<Void> remove(String member, String sessionId) {
+            return webClient.delete()
+                    .uri(member + REGISTRY_PATH + sessionId)
+                    .header(SECRET_HEADER, secret)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(timeout)
+                    .then();
+        }
+    }
+}
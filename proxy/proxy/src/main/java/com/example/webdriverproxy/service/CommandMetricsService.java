@@ -0,0 +1,140 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Un service qui publie les métriques Micrometer des commandes WebDriver relayées par le proxy.
+ * Chaque commande alimente trois histogrammes, étiquetés par modèle de commande ({@code endpoint}), nœud
+ * ({@code node}) et issue ({@code outcome}) :
+ * <ul>
+ *     <li>{@code proxy.command.duration} : la durée totale, de la réception à l'écriture complète de la réponse ;</li>
+ *     <li>{@code proxy.command.upstream.ttfb} : le temps de premier octet du nœud, de la transmission de la commande
+ *     à la réception des en-têtes de sa réponse ;</li>
+ *     <li>{@code proxy.command.overhead} : la part propre au proxy, c'est-à-dire la durée totale moins le temps de
+ *     premier octet du nœud (filtres, routage et relais du corps de la réponse).</li>
+ * </ul>
+ * Les combinaisons d'étiquettes étant bornées, les timers sont créés à la première utilisation puis conservés dans
+ * un tableau indexé par commande, nœud et issue : l'enregistrement d'une mesure n'alloue ni étiquettes ni identifiants.
+ * Le service expose aussi les jauges des sessions actives du proxy et de chaque nœud, l'état du disjoncteur de chaque
+ * nœud, ainsi que l'état du pool de sessions préparées.
+ */
+@Service
+public class CommandMetricsService {
+
+    /** L'étiquette de nœud des commandes qui n'ont pas été routées vers un nœud connu. */
+    static final String DEFAULT_NODE = "default";
+
+    private static final WebDriverCommand[] COMMANDS = WebDriverCommand.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final int nodeSlots;
+
+    private final AtomicReferenceArray<Timer> durationTimers;
+    private final AtomicReferenceArray<Timer> upstreamTimers;
+    private final AtomicReferenceArray<Timer> overheadTimers;
+
+    /**
+     * Construit une instance de {@code CommandMetricsService} et enregistre les jauges de sessions.
+     *
+     * @param meterRegistry         le registre Micrometer
+     * @param gridNodeService       le service qui gère les nœuds Selenium
+     * @param sessionContextService le service qui conserve les sessions actives
+     * @param sessionPoolService    le service qui maintient les sessions préparées
+     */
+    public CommandMetricsService(MeterRegistry meterRegistry, GridNodeService gridNodeService,
+                                 SessionContextService sessionContextService, SessionPoolService sessionPoolService) {
+        this.meterRegistry = meterRegistry;
+        this.nodeSlots = gridNodeService.getNodes().size() + 1;
+        int size = COMMANDS.length * nodeSlots * OUTCOMES.length;
+        this.durationTimers = new AtomicReferenceArray<>(size);
+        this.upstreamTimers = new AtomicReferenceArray<>(size);
+        this.overheadTimers = new AtomicReferenceArray<>(size);
+
+        Gauge.builder("proxy.sessions.active", sessionContextService, SessionContextService::getSessionCount)
+                .description("Nombre de sessions WebDriver actives connues du proxy")
+                .register(meterRegistry);
+        for (GridNode node : gridNodeService.getNodes()) {
+            Gauge.builder("proxy.node.sessions.active", node, n -> n.getActiveSessions().get())
+                    .description("Nombre de sessions ouvertes sur le nœud via le proxy")
+                    .tag("node", node.getName())
+                    .register(meterRegistry);
+            Gauge.builder("proxy.node.sessions.pending", node, n -> n.getPendingSessions().get())
+                    .description("Nombre de créations de session en cours sur le nœud")
+                    .tag("node", node.getName())
+                    .register(meterRegistry);
+            Gauge.builder("proxy.node.circuit.open", node, n -> n.isCircuitOpen() ? 1 : 0)
+                    .description("Disjoncteur du nœud ouvert (1) ou fermé (0)")
+                    .tag("node", node.getName())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("proxy.session.pool.idle", sessionPoolService, SessionPoolService::getIdleCount)
+                .description("Nombre de sessions préparées disponibles dans le pool")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxy.session.pool.requests", sessionPoolService, SessionPoolService::getHitCount)
+                .description("Demandes de création de session traitées par le pool")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxy.session.pool.requests", sessionPoolService, SessionPoolService::getMissCount)
+                .description("Demandes de création de session traitées par le pool")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre les mesures d'une commande terminée.
+     *
+     * @param command   la commande WebDriver
+     * @param node      le nœud vers lequel la commande a été routée, ou null pour le nœud par défaut de la route
+     * @param status    le code de statut HTTP de la réponse, ou 0 s'il est inconnu
+     * @param timing    les instants mesurés pendant le traitement de la commande
+     * @param endNanos  l'instant de fin de la commande
+     */
+    public void recordCommand(WebDriverCommand command, GridNode node, int status, CommandTiming timing, long endNanos) {
+        Outcome outcome = status > 0 ? Outcome.forStatus(status) : Outcome.UNKNOWN;
+        int nodeSlot = node != null ? node.getIndex() : nodeSlots - 1;
+        int index = (command.ordinal() * nodeSlots + nodeSlot) * OUTCOMES.length + outcome.ordinal();
+
+        long totalNanos = endNanos - timing.getStartNanos();
+        long upstreamNanos = 0;
+        if (timing.getUpstreamStartNanos() != 0 && timing.getUpstreamFirstByteNanos() != 0) {
+            upstreamNanos = timing.getUpstreamFirstByteNanos() - timing.getUpstreamStartNanos();
+            timer(upstreamTimers, index, "proxy.command.upstream.ttfb",
+                    "Temps de premier octet du nœud Selenium", command, node, outcome)
+                    .record(upstreamNanos, TimeUnit.NANOSECONDS);
+        }
+        timer(durationTimers, index, "proxy.command.duration",
+                "Durée totale de la commande à travers le proxy", command, node, outcome)
+                .record(totalNanos, TimeUnit.NANOSECONDS);
+        timer(overheadTimers, index, "proxy.command.overhead",
+                "Durée de la commande hors temps de premier octet du nœud Selenium", command, node, outcome)
+                .record(Math.max(0, totalNanos - upstreamNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(AtomicReferenceArray<Timer> timers, int index, String name, String description,
+                        WebDriverCommand command, GridNode node, Outcome outcome) {
+        Timer timer = timers.get(index);
+        if (timer == null) {
+            // Micrometer renvoie le même timer pour un identifiant déjà enregistré : une course ici est sans effet
+            timer = Timer.builder(name)
+                    .description(description)
+                    .tag("endpoint", command.getTemplate())
+                    .tag("node", node != null ? node.getName() : DEFAULT_NODE)
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry);
+            timers.set(index, timer);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.webdriverproxy.service;
+
+import java.util.Arrays;
+
+/**
+ * Une esquisse count-min : un tableau de compteurs de taille fixe qui estime le nombre d'occurrences de chaque clé,
+ * quelle que soit la variété des clés rencontrées. L'estimation n'est jamais inférieure au nombre réel ; elle le
+ * dépasse d'au plus {@code e / largeur} fois le total des occurrences, avec une probabilité d'échec de
+ * {@code e^-profondeur}. Les mises à jour sont conservatrices : seules les lignes dont le compteur est minimal sont
+ * incrémentées, ce qui réduit la surestimation.
+ * <p>
+ * L'esquisse n'est pas synchronisée ; {@link ErrorAnalyticsService} la protège par le verrou de sa tranche de temps.
+ */
+final class CountMinSketch {
+
+    private final int width;
+    private final long[][] counts;
+
+    /**
+     * Construit une esquisse vide.
+     *
+     * @param width le nombre de compteurs par ligne, arrondi à la puissance de deux supérieure
+     * @param depth le nombre de lignes, c'est-à-dire de fonctions de hachage indépendantes
+     */
+    CountMinSketch(int width, int depth) {
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.counts = new long[depth][this.width];
+    }
+
+    /**
+     * Compte une occurrence d'une clé.
+     *
+     * @param key la clé
+     * @return l'estimation du nombre d'occurrences de la clé, celle-ci comprise
+     */
+    long add(String key) {
+        int hash = key.hashCode();
+        long estimate = estimate(hash);
+        for (int row = 0; row < counts.length; row++) {
+            int column = column(hash, row);
+            if (counts[row][column] == estimate) {
+                counts[row][column]++;
+            }
+        }
+        return estimate + 1;
+    }
+
+    /**
+     * Estime le nombre d'occurrences d'une clé.
+     *
+     * @param key la clé
+     * @return l'estimation, jamais inférieure au nombre réel
+     */
+    long estimate(String key) {
+        return estimate(key.hashCode());
+    }
+
+    /**
+     * Ajoute à cette esquisse les compteurs d'une autre esquisse de mêmes dimensions.
+     *
+     * @param other l'esquisse à ajouter
+     */
+    void merge(CountMinSketch other) {
+        for (int row = 0; row < counts.length; row++) {
+            for (int column = 0; column < width; column++) {
+                counts[row][column] += other.counts[row][column];
+            }
+        }
+    }
+
+    /**
+     * Remet tous les compteurs à zéro.
+     */
+    void clear() {
+        for (long[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private long estimate(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    private int column(int hash, int row) {
+        // Mélange de Murmur3 avec une graine propre à chaque ligne
+        int h = hash ^ (0x9E3779B9 * (row + 1));
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (width - 1);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.NodeResponse;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un service qui attend l'apparition d'un élément côté proxy, à la place des boucles d'attente du client.
+ * Une commande de recherche d'élément est renvoyée au nœud de la session tant qu'elle échoue avec
+ * {@code no such element} (ou, pour les recherches multiples, tant qu'elle ne trouve aucun élément), avec un délai
+ * croissant entre deux tentatives, jusqu'à ce que l'élément apparaisse ou que le délai d'attente soit écoulé.
+ * Seule la dernière réponse est renvoyée au client.
+ */
+@Service
+public class ElementWaitService {
+
+    /** Les commandes de recherche d'élément concernées par l'attente. */
+    public static final Set<WebDriverCommand> FIND_COMMANDS = EnumSet.of(
+            WebDriverCommand.FIND_ELEMENT,
+            WebDriverCommand.FIND_ELEMENTS,
+            WebDriverCommand.FIND_ELEMENT_FROM_ELEMENT,
+            WebDriverCommand.FIND_ELEMENTS_FROM_ELEMENT,
+            WebDriverCommand.FIND_ELEMENT_FROM_SHADOW_ROOT,
+            WebDriverCommand.FIND_ELEMENTS_FROM_SHADOW_ROOT);
+
+    private static final Set<WebDriverCommand> FIND_MANY_COMMANDS = EnumSet.of(
+            WebDriverCommand.FIND_ELEMENTS,
+            WebDriverCommand.FIND_ELEMENTS_FROM_ELEMENT,
+            WebDriverCommand.FIND_ELEMENTS_FROM_SHADOW_ROOT);
+
+    private static final String NO_SUCH_ELEMENT = "no such element";
+    private static final String VALUE = "value";
+
+    private final NodeCommandService nodeCommandService;
+    private final JsonMapper jsonMapper;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final long maxWaitMillis;
+    private final Duration commandTimeout;
+    private final Counter retryCounter;
+
+    /**
+     * Construit une instance de {@code ElementWaitService}.
+     *
+     * @param nodeCommandService le service qui envoie les commandes au nœud de la session
+     * @param jsonMapper         le service de mappage JSON utilisé pour lire les réponses
+     * @param meterRegistry      le registre Micrometer dans lequel les nouvelles tentatives sont comptées
+     * @param initialDelay       le délai avant la première nouvelle tentative
+     * @param maxDelay           le délai maximal entre deux tentatives
+     * @param multiplier         le facteur d'augmentation du délai après chaque tentative
+     * @param maxWait            le délai d'attente maximal accepté, quelle que soit la demande du client
+     * @param commandTimeout     la durée maximale d'une tentative
+     */
+    public ElementWaitService(NodeCommandService nodeCommandService, JsonMapper jsonMapper, MeterRegistry meterRegistry,
+                              @Value("${proxy.element-wait.initial-delay:100ms}") Duration initialDelay,
+                              @Value("${proxy.element-wait.max-delay:1s}") Duration maxDelay,
+                              @Value("${proxy.element-wait.multiplier:1.5}") double multiplier,
+                              @Value("${proxy.element-wait.max-wait:30s}") Duration maxWait,
+                              @Value("${proxy.element-wait.command-timeout:1m}") Duration commandTimeout) {
+        this.nodeCommandService = nodeCommandService;
+        this.jsonMapper = jsonMapper;
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.multiplier = multiplier;
+        this.maxWaitMillis = maxWait.toMillis();
+        this.commandTimeout = commandTimeout;
+        this.retryCounter = Counter.builder("proxy.element.wait.retries")
+                .description("Nouvelles tentatives de recherche d'élément effectuées par le proxy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retourne le délai d'attente effectif, borné par {@code proxy.element-wait.max-wait}.
+     *
+     * @param requestedMillis le délai demandé par le client, en millisecondes
+     * @return le délai d'attente à appliquer, 0 si l'attente est désactivée
+     */
+    public long getWaitMillis(long requestedMillis) {
+        return Math.max(0, Math.min(requestedMillis, maxWaitMillis));
+    }
+
+    /**
+     * Exécute une commande de recherche d'élément en la renouvelant jusqu'à l'apparition de l'élément.
+     *
+     * @param sessionContext le contexte de la session
+     * @param command        la commande de recherche
+     * @param path           le chemin de la commande, relatif à la session
+     * @param body           le corps JSON de la commande
+     * @param waitMillis     le délai d'attente, en millisecondes
+     * @param timing         les instants de la commande à compléter, ou null
+     * @return un {@link Mono} émettant la dernière réponse du nœud
+     */
+    public Mono<NodeResponse> find(SessionContext sessionContext, WebDriverCommand command, String path, String body,
+                                   long waitMillis, CommandTiming timing) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        return attempt(sessionContext, command, path, body, deadlineNanos, initialDelayMillis, timing);
+    }
+
+    private Mono<NodeResponse> attempt(SessionContext sessionContext, WebDriverCommand command, String path, String body,
+                                       long deadlineNanos, long delayMillis, CommandTiming timing) {
+        return nodeCommandService.send(sessionContext, HttpMethod.POST, path, body, commandTimeout, timing)
+                .flatMap(response -> {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                    if (remainingMillis <= 0 || !isNotFound(command, response)) {
+                        return Mono.just(response);
+                    }
+                    retryCounter.increment();
+                    long nextDelayMillis = Math.min(maxDelayMillis, (long) (delayMillis * multiplier));
+                    return Mono.delay(Duration.ofMillis(Math.min(delayMillis, remainingMillis)))
+                            .then(Mono.defer(() -> attempt(sessionContext, command, path, body, deadlineNanos, nextDelayMillis, timing)));
+                });
+    }
+
+    private boolean isNotFound(WebDriverCommand command, NodeResponse response) {
+        try {
+            if (FIND_MANY_COMMANDS.contains(command)) {
+                Object value = jsonMapper.extract(response.getBody(), VALUE).get(VALUE);
+                return response.getStatus() == 200 && value instanceof List<?> elements && elements.isEmpty();
+            }
+            return response.getStatus() == 404 && NO_SUCH_ELEMENT.equals(jsonMapper.getError(response.getBody()));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
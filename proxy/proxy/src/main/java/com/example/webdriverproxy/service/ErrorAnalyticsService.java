@@ -0,0 +1,289 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.ErrorReport;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Un service qui agrège en flux les erreurs WebDriver relayées par le proxy, dans une mémoire fixe quel que soit leur
+ * nombre. Les erreurs sont comptées par type et par modèle de commande dans des tranches de temps
+ * ({@code proxy.error-analytics.bucket-duration}) gérées en anneau ; une synthèse porte sur les tranches les plus
+ * récentes couvrant la fenêtre demandée, au plus {@code proxy.error-analytics.buckets} tranches.
+ * <p>
+ * Les localisateurs des recherches d'élément en échec sont comptés dans une {@link CountMinSketch} par tranche, qui
+ * estime leur nombre d'échecs sans les conserver tous ; seuls les localisateurs aux estimations les plus élevées sont
+ * retenus comme candidats, quatre fois plus nombreux que les {@code proxy.error-analytics.top-k} rendus. La synthèse
+ * additionne les esquisses des tranches de la fenêtre et classe les candidats selon l'esquisse additionnée.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class ErrorAnalyticsService {
+
+    /** Le type d'erreur sous lequel sont comptés les types au-delà de {@link #MAX_ERROR_TYPES}. */
+    static final String OTHER_ERROR_TYPE = "other";
+
+    private static final int MAX_ERROR_TYPES = 64;
+    private static final int MAX_LOCATOR_LENGTH = 256;
+    private static final String USING = "using";
+    private static final String VALUE = "value";
+    private static final WebDriverCommand[] COMMANDS = WebDriverCommand.values();
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final int topK;
+    private final int sketchWidth;
+    private final int sketchDepth;
+    private final LongSupplier clock;
+    private final Bucket[] buckets;
+
+    /**
+     * Construit une instance de {@code ErrorAnalyticsService}.
+     *
+     * @param jsonMapper     le service de mappage JSON utilisé pour lire les localisateurs
+     * @param enabled        indique si les erreurs sont agrégées
+     * @param bucketDuration la durée d'une tranche de temps
+     * @param buckets        le nombre de tranches conservées
+     * @param topK           le nombre de localisateurs rendus par une synthèse
+     * @param sketchWidth    le nombre de compteurs par ligne de l'esquisse des localisateurs
+     * @param sketchDepth    le nombre de lignes de l'esquisse des localisateurs
+     */
+    @Autowired
+    public ErrorAnalyticsService(JsonMapper jsonMapper,
+                                 @Value("${proxy.error-analytics.enabled:true}") boolean enabled,
+                                 @Value("${proxy.error-analytics.bucket-duration:1m}") Duration bucketDuration,
+                                 @Value("${proxy.error-analytics.buckets:60}") int buckets,
+                                 @Value("${proxy.error-analytics.top-k:20}") int topK,
+                                 @Value("${proxy.error-analytics.sketch-width:2048}") int sketchWidth,
+                                 @Value("${proxy.error-analytics.sketch-depth:4}") int sketchDepth) {
+        this(jsonMapper, enabled, bucketDuration, buckets, topK, sketchWidth, sketchDepth, System::currentTimeMillis);
+    }
+
+    ErrorAnalyticsService(JsonMapper jsonMapper, boolean enabled, Duration bucketDuration, int buckets, int topK,
+                          int sketchWidth, int sketchDepth, LongSupplier clock) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = enabled;
+        this.bucketMillis = Math.max(1, bucketDuration.toMillis());
+        this.topK = topK;
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        this.clock = clock;
+        this.buckets = new Bucket[enabled ? Math.max(1, buckets) : 0];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new Bucket(new CountMinSketch(sketchWidth, sketchDepth), topK * 4);
+        }
+        if (enabled) {
+            log.info("[Proxy] Analyse des erreurs sur {} tranches de {}", this.buckets.length, bucketDuration);
+        }
+    }
+
+    /**
+     * Indique si les erreurs sont agrégées.
+     *
+     * @return true si l'analyse des erreurs est activée
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retourne la durée couverte par l'ensemble des tranches conservées, c'est-à-dire la plus longue fenêtre possible.
+     *
+     * @return la durée de rétention des erreurs
+     */
+    public Duration getRetention() {
+        return Duration.ofMillis(bucketMillis * buckets.length);
+    }
+
+    /**
+     * Compte une erreur relayée par le proxy. Pour une recherche d'élément, le localisateur est lu dans le corps de la
+     * requête.
+     *
+     * @param command     la commande en échec
+     * @param errorType   le type d'erreur W3C, ou un libellé tiré du statut HTTP si la réponse n'en indique pas
+     * @param requestBody le corps de la requête, éventuellement tronqué, ou null
+     */
+    public void record(WebDriverCommand command, String errorType, String requestBody) {
+        if (!enabled) {
+            return;
+        }
+        String locator = ElementWaitService.FIND_COMMANDS.contains(command) ? getLocator(requestBody) : null;
+        long epoch = clock.getAsLong() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        synchronized (bucket) {
+            bucket.rotate(epoch);
+            bucket.total++;
+            String type = bucket.errorTypes.size() < MAX_ERROR_TYPES || bucket.errorTypes.containsKey(errorType)
+                    ? errorType : OTHER_ERROR_TYPE;
+            bucket.errorTypes.merge(type, 1L, Long::sum);
+            bucket.endpoints[command.ordinal()]++;
+            if (locator != null) {
+                bucket.addLocator(locator, errorType);
+            }
+        }
+    }
+
+    /**
+     * Construit la synthèse des erreurs des tranches couvrant une fenêtre se terminant maintenant.
+     *
+     * @param window la durée de la fenêtre, ramenée entre une tranche et {@link #getRetention()}
+     * @return la synthèse des erreurs de la fenêtre
+     */
+    public ErrorReport report(Duration window) {
+        int count = (int) Math.min(buckets.length, Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        long total = 0;
+        Map<String, Long> errorTypes = new HashMap<>();
+        long[] endpoints = new long[COMMANDS.length];
+        CountMinSketch sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        Map<String, String> candidates = new HashMap<>();
+        long epoch = clock.getAsLong() / bucketMillis;
+        // De la plus ancienne à la plus récente, pour que le dernier type d'erreur d'un localisateur l'emporte
+        for (long bucketEpoch = epoch - count + 1; enabled && bucketEpoch <= epoch; bucketEpoch++) {
+            Bucket bucket = buckets[(int) (bucketEpoch % buckets.length)];
+            synchronized (bucket) {
+                if (bucket.epoch != bucketEpoch) {
+                    continue;
+                }
+                total += bucket.total;
+                bucket.errorTypes.forEach((type, n) -> errorTypes.merge(type, n, Long::sum));
+                for (int i = 0; i < endpoints.length; i++) {
+                    endpoints[i] += bucket.endpoints[i];
+                }
+                sketch.merge(bucket.sketch);
+                bucket.candidates.forEach((locator, candidate) -> candidates.put(locator, candidate.lastErrorType));
+            }
+        }
+        Map<String, Long> endpointCounts = new HashMap<>();
+        for (int i = 0; i < endpoints.length; i++) {
+            if (endpoints[i] > 0) {
+                endpointCounts.put(COMMANDS[i].getTemplate(), endpoints[i]);
+            }
+        }
+        List<ErrorReport.FailingLocator> locators = new ArrayList<>(candidates.size());
+        candidates.forEach((locator, errorType) -> locators.add(new ErrorReport.FailingLocator()
+                .setLocator(locator)
+                .setCount(sketch.estimate(locator))
+                .setLastErrorType(errorType)));
+        locators.sort(Comparator.comparingLong(ErrorReport.FailingLocator::getCount).reversed());
+        return new ErrorReport()
+                .setWindow(Duration.ofMillis(count * bucketMillis).toString())
+                .setTotal(total)
+                .setErrorTypes(sortByCount(errorTypes))
+                .setEndpoints(sortByCount(endpointCounts))
+                .setLocators(locators.subList(0, Math.min(topK, locators.size())));
+    }
+
+    private String getLocator(String requestBody) {
+        if (requestBody == null) {
+            return null;
+        }
+        try {
+            Map<String, Object> fields = jsonMapper.extract(requestBody, USING, VALUE);
+            if (!(fields.get(USING) instanceof String using) || !(fields.get(VALUE) instanceof String value)) {
+                return null;
+            }
+            String locator = using + '=' + value;
+            return locator.length() > MAX_LOCATOR_LENGTH ? locator.substring(0, MAX_LOCATOR_LENGTH) : locator;
+        } catch (RuntimeException e) {
+            // Corps tronqué par la capture : le localisateur est ignoré
+            return null;
+        }
+    }
+
+    private static Map<String, Long> sortByCount(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Les erreurs d'une tranche de temps, protégées par le verrou de la tranche.
+     */
+    private static final class Bucket {
+
+        private final CountMinSketch sketch;
+        private final int candidateCapacity;
+        private final Map<String, Long> errorTypes = new HashMap<>();
+        private final long[] endpoints = new long[COMMANDS.length];
+        private final Map<String, Candidate> candidates = new HashMap<>();
+        private long epoch = -1;
+        private long total;
+
+        Bucket(CountMinSketch sketch, int candidateCapacity) {
+            this.sketch = sketch;
+            this.candidateCapacity = Math.max(1, candidateCapacity);
+        }
+
+        /**
+         * Vide la tranche si elle appartient à une période révolue de l'anneau.
+         */
+        void rotate(long currentEpoch) {
+            if (epoch == currentEpoch) {
+                return;
+            }
+            epoch = currentEpoch;
+            total = 0;
+            errorTypes.clear();
+            Arrays.fill(endpoints, 0);
+            candidates.clear();
+            sketch.clear();
+        }
+
+        /**
+         * Compte un localisateur et le retient comme candidat s'il reste de la place, ou si son estimation dépasse
+         * celle du candidat le plus faible, qu'il remplace.
+         */
+        void addLocator(String locator, String errorType) {
+            long estimate = sketch.add(locator);
+            Candidate candidate = candidates.get(locator);
+            if (candidate != null) {
+                candidate.estimate = estimate;
+                candidate.lastErrorType = errorType;
+                return;
+            }
+            if (candidates.size() >= candidateCapacity) {
+                Map.Entry<String, Candidate> weakest = null;
+                for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+                    if (weakest == null || entry.getValue().estimate < weakest.getValue().estimate) {
+                        weakest = entry;
+                    }
+                }
+                if (weakest.getValue().estimate >= estimate) {
+                    return;
+                }
+                candidates.remove(weakest.getKey());
+            }
+            candidates.put(locator, new Candidate(estimate, errorType));
+        }
+    }
+
+    /**
+     * Un localisateur candidat au classement, avec sa dernière estimation.
+     */
+    private static final class Candidate {
+
+        private long estimate;
+        private String lastErrorType;
+
+        Candidate(long estimate, String lastErrorType) {
+            this.estimate = estimate;
+            this.lastErrorType = lastErrorType;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.GridNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un service qui gère l'ensemble des nœuds Selenium Grid derrière le proxy.
+ * Il place chaque nouvelle session sur le nœud le moins chargé (sessions en cours et latence récente de création)
+ * et tient à jour la charge de chaque nœud au fil des créations et suppressions de session. Les nœuds dont le
+ * disjoncteur est ouvert ne reçoivent plus de nouvelles sessions.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class GridNodeService {
+
+    private final List<GridNode> nodes;
+    private final List<Runnable> capacityListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Construit une instance de {@code GridNodeService} à partir de la liste des URL des nœuds.
+     *
+     * @param nodeUrls les URL des serveurs Selenium, par défaut l'unique {@code proxy.selenium.url}
+     * @throws RuntimeException si une URL est invalide ou si aucun nœud n'est configuré
+     */
+    public GridNodeService(@Value("${proxy.selenium.nodes:${proxy.selenium.url}}") List<String> nodeUrls) {
+        List<GridNode> configuredNodes = new ArrayList<>();
+        for (String nodeUrl : nodeUrls) {
+            if (!nodeUrl.isBlank()) {
+                configuredNodes.add(new GridNode(configuredNodes.size(), toUrl(nodeUrl.trim())));
+            }
+        }
+        if (configuredNodes.isEmpty()) {
+            throw new RuntimeException("Aucun nœud Selenium configuré");
+        }
+        this.nodes = Collections.unmodifiableList(configuredNodes);
+        log.info("[Proxy] Nœuds Selenium configurés : {}", nodes);
+    }
+
+    /**
+     * Retourne la liste des nœuds configurés.
+     *
+     * @return la liste non modifiable des nœuds
+     */
+    public List<GridNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Retourne le nœud par défaut, c'est-à-dire le premier nœud configuré.
+     *
+     * @return le nœud par défaut
+     */
+    public GridNode getDefaultNode() {
+        return nodes.get(0);
+    }
+
+    /**
+     * Retourne le nœud correspondant à une URL Selenium.
+     *
+     * @param url l'URL du serveur Selenium
+     * @return le nœud correspondant, ou null si l'URL ne correspond à aucun nœud configuré
+     */
+    public GridNode getNode(URL url) {
+        for (GridNode node : nodes) {
+            if (node.getUrl() == url || node.getUrl().toString().equals(url.toString())) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Réserve le nœud en service le moins chargé pour une nouvelle création de session.
+     * La réservation est comptée comme une création en cours jusqu'à l'appel de
+     * {@link #commitSession(GridNode, long)} ou {@link #releaseSession(GridNode)}.
+     *
+     * @return le nœud choisi
+     */
+    public GridNode reserveNode() {
+        GridNode selected = select(Integer.MAX_VALUE);
+        if (selected == null) {
+            // Tous les nœuds sont hors service : le moins chargé est tenté malgré tout
+            double priorLatencyMillis = getPriorLatencyMillis();
+            selected = nodes.get(0);
+            for (GridNode candidate : nodes) {
+                if (candidate.getLoadScore(priorLatencyMillis) < selected.getLoadScore(priorLatencyMillis)) {
+                    selected = candidate;
+                }
+            }
+        }
+        selected.getPendingSessions().incrementAndGet();
+        return selected;
+    }
+
+    /**
+     * Réserve le nœud en service le moins chargé parmi ceux dont le nombre de créations en cours est inférieur à une limite.
+     * La réservation se libère comme celle de {@link #reserveNode()}.
+     *
+     * @param maxPendingSessions le nombre maximal de créations en cours par nœud
+     * @return le nœud choisi, ou null si tous les nœuds ont atteint la limite ou sont hors service
+     */
+    public GridNode tryReserveNode(int maxPendingSessions) {
+        GridNode selected = select(maxPendingSessions);
+        if (selected != null) {
+            selected.getPendingSessions().incrementAndGet();
+        }
+        return selected;
+    }
+
+    private GridNode select(int maxPendingSessions) {
+        double priorLatencyMillis = getPriorLatencyMillis();
+        GridNode selected = null;
+        double selectedScore = Double.MAX_VALUE;
+        for (GridNode candidate : nodes) {
+            double score = candidate.getLoadScore(priorLatencyMillis);
+            if (!candidate.isCircuitOpen() && candidate.getPendingSessions().get() < maxPendingSessions
+                    && score < selectedScore) {
+                selected = candidate;
+                selectedScore = score;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Retourne la latence de création prêtée aux nœuds qui n'ont encore aucune mesure : la moyenne de celles des nœuds
+     * mesurés, ou 1 ms si aucun ne l'est. Un nœud neuf est ainsi évalué comme un nœud moyen, et non comme un nœud
+     * instantané vers lequel partirait toute une vague de créations.
+     */
+    private double getPriorLatencyMillis() {
+        double sum = 0;
+        int measured = 0;
+        for (GridNode node : nodes) {
+            if (node.hasCreateLatency()) {
+                sum += node.getCreateLatencyMillis();
+                measured++;
+            }
+        }
+        return measured > 0 ? sum / measured : 1;
+    }
+
+    /**
+     * Enregistre une action exécutée chaque fois qu'une création de session se termine, réussie ou non,
+     * c'est-à-dire chaque fois qu'un nœud peut accepter une nouvelle création.
+     *
+     * @param listener l'action à exécuter
+     */
+    public void addCapacityListener(Runnable listener) {
+        capacityListeners.add(listener);
+    }
+
+    /**
+     * Confirme la création d'une session sur un nœud réservé et enregistre sa latence de création.
+     *
+     * @param node            le nœud réservé
+     * @param createLatencyNs la durée de la création de session, en nanosecondes
+     */
+    public void commitSession(GridNode node, long createLatencyNs) {
+        node.recordCreateLatency(createLatencyNs / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        node.getActiveSessions().incrementAndGet();
+        node.getPendingSessions().decrementAndGet();
+        capacityListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Compte sur son nœud une session rétablie au démarrage, par exemple depuis le journal des sessions.
+     * Une session dont le nœud ne figure plus dans la configuration est ignorée.
+     *
+     * @param url l'URL du serveur Selenium de la session
+     * @return true si le nœud de la session est connu
+     */
+    public boolean restoreSession(URL url) {
+        GridNode node = getNode(url);
+        if (node == null) {
+            return false;
+        }
+        node.getActiveSessions().incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Libère la réservation d'un nœud lorsque la création de session a échoué.
+     *
+     * @param node le nœud réservé
+     */
+    public void releaseSession(GridNode node) {
+        node.getPendingSessions().decrementAndGet();
+        capacityListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Enregistre le résultat d'une sonde de santé d'un nœud et met à jour son disjoncteur.
+     * Le disjoncteur s'ouvre après {@code failureThreshold} échecs consécutifs et se referme dès la première sonde
+     * réussie ; un nœud remis en service peut de nouveau accepter des créations de session.
+     *
+     * @param node             le nœud sondé
+     * @param healthy          le résultat de la sonde
+     * @param failureThreshold le nombre d'échecs consécutifs qui ouvre le disjoncteur
+     */
+    public void recordProbe(GridNode node, boolean healthy, int failureThreshold) {
+        if (healthy) {
+            node.getConsecutiveProbeFailures().set(0);
+            if (node.setCircuitOpen(false)) {
+                log.info("[Proxy] Nœud Selenium de nouveau en service : {}", node.getUrl());
+                capacityListeners.forEach(Runnable::run);
+            }
+        } else if (node.getConsecutiveProbeFailures().incrementAndGet() >= failureThreshold && node.setCircuitOpen(true)) {
+            log.warn("[Proxy] Nœud Selenium mis hors service après {} sondes en échec : {}", failureThreshold, node.getUrl());
+        }
+    }
+
+    /**
+     * Décompte une session supprimée du nœud qui l'hébergeait.
+     *
+     * @param url l'URL du serveur Selenium de la session
+     */
+    public void closeSession(URL url) {
+        GridNode node = getNode(url);
+        if (node != null) {
+            node.getActiveSessions().updateAndGet(count -> Math.max(0, count - 1));
+        }
+    }
+
+    private URL toUrl(String urlStr) {
+        try {
+            return new URL(urlStr);
+        } catch (MalformedURLException e) {
+            log.error("[Proxy] Erreur lors de la création de l'URL du nœud Selenium : {}", e.getMessage());
+            throw new RuntimeException("URL Selenium invalide : " + urlStr, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.SessionContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * Le registre des sessions d'une instance isolée du proxy : le cache local de {@link SessionContextService} contient
+ * toutes les sessions, ce registre n'a donc rien à conserver.
+ */
+@Service
+@ConditionalOnProperty(name = "proxy.session.registry.type", havingValue = "local", matchIfMissing = true)
+public class LocalSessionRegistry implements SessionRegistry {
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public Mono<Void> register(SessionContext sessionContext) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<SessionContext> lookup(String sessionId) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> unregister(String sessionId) {
+        return Mono.empty();
+    }
+
+    @Override
+    public void addExpirationListener(Consumer<SessionContext> listener) {
+        // Les sessions expirent dans le cache local
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.CommandTiming;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.NodeResponse;
+import com.example.webdriverproxy.model.SessionContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Un service qui envoie des commandes WebDriver directement au nœud Selenium d'une session, hors de la chaîne de
+ * filtres de la passerelle. Il sert aux fonctionnalités où le proxy exécute lui-même des commandes pour le client,
+ * comme les lots de commandes ou l'attente d'éléments.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class NodeCommandService {
+
+    private final JsonMapper jsonMapper;
+    private final GridNodeService gridNodeService;
+    private final WebClient webClient;
+
+    /**
+     * Construit une instance de {@code NodeCommandService}.
+     *
+     * @param jsonMapper       le service de mappage JSON utilisé pour les réponses d'erreur
+     * @param gridNodeService  le service qui gère les nœuds Selenium et leurs disjoncteurs
+     * @param webClientBuilder le constructeur du client HTTP utilisé pour joindre les nœuds
+     */
+    public NodeCommandService(JsonMapper jsonMapper, GridNodeService gridNodeService, WebClient.Builder webClientBuilder) {
+        this.jsonMapper = jsonMapper;
+        this.gridNodeService = gridNodeService;
+        this.webClient = webClientBuilder.build();
+    }
+
+    /**
+     * Envoie une commande au nœud de la session et lit sa réponse complète.
+     * Un nœud injoignable ou trop lent donne une réponse {@code 502} avec une erreur W3C {@code unknown error} ; un nœud
+     * hors service, une réponse {@code 503} immédiate.
+     *
+     * @param sessionContext le contexte de la session
+     * @param method         la méthode HTTP de la commande
+     * @param path           le chemin de la commande, relatif à la session (par exemple {@code /element})
+     * @param body           le corps JSON de la commande, ou null
+     * @param timeout        la durée maximale de la commande
+     * @param timing         les instants de la commande à compléter (transmission et premier octet), ou null
+     * @return un {@link Mono} émettant la réponse du nœud ; il ne se termine jamais en erreur
+     */
+    public Mono<NodeResponse> send(SessionContext sessionContext, HttpMethod method, String path, String body,
+                                   Duration timeout, CommandTiming timing) {
+        String uri = sessionContext.getUrl() + "/session/" + sessionContext.getSessionId() + path;
+        GridNode node = gridNodeService.getNode(sessionContext.getUrl());
+        if (node != null && node.isCircuitOpen()) {
+            return Mono.just(new NodeResponse()
+                    .setStatus(503)
+                    .setBody(jsonMapper.toErrorResponse("unknown error", "[Proxy] Nœud Selenium hors service : " + node.getName())));
+        }
+        return Mono.defer(() -> {
+                    if (timing != null && timing.getUpstreamStartNanos() == 0) {
+                        timing.setUpstreamStartNanos(System.nanoTime());
+                    }
+                    WebClient.RequestBodySpec request = webClient.method(method).uri(uri).accept(MediaType.APPLICATION_JSON);
+                    if (body != null) {
+                        request.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+                    }
+                    return request.exchangeToMono(response -> {
+                        if (timing != null) {
+                            timing.setUpstreamFirstByteNanos(System.nanoTime());
+                        }
+                        return response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(responseBody -> new NodeResponse()
+                                        .setStatus(response.statusCode().value())
+                                        .setBody(responseBody));
+                    });
+                })
+                .timeout(timeout)
+                .onErrorResume(error -> {
+                    log.warn("[Proxy] Échec de la commande {} {} : {}", method, uri, error.getMessage());
+                    return Mono.just(new NodeResponse()
+                            .setStatus(502)
+                            .setBody(jsonMapper.toErrorResponse("unknown error",
+                                    "[Proxy] Nœud Selenium injoignable : " + error.getMessage())));
+                });
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.GridNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Un service qui sonde périodiquement chaque nœud Selenium sur {@code /status} et alimente son disjoncteur.
+ * Un nœud qui répond, même s'il n'a plus de place libre, est en bonne santé ; un nœud injoignable, trop lent ou en
+ * erreur serveur est en échec. Après {@code proxy.node-health.failure-threshold} échecs consécutifs, le nœud est mis
+ * hors service par {@link GridNodeService} : il ne reçoit plus de nouvelles sessions et les commandes de ses sessions
+ * échouent immédiatement, jusqu'à la première sonde réussie.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class NodeHealthService {
+
+    private final GridNodeService gridNodeService;
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final Disposable probes;
+
+    /**
+     * Construit une instance de {@code NodeHealthService} et démarre les sondes si elles sont activées.
+     *
+     * @param gridNodeService  le service qui gère les nœuds Selenium et leurs disjoncteurs
+     * @param webClientBuilder le constructeur du client HTTP utilisé pour sonder les nœuds
+     * @param enabled          indique si les sondes de santé sont activées
+     * @param interval         l'intervalle entre deux sondes d'un nœud
+     * @param timeout          la durée maximale d'une sonde
+     * @param failureThreshold le nombre d'échecs consécutifs qui met un nœud hors service
+     */
+    public NodeHealthService(GridNodeService gridNodeService, WebClient.Builder webClientBuilder,
+                             @Value("${proxy.node-health.enabled:true}") boolean enabled,
+                             @Value("${proxy.node-health.interval:5s}") Duration interval,
+                             @Value("${proxy.node-health.timeout:2s}") Duration timeout,
+                             @Value("${proxy.node-health.failure-threshold:3}") int failureThreshold) {
+        this.gridNodeService = gridNodeService;
+        this.webClient = webClientBuilder.build();
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.probes = enabled
+                ? Flux.interval(interval, interval)
+                        .onBackpressureDrop()
+                        .concatMap(tick -> probeAll())
+                        .subscribe()
+                : null;
+    }
+
+    /**
+     * Sonde tous les nœuds en parallèle et enregistre les résultats.
+     *
+     * @return un {@link Mono} qui se termine lorsque tous les nœuds ont été sondés
+     */
+    Mono<Void> probeAll() {
+        return Flux.fromIterable(gridNodeService.getNodes())
+                .flatMap(node -> probe(node).doOnNext(healthy -> gridNodeService.recordProbe(node, healthy, failureThreshold)))
+                .then();
+    }
+
+    private Mono<Boolean> probe(GridNode node) {
+        return webClient.get()
+                .uri(node.getUrl() + "/status")
+                .exchangeToMono(response -> response.releaseBody().thenReturn(!response.statusCode().is5xxServerError()))
+                .timeout(timeout)
+                .onErrorResume(error -> {
+                    log.debug("[Proxy] Sonde en échec pour {} : {}", node.getUrl(), error.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Arrête les sondes de santé.
+     */
+    @PreDestroy
+    public void close() {
+        if (probes != null) {
+            probes.dispose();
+        }
+    }
+}
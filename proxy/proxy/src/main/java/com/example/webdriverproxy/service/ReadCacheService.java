@@ -0,0 +1,153 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.SessionReadCache;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un service qui gère le cache des lectures des sessions qui le demandent par la capacité {@code proxy:readCache}
+ * (durée de validité en millisecondes, bornée par {@code proxy.read-cache.max-ttl}). Les lectures répétées de l'URL,
+ * du titre, des fenêtres et de l'état affiché ou actif des éléments sont alors servies par le proxy sans aller-retour
+ * vers le nœud, jusqu'à la prochaine commande qui modifie l'état de la session ou jusqu'à leur échéance.
+ * <p>
+ * Toute commande autre qu'une lecture ou une recherche d'élément est considérée comme une modification : navigation,
+ * clic, saisie, script, changement de fenêtre, lot de commandes... Le cache est propre à chaque instance du proxy ;
+ * avec un registre des sessions partagé, seule la durée de validité borne l'écart avec une modification passée par
+ * une autre instance.
+ */
+@Service
+public class ReadCacheService {
+
+    /** Les commandes en lecture seule dont les réponses peuvent être mises en cache. */
+    public static final Set<WebDriverCommand> CACHEABLE_COMMANDS = EnumSet.of(
+            WebDriverCommand.GET_CURRENT_URL,
+            WebDriverCommand.GET_TITLE,
+            WebDriverCommand.GET_WINDOW_HANDLE,
+            WebDriverCommand.GET_WINDOW_HANDLES,
+            WebDriverCommand.IS_ELEMENT_DISPLAYED,
+            WebDriverCommand.IS_ELEMENT_ENABLED);
+
+    private final SessionContextService sessionContextService;
+    private final boolean enabled;
+    private final long maxTtlMillis;
+    private final int maxEntries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * Construit une instance de {@code ReadCacheService}.
+     *
+     * @param sessionContextService le service qui conserve le contexte de chaque session
+     * @param meterRegistry         le registre Micrometer dans lequel les lectures servies et relayées sont comptées
+     * @param enabled               indique si les sessions peuvent demander le cache des lectures
+     * @param maxTtl                la durée de validité maximale d'une lecture, quelle que soit la demande du client
+     * @param maxEntries            le nombre maximal de lectures conservées par session
+     */
+    public ReadCacheService(SessionContextService sessionContextService, MeterRegistry meterRegistry,
+                            @Value("${proxy.read-cache.enabled:true}") boolean enabled,
+                            @Value("${proxy.read-cache.max-ttl:2s}") Duration maxTtl,
+                            @Value("${proxy.read-cache.max-entries:64}") int maxEntries) {
+        this.sessionContextService = sessionContextService;
+        this.enabled = enabled;
+        this.maxTtlMillis = maxTtl.toMillis();
+        this.maxEntries = maxEntries;
+        this.hitCounter = Counter.builder("proxy.read.cache.requests")
+                .description("Lectures servies par le cache des sessions")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("proxy.read.cache.requests")
+                .description("Lectures servies par le cache des sessions")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retourne le cache des lectures d'une session, en le créant au premier appel.
+     *
+     * @param sessionContext le contexte de la session
+     * @return le cache de la session, ou null si la session ne l'a pas demandé ou si le cache est désactivé
+     */
+    public SessionReadCache getCache(SessionContext sessionContext) {
+        if (!enabled || sessionContext.getReadCacheTtlMillis() <= 0) {
+            return null;
+        }
+        SessionReadCache readCache = sessionContext.getReadCache();
+        if (readCache == null) {
+            synchronized (sessionContext) {
+                readCache = sessionContext.getReadCache();
+                if (readCache == null) {
+                    readCache = new SessionReadCache(maxEntries);
+                    sessionContext.setReadCache(readCache);
+                }
+            }
+        }
+        return readCache;
+    }
+
+    /**
+     * Retourne la durée de validité des lectures d'une session.
+     *
+     * @param sessionContext le contexte de la session
+     * @return la durée de validité demandée par la session, bornée par {@code proxy.read-cache.max-ttl}, en nanosecondes
+     */
+    public long getTtlNanos(SessionContext sessionContext) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.min(sessionContext.getReadCacheTtlMillis(), maxTtlMillis));
+    }
+
+    /**
+     * Indique si la réponse d'une commande peut être mise en cache.
+     *
+     * @param command la commande
+     * @return true pour une lecture de l'URL, du titre, des fenêtres ou de l'état d'un élément
+     */
+    public boolean isCacheable(WebDriverCommand command) {
+        return CACHEABLE_COMMANDS.contains(command);
+    }
+
+    /**
+     * Indique si une commande modifie l'état de la session et doit vider son cache.
+     *
+     * @param method  la méthode HTTP de la commande
+     * @param command la commande
+     * @return true pour toute commande autre qu'une lecture ou une recherche d'élément
+     */
+    public boolean invalidates(HttpMethod method, WebDriverCommand command) {
+        return method != HttpMethod.GET && !ElementWaitService.FIND_COMMANDS.contains(command);
+    }
+
+    /**
+     * Vide le cache des lectures d'une session, s'il existe, par exemple avant et après un lot de commandes.
+     *
+     * @param sessionId l'identifiant de la session
+     */
+    public void invalidate(String sessionId) {
+        SessionContext sessionContext = sessionContextService.findSessionContext(sessionId);
+        if (sessionContext != null && sessionContext.getReadCache() != null) {
+            sessionContext.getReadCache().invalidate();
+        }
+    }
+
+    /**
+     * Compte une lecture servie par le cache.
+     */
+    public void recordHit() {
+        hitCounter.increment();
+    }
+
+    /**
+     * Compte une lecture relayée au nœud faute de réponse en cache.
+     */
+    public void recordMiss() {
+        missCounter.increment();
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.StoredScreenshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Un service qui conserve les captures d'écran dans un magasin sur disque adressé par leur contenu.
+ * La valeur base64 d'une réponse de capture est décodée en flux directement dans un fichier temporaire, puis le fichier
+ * est renommé d'après l'empreinte SHA-256 de l'image : une capture identique à une capture déjà conservée n'occupe
+ * pas de place supplémentaire. Les captures sont servies depuis des projections en mémoire des fichiers, gardées
+ * dans un cache borné, hors du tas Java.
+ * <p>
+ * Les captures inutilisées depuis plus de {@code proxy.screenshot-store.retention} sont supprimées en arrière-plan ;
+ * conserver de nouveau une capture existante renouvelle sa durée de vie.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class ScreenshotStoreService {
+
+    private static final String SUFFIX = ".png";
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration retention;
+    private final Cache<String, MappedByteBuffer> mappedScreenshots;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Construit une instance de {@code ScreenshotStoreService} et planifie la suppression des anciennes captures
+     * si le magasin est activé.
+     *
+     * @param jsonMapper      le service de mappage JSON utilisé pour décoder les réponses de capture
+     * @param enabled         indique si le magasin de captures est activé
+     * @param directory       le répertoire des captures
+     * @param retention       la durée de conservation d'une capture inutilisée
+     * @param maxMappedSize   la taille totale maximale des captures gardées projetées en mémoire
+     * @param cleanupInterval l'intervalle entre deux suppressions des anciennes captures
+     */
+    public ScreenshotStoreService(JsonMapper jsonMapper,
+                                  @Value("${proxy.screenshot-store.enabled:false}") boolean enabled,
+                                  @Value("${proxy.screenshot-store.directory:screenshots}") String directory,
+                                  @Value("${proxy.screenshot-store.retention:1h}") Duration retention,
+                                  @Value("${proxy.screenshot-store.max-mapped-size:256MB}") DataSize maxMappedSize,
+                                  @Value("${proxy.screenshot-store.cleanup-interval:5m}") Duration cleanupInterval) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.retention = retention;
+        this.mappedScreenshots = Caffeine.newBuilder()
+                .maximumWeight(maxMappedSize.toBytes())
+                .weigher((String id, MappedByteBuffer buffer) -> buffer.capacity())
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "screenshot-store-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            try {
+                Files.createDirectories(this.directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible de créer le répertoire des captures : " + directory, e);
+            }
+            long intervalMillis = cleanupInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::cleanup, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("[Proxy] Captures d'écran conservées dans : {}", this.directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Indique si le magasin de captures est activé.
+     *
+     * @return true si le magasin est activé
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Décode et conserve la capture d'écran d'une réponse de capture WebDriver. Cette méthode effectue des
+     * entrées/sorties bloquantes et ne doit pas être appelée depuis la boucle d'événements.
+     *
+     * @param responseBody le corps JSON de la réponse, dont la clé {@code value} contient l'image en base64
+     * @return la capture conservée, ou null si la réponse ne contient pas d'image
+     * @throws UncheckedIOException si la capture ne peut pas être écrite
+     * @throws RuntimeException si la réponse n'est pas un JSON valide
+     */
+    public StoredScreenshot store(InputStream responseBody) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "capture", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)), digest)) {
+                size = jsonMapper.copyBinaryValue(responseBody, out);
+            }
+            if (size < 0) {
+                return null;
+            }
+            String id = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(id);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                // Un renommage concurrent de la même capture remplace un fichier identique
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredScreenshot().setId(id).setSize(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de conserver la capture d'écran", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Retourne le contenu PNG d'une capture conservée, projeté en mémoire. Le tampon retourné est une vue propre à
+     * l'appelant, qui peut en déplacer la position librement.
+     *
+     * @param id l'identifiant de la capture
+     * @return le contenu de la capture, ou null si la capture est inconnue
+     * @throws UncheckedIOException si la capture ne peut pas être lue
+     */
+    public ByteBuffer open(String id) {
+        if (!enabled || id == null || !ID_PATTERN.matcher(id).matches()) {
+            return null;
+        }
+        MappedByteBuffer buffer = mappedScreenshots.getIfPresent(id);
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(resolve(id))) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible de lire la capture d'écran : " + id, e);
+            }
+            mappedScreenshots.put(id, buffer);
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Supprime les captures inutilisées depuis plus longtemps que la durée de conservation, ainsi que les fichiers
+     * temporaires abandonnés.
+     */
+    void cleanup() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < expiredBefore) {
+                        Files.deleteIfExists(file);
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(SUFFIX)) {
+                            mappedScreenshots.invalidate(name.substring(0, name.length() - SUFFIX.length()));
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("[Proxy] Impossible de supprimer la capture {} : {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("[Proxy] Échec du nettoyage des captures d'écran : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Arrête la suppression planifiée des anciennes captures.
+     */
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private Path resolve(String id) {
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("[Proxy] Impossible de supprimer le fichier temporaire {} : {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.GridNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Un service qui limite le nombre de créations de session envoyées simultanément à chaque nœud Selenium.
+ * Une demande de création obtient immédiatement un nœud si l'un d'eux a moins de
+ * {@code proxy.admission.max-creates-per-node} créations en cours ; sinon elle attend dans une file bornée, servie par
+ * classe de priorité puis par ordre d'arrivée, qu'une création se termine. Une demande qui ne trouve pas de place dans
+ * la file, ou qui y attend plus de {@code proxy.admission.queue-timeout}, est refusée : le client est invité à
+ * réessayer plus tard plutôt que de ralentir toutes les créations en cours sur le Grid.
+ * <p>
+ * Les classes de priorité sont données par {@code proxy.admission.priority-classes}, de la plus prioritaire à la
+ * moins prioritaire. Une limite nulle désactive le contrôle d'admission.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class SessionAdmissionService {
+
+    private final GridNodeService gridNodeService;
+    private final int maxCreatesPerNode;
+    private final int maxQueueSize;
+    private final Duration queueTimeout;
+    private final List<String> priorityClasses;
+    private final int defaultPriority;
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparingInt(Waiter::priority).thenComparingLong(Waiter::sequence));
+    private final Counter queueFullCounter;
+    private final Counter timeoutCounter;
+
+    private long sequence;
+
+    /**
+     * Construit une instance de {@code SessionAdmissionService} et l'abonne à la fin des créations de session.
+     *
+     * @param gridNodeService   le service qui gère les nœuds Selenium
+     * @param meterRegistry     le registre Micrometer dans lequel la file et les refus sont publiés
+     * @param maxCreatesPerNode le nombre maximal de créations simultanées par nœud, 0 pour désactiver l'admission
+     * @param maxQueueSize      le nombre maximal de demandes en attente
+     * @param queueTimeout      la durée d'attente maximale d'une demande
+     * @param priorityClasses   les classes de priorité, de la plus prioritaire à la moins prioritaire
+     * @param defaultClass      la classe des demandes qui n'en indiquent pas ou en indiquent une inconnue
+     */
+    public SessionAdmissionService(GridNodeService gridNodeService, MeterRegistry meterRegistry,
+                                   @Value("${proxy.admission.max-creates-per-node:0}") int maxCreatesPerNode,
+                                   @Value("${proxy.admission.max-queue-size:200}") int maxQueueSize,
+                                   @Value("${proxy.admission.queue-timeout:1m}") Duration queueTimeout,
+                                   @Value("${proxy.admission.priority-classes:interactive,default,ci}") List<String> priorityClasses,
+                                   @Value("${proxy.admission.default-class:default}") String defaultClass) {
+        this.gridNodeService = gridNodeService;
+        this.maxCreatesPerNode = maxCreatesPerNode;
+        this.maxQueueSize = maxQueueSize;
+        this.queueTimeout = queueTimeout;
+        this.priorityClasses = priorityClasses.stream().map(String::trim).toList();
+        int defaultIndex = this.priorityClasses.indexOf(defaultClass);
+        this.defaultPriority = defaultIndex >= 0 ? defaultIndex : this.priorityClasses.size();
+        this.queueFullCounter = Counter.builder("proxy.session.admission.rejected").tag("reason", "queue_full")
+                .description("Créations de session refusées par le contrôle d'admission")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("proxy.session.admission.rejected").tag("reason", "timeout")
+                .description("Créations de session refusées par le contrôle d'admission")
+                .register(meterRegistry);
+        Gauge.builder("proxy.session.admission.queued", this, SessionAdmissionService::getQueuedCount)
+                .description("Créations de session en attente d'admission")
+                .register(meterRegistry);
+        gridNodeService.addCapacityListener(this::dispatch);
+        if (isEnabled()) {
+            log.info("[Proxy] Contrôle d'admission : {} créations simultanées par nœud, file de {} demandes",
+                    maxCreatesPerNode, maxQueueSize);
+        }
+    }
+
+    /**
+     * Indique si le contrôle d'admission est activé.
+     *
+     * @return true si le nombre de créations simultanées par nœud est limité
+     */
+    public boolean isEnabled() {
+        return maxCreatesPerNode > 0;
+    }
+
+    /**
+     * Retourne le rang de priorité d'une classe de priorité ; plus il est faible, plus la demande est prioritaire.
+     *
+     * @param priorityClass le nom de la classe, insensible à la casse, ou null
+     * @return le rang de la classe, ou celui de la classe par défaut si elle est absente ou inconnue
+     */
+    public int getPriority(String priorityClass) {
+        if (priorityClass != null) {
+            for (int i = 0; i < priorityClasses.size(); i++) {
+                if (priorityClasses.get(i).equalsIgnoreCase(priorityClass.trim())) {
+                    return i;
+                }
+            }
+        }
+        return defaultPriority;
+    }
+
+    /**
+     * Retourne le rang de priorité des créations de session en arrière-plan, comme celles du pool de sessions :
+     * elles ne sont admises qu'après toutes les demandes des clients.
+     *
+     * @return un rang moins prioritaire que toutes les classes de priorité
+     */
+    public int getBackgroundPriority() {
+        return priorityClasses.size() + 1;
+    }
+
+    /**
+     * Admet une demande de création de session en lui réservant un nœud, immédiatement ou après attente dans la file.
+     * La réservation se libère comme celle de {@link GridNodeService#reserveNode()}. Si la demande est annulée
+     * après l'attribution du nœud, la réservation est libérée automatiquement.
+     *
+     * @param priority le rang de priorité de la demande, voir {@link #getPriority(String)}
+     * @return un {@link Mono} émettant le nœud réservé, ou vide si la demande est refusée
+     */
+    public Mono<GridNode> admit(int priority) {
+        return Mono.<GridNode>create(sink -> {
+                    GridNode node = null;
+                    Waiter waiter = null;
+                    synchronized (this) {
+                        if (queue.isEmpty()) {
+                            node = gridNodeService.tryReserveNode(maxCreatesPerNode);
+                        }
+                        if (node == null) {
+                            if (queue.size() >= maxQueueSize) {
+                                queueFullCounter.increment();
+                                sink.success();
+                                return;
+                            }
+                            waiter = new Waiter(priority, sequence++, sink);
+                            queue.add(waiter);
+                        }
+                    }
+                    if (node != null) {
+                        sink.success(node);
+                        return;
+                    }
+                    Waiter queued = waiter;
+                    sink.onCancel(() -> remove(queued));
+                })
+                // Un nœud attribué à une demande annulée entre-temps est rendu
+                .doOnDiscard(GridNode.class, gridNodeService::releaseSession)
+                .timeout(queueTimeout, Mono.fromRunnable(timeoutCounter::increment));
+    }
+
+    /**
+     * Retourne le nombre de demandes de création en attente d'admission.
+     *
+     * @return le nombre de demandes en attente
+     */
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Attribue des nœuds aux demandes en attente tant que des nœuds sont sous la limite de créations simultanées.
+     * Les demandes sont reprises hors du verrou, sur le thread qui a terminé la création précédente.
+     */
+    private void dispatch() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<Waiter> admitted = null;
+        synchronized (this) {
+            while (!queue.isEmpty()) {
+                GridNode node = gridNodeService.tryReserveNode(maxCreatesPerNode);
+                if (node == null) {
+                    break;
+                }
+                Waiter waiter = queue.poll();
+                waiter.admitted(node);
+                if (admitted == null) {
+                    admitted = new ArrayList<>();
+                }
+                admitted.add(waiter);
+            }
+        }
+        if (admitted != null) {
+            admitted.forEach(Waiter::resume);
+        }
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queue.remove(waiter);
+    }
+
+    /**
+     * Une demande de création en attente d'admission.
+     */
+    private static final class Waiter {
+
+        private final int priority;
+        private final long sequence;
+        private final MonoSink<GridNode> sink;
+        private GridNode node;
+
+        private Waiter(int priority, long sequence, MonoSink<GridNode> sink) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.sink = sink;
+        }
+
+        private int priority() {
+            return priority;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+
+        private void admitted(GridNode node) {
+            this.node = node;
+        }
+
+        private void resume() {
+            sink.success(node);
+        }
+    }
+}
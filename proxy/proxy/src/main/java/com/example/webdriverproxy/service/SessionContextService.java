@@ -1,75 +1,133 @@
 package com.example.webdriverproxy.service;
 
 import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
 import com.example.webdriverproxy.model.SessionContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.map.PassiveExpiringMap;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Un service qui gère le contexte des sessions pour le proxy Selenium WebDriver.
- * Ce service initialise, enrichit et stocke les contextes de session dans un cache à expiration automatique,
- * tout en interagissant avec {@link JsonMapper} pour traiter les données JSON des requêtes et réponses.
+ * Ce service initialise, enrichit et stocke les contextes de session dans un cache concurrent borné, dont les entrées
+ * expirent après une période d'inactivité renouvelée à chaque commande, tout en interagissant avec {@link JsonMapper}
+ * pour traiter les données JSON des requêtes et réponses.
+ * <p>
+ * Les sessions sont également confiées au {@link SessionRegistry}. Lorsque celui-ci est partagé entre plusieurs
+ * instances du proxy, le cache devient un cache de proximité : ses entrées sont relues dans le registre après
+ * {@code proxy.session.registry.near-cache-ttl}, et c'est le registre qui décide de l'expiration des sessions inactives.
  */
 @Slf4j(topic = "proxy")
 @Service
 public class SessionContextService {
 
-    @Value("${proxy.selenium.url}")
-    private String seleniumUrl;
-
-    private PassiveExpiringMap<String, SessionContext> sessionContextCache = new PassiveExpiringMap<>(8, TimeUnit.HOURS);
+    private final Cache<String, SessionContext> sessionContextCache;
+    private final List<Consumer<SessionContext>> expirationListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<SessionContext>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<SessionContext>> submitListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
 
     private final JsonMapper jsonMapper;
+    private final GridNodeService gridNodeService;
+    private final SessionRegistry sessionRegistry;
 
     /**
-     * Construit une instance de {@code SessionContextService} avec le mapper JSON requis.
+     * Construit une instance de {@code SessionContextService} avec le mapper JSON et le service des nœuds requis.
+     * Lorsqu'une session quitte le cache (suppression, inactivité ou dépassement de taille), elle est décomptée
+     * du nœud qui l'hébergeait ; une session expirée faute de commande est en outre signalée aux écouteurs
+     * d'expiration, et une session évincée faute de place aux écouteurs d'éviction. Avec un registre partagé, seule une
+     * suppression explicite décompte la session de son nœud, les expirations signalées aux écouteurs sont celles du
+     * registre, et les évictions du cache de proximité ne sont pas signalées.
      *
-     * @param jsonMapper le service de mappage JSON utilisé pour analyser les données
+     * @param jsonMapper      le service de mappage JSON utilisé pour analyser les données
+     * @param gridNodeService le service qui choisit le nœud Selenium des nouvelles sessions
+     * @param sessionRegistry le registre des sessions, local ou partagé entre plusieurs instances
+     * @param maximumSize     le nombre maximal de sessions conservées
+     * @param idleTimeout     la durée d'inactivité au-delà de laquelle une session expire
+     * @param nearCacheTtl    la durée de conservation locale d'une session lorsque le registre est partagé
      */
-    public SessionContextService(JsonMapper jsonMapper) {
+    public SessionContextService(JsonMapper jsonMapper, GridNodeService gridNodeService, SessionRegistry sessionRegistry,
+                                 @Value("${proxy.session.maximum-size:10000}") long maximumSize,
+                                 @Value("${proxy.session.idle-timeout:1h}") Duration idleTimeout,
+                                 @Value("${proxy.session.registry.near-cache-ttl:30s}") Duration nearCacheTtl) {
         this.jsonMapper = jsonMapper;
+        this.gridNodeService = gridNodeService;
+        this.sessionRegistry = sessionRegistry;
+        boolean shared = sessionRegistry.isShared();
+        // Les écouteurs de retrait s'exécutent sur le thread qui retire la session plutôt qu'en différé sur le pool
+        // commun : un retrait est ainsi publié avant que l'appelant ne poursuive, par exemple avant la soumission
+        // suivante d'une session de même identifiant
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .executor(Runnable::run)
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats();
+        if (shared) {
+            builder.expireAfterWrite(nearCacheTtl);
+        } else {
+            builder.expireAfterAccess(idleTimeout);
+        }
+        this.sessionContextCache = builder
+                .removalListener((String sessionId, SessionContext sessionContext, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED && sessionContext != null && sessionContext.getUrl() != null) {
+                        log.info("[Proxy] Session retirée du cache ({}) : {}", cause, sessionId);
+                        removalListeners.forEach(listener -> listener.accept(sessionId));
+                        if (!shared || cause == RemovalCause.EXPLICIT) {
+                            gridNodeService.closeSession(sessionContext.getUrl());
+                        }
+                        if (!shared && cause == RemovalCause.EXPIRED) {
+                            expirationListeners.forEach(listener -> listener.accept(sessionContext));
+                        }
+                        if (!shared && cause == RemovalCause.SIZE) {
+                            evictionListeners.forEach(listener -> listener.accept(sessionContext));
+                        }
+                    }
+                })
+                .build();
+        sessionRegistry.addExpirationListener(sessionContext -> {
+            log.info("[Proxy] Session expirée dans le registre : {}", sessionContext.getSessionId());
+            sessionContextCache.invalidate(sessionContext.getSessionId());
+            expirationListeners.forEach(listener -> listener.accept(sessionContext));
+        });
     }
 
     /**
-     * Initialise un nouveau contexte de session à partir d'une requête.
-     * Crée un contexte par défaut avec l'URL Selenium et y associe le corps de la requête.
+     * Initialise un nouveau contexte de session pour une requête de création de session.
+     * Réserve le nœud Selenium le moins chargé et l'associe au contexte ; le corps de la requête
+     * est rattaché ultérieurement, une fois lu.
      *
-     * @param request le corps de la requête de création de session
      * @return le contexte de session initialisé
      */
-    public SessionContext initSessionContext(String request) {
-        SessionContext sessionContext = getDefaultSessionContext(seleniumUrl);
-        log.info("[Proxy] Utilisation du serveur Selenium : {}", seleniumUrl);
-        return sessionContext.setCreateSessionReqBody(request);
+    public SessionContext initSessionContext() {
+        return initSessionContext(gridNodeService.reserveNode());
     }
 
     /**
-     * Crée un contexte de session par défaut avec une URL Selenium spécifiée.
+     * Initialise un nouveau contexte de session sur un nœud déjà réservé, par exemple par le contrôle d'admission.
      *
-     * @param urlStr l'URL du serveur Selenium sous forme de chaîne
-     * @return un nouveau contexte de session avec l'URL définie
-     * @throws RuntimeException si l'URL est invalide
+     * @param node le nœud réservé pour la session
+     * @return le contexte de session initialisé
      */
-    private SessionContext getDefaultSessionContext(String urlStr) {
-        URL url;
-        try {
-            url = new URL(urlStr);
-        } catch (MalformedURLException e) {
-            log.error("[Proxy] Erreur lors de la création de l'URL du serveur Selenium : {}", e.getMessage());
-            throw new RuntimeException("URL Selenium invalide : " + urlStr, e);
-        }
-        return new SessionContext().setUrl(url);
+    public SessionContext initSessionContext(GridNode node) {
+        log.info("[Proxy] Utilisation du serveur Selenium : {}", node.getUrl());
+        return new SessionContext().setUrl(node.getUrl());
     }
 
     /**
-     * Soumet un contexte de session au cache et retourne son identifiant.
+     * Soumet un contexte de session au cache et au registre, et retourne son identifiant.
      * Enrichit le contexte avec les données de la réponse avant de le stocker.
      *
      * @param responseData les données de la réponse JSON contenant les détails de la session
@@ -79,12 +137,38 @@ public class SessionContextService {
     public String submitSessionContext(String responseData, SessionContext sessionContext) {
         String sessionId = enrichSessionContext(responseData, sessionContext);
         sessionContextCache.put(sessionId, sessionContext);
+        sessionRegistry.register(sessionContext).subscribe();
+        submitListeners.forEach(listener -> listener.accept(sessionContext));
         return sessionId;
     }
 
+    /**
+     * Rétablit dans le cache une session conservée avant un redémarrage du proxy, sans la signaler aux écouteurs de
+     * soumission. La session est comptée sur son nœud ; elle est ignorée si son nœud n'est plus configuré ou si elle
+     * est déjà dans le cache.
+     *
+     * @param sessionContext le contexte de la session à rétablir
+     * @return true si la session a été rétablie
+     */
+    public boolean restoreSessionContext(SessionContext sessionContext) {
+        if (sessionContext.getSessionId() == null || sessionContext.getUrl() == null
+                || gridNodeService.getNode(sessionContext.getUrl()) == null) {
+            log.warn("[Proxy] Session non rétablie, nœud Selenium inconnu : {}", sessionContext.getSessionId());
+            return false;
+        }
+        if (sessionContextCache.asMap().putIfAbsent(sessionContext.getSessionId(), sessionContext) != null) {
+            return false;
+        }
+        gridNodeService.restoreSession(sessionContext.getUrl());
+        return true;
+    }
+
     /**
      * Enrichit un contexte de session avec les données extraites d'une réponse JSON.
-     * Définit les capacités et l'identifiant de session dans le contexte.
+     * Définit les capacités et l'identifiant de session dans le contexte ; seuls ces deux champs sont lus.
+     * Le délai d'attente des éléments et la durée de validité du cache des lectures sont lus dans les capacités
+     * {@code proxy:elementWait} et {@code proxy:readCache} de la demande de création, dans {@code alwaysMatch} ou à
+     * défaut dans {@code firstMatch}.
      *
      * @param responseData les données de la réponse JSON
      * @param sessionContext le contexte de session à enrichir
@@ -92,17 +176,81 @@ public class SessionContextService {
      * @throws RuntimeException si les données de réponse sont invalides ou si l'identifiant est absent
      */
     public String enrichSessionContext(String responseData, SessionContext sessionContext) {
-        Map<String, Object> value = jsonMapper.getValue(responseData);
-        if (value == null) {
+        Map<String, Object> fields = jsonMapper.extract(responseData, JsonMapper.VALUE_SESSION_ID, JsonMapper.VALUE_CAPABILITIES);
+        if (fields.isEmpty()) {
             throw new RuntimeException("Données de réponse invalides : " + responseData);
         }
-        sessionContext.setCapabilities(jsonMapper.getCapabilities(value));
-        String sessionId = (String) value.get("sessionId");
+        Map<String, Object> capabilities = jsonMapper.asMap(fields.get(JsonMapper.VALUE_CAPABILITIES));
+        sessionContext.setCapabilities(capabilities != null ? capabilities : Collections.emptyMap());
+        Object sessionId = fields.get(JsonMapper.VALUE_SESSION_ID);
         if (sessionId == null) {
             throw new RuntimeException("Identifiant de session non trouvé dans la réponse : " + responseData);
         }
-        sessionContext.setSessionId(sessionId);
-        return sessionId;
+        sessionContext.setSessionId(sessionId.toString());
+        String createSessionReqBody = sessionContext.getCreateSessionReqBody();
+        sessionContext.setElementWaitMillis(getMillisCapability(createSessionReqBody, JsonMapper.ELEMENT_WAIT_CAPABILITY));
+        sessionContext.setReadCacheTtlMillis(getMillisCapability(createSessionReqBody, JsonMapper.READ_CACHE_CAPABILITY));
+        return sessionId.toString();
+    }
+
+    private long getMillisCapability(String createSessionReqBody, String capability) {
+        if (createSessionReqBody == null || !createSessionReqBody.contains(capability)) {
+            return 0;
+        }
+        try {
+            Object millis = jsonMapper.getRequestedCapability(createSessionReqBody, capability);
+            return millis instanceof Number number ? Math.max(0, number.longValue()) : 0;
+        } catch (RuntimeException e) {
+            log.warn("[Proxy] Capacité {} illisible : {}", capability, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Recherche un contexte de session dans le cache sans échouer s'il est absent.
+     *
+     * @param currentSessionId l'identifiant de la session à rechercher
+     * @return le contexte de session correspondant, ou null s'il n'est pas dans le cache
+     */
+    public SessionContext findSessionContext(String currentSessionId) {
+        return sessionContextCache.getIfPresent(currentSessionId);
+    }
+
+    /**
+     * Recherche un contexte de session dans le cache puis, s'il en est absent, dans le registre, par exemple lorsque la
+     * session a été créée par une autre instance du proxy. Une session trouvée dans le registre est ajoutée au cache,
+     * sauf si elle n'est rattachée à aucun nœud configuré.
+     *
+     * @param currentSessionId l'identifiant de la session à rechercher
+     * @return un {@link Mono} émettant le contexte de session, ou vide si la session est inconnue
+     */
+    public Mono<SessionContext> resolveSessionContext(String currentSessionId) {
+        SessionContext sessionContext = sessionContextCache.getIfPresent(currentSessionId);
+        if (sessionContext != null) {
+            return Mono.just(sessionContext);
+        }
+        return sessionRegistry.lookup(currentSessionId)
+                .filter(found -> found.getUrl() != null && gridNodeService.getNode(found.getUrl()) != null)
+                .map(found -> {
+                    SessionContext cached = sessionContextCache.asMap().putIfAbsent(currentSessionId, found);
+                    return cached != null ? cached : found;
+                });
+    }
+
+    /**
+     * Renouvelle l'inactivité d'une session routée sans le registre, grâce à un identifiant de session marqué de son
+     * nœud. Seul le cache local est lu ; une session absente est recherchée dans un registre partagé en arrière-plan,
+     * sans retarder la commande, afin qu'elle n'y expire pas.
+     *
+     * @param currentSessionId l'identifiant de la session
+     * @return le contexte de session du cache local, ou null s'il en est absent
+     */
+    public SessionContext touchSessionContext(String currentSessionId) {
+        SessionContext sessionContext = sessionContextCache.getIfPresent(currentSessionId);
+        if (sessionContext == null && sessionRegistry.isShared()) {
+            resolveSessionContext(currentSessionId).subscribe();
+        }
+        return sessionContext;
     }
 
     /**
@@ -113,10 +261,96 @@ public class SessionContextService {
      * @throws RuntimeException si le contexte de session n'est pas trouvé dans le cache
      */
     public SessionContext getSessionContext(String currentSessionId) {
-        SessionContext sessionContext = sessionContextCache.get(currentSessionId);
+        SessionContext sessionContext = sessionContextCache.getIfPresent(currentSessionId);
         if (sessionContext == null) {
             throw new RuntimeException("[Proxy] Contexte de session non trouvé : " + currentSessionId);
         }
         return sessionContext;
     }
+
+    /**
+     * Retire un contexte de session du cache et du registre, typiquement après la suppression de la session.
+     *
+     * @param currentSessionId l'identifiant de la session à retirer
+     */
+    public void removeSessionContext(String currentSessionId) {
+        sessionContextCache.invalidate(currentSessionId);
+        sessionRegistry.unregister(currentSessionId).subscribe();
+    }
+
+    /**
+     * Retire un contexte de session précis du cache, s'il y est encore, ainsi que du registre.
+     * Contrairement à {@link #removeSessionContext(String)}, un seul appelant obtient true pour un même contexte.
+     *
+     * @param sessionContext le contexte de session à retirer
+     * @return true si le contexte a été retiré par cet appel, false s'il n'était plus dans le cache
+     */
+    public boolean detachSessionContext(SessionContext sessionContext) {
+        if (sessionContext.getSessionId() == null
+                || !sessionContextCache.asMap().remove(sessionContext.getSessionId(), sessionContext)) {
+            return false;
+        }
+        sessionRegistry.unregister(sessionContext.getSessionId()).subscribe();
+        return true;
+    }
+
+    /**
+     * Enregistre une action exécutée pour chaque session expirée, c'est-à-dire restée sans commande au-delà de
+     * {@code proxy.session.idle-timeout}. L'action s'exécute hors du thread qui a traité la dernière commande ; avec un
+     * registre partagé, elle ne s'exécute que sur l'instance qui détient la session.
+     *
+     * @param listener l'action recevant le contexte de la session expirée
+     */
+    public void addExpirationListener(Consumer<SessionContext> listener) {
+        expirationListeners.add(listener);
+    }
+
+    /**
+     * Enregistre une action exécutée pour chaque session évincée du cache faute de place, au-delà de
+     * {@code proxy.session.maximum-size} sessions. Le proxy ne connaît plus la session, qui reste ouverte sur le Grid.
+     * Avec un registre partagé, le cache n'est qu'un cache de proximité et ses évictions ne sont pas signalées.
+     *
+     * @param listener l'action recevant le contexte de la session évincée
+     */
+    public void addEvictionListener(Consumer<SessionContext> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Enregistre une action exécutée pour chaque session soumise au cache après sa création.
+     *
+     * @param listener l'action recevant le contexte de la session soumise
+     */
+    public void addSubmitListener(Consumer<SessionContext> listener) {
+        submitListeners.add(listener);
+    }
+
+    /**
+     * Enregistre une action exécutée pour chaque session retirée du cache, quelle qu'en soit la cause (suppression,
+     * inactivité ou dépassement de taille). L'action s'exécute de façon synchrone, sur le thread qui retire la session
+     * ou, pour une expiration, sur celui de la maintenance du cache ; elle ne doit donc pas bloquer.
+     *
+     * @param listener l'action recevant l'identifiant de la session retirée
+     */
+    public void addRemovalListener(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * Retourne le nombre approximatif de sessions présentes dans le cache.
+     *
+     * @return le nombre de sessions conservées
+     */
+    public long getSessionCount() {
+        return sessionContextCache.estimatedSize();
+    }
+
+    /**
+     * Retourne les statistiques du cache : succès, échecs et évictions des recherches de session.
+     *
+     * @return un instantané des statistiques du cache
+     */
+    public CacheStats getCacheStats() {
+        return sessionContextCache.stats();
+    }
 }
\ No newline at end of file
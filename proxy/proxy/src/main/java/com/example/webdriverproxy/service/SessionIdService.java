@@ -0,0 +1,187 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.SessionContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Un service qui marque les identifiants de session rendus aux clients du nœud Selenium qui héberge la session.
+ * Lorsque {@code proxy.session-id.tagging} est activé, l'identifiant {@code abc} attribué par le Grid est rendu au
+ * client sous la forme {@code abc.<nœud><code>}, où {@code <nœud>} désigne le nœud (8 caractères hexadécimaux tirés de
+ * son URL) et {@code <code>} est un code d'authentification HMAC-SHA256 tronqué de l'identifiant et du nœud. Le proxy
+ * retrouve ainsi le nœud d'une commande à partir de son seul chemin, sans registre des sessions, y compris après un
+ * redémarrage ou sur une autre instance partageant la clé {@code proxy.session-id.secret}. Un identifiant modifié par
+ * le client est rejeté.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class SessionIdService {
+
+    private static final char SEPARATOR = '.';
+    private static final int NODE_TAG_LENGTH = 8;
+    private static final int MAC_BYTES = 8;
+    private static final int MAC_LENGTH = 11;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    private final Map<String, GridNode> nodesByTag = new HashMap<>();
+    private final Map<GridNode, String> tagsByNode = new HashMap<>();
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Construit une instance de {@code SessionIdService}.
+     *
+     * @param gridNodeService le service qui gère les nœuds Selenium
+     * @param jsonMapper      le service de mappage JSON utilisé pour réécrire les réponses de création de session
+     * @param enabled         indique si les identifiants de session rendus aux clients sont marqués de leur nœud
+     * @param secret          la clé HMAC partagée par les instances du proxy, ou vide pour une clé aléatoire
+     */
+    public SessionIdService(GridNodeService gridNodeService, JsonMapper jsonMapper,
+                            @Value("${proxy.session-id.tagging:false}") boolean enabled,
+                            @Value("${proxy.session-id.secret:}") String secret) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = enabled;
+        byte[] keyBytes;
+        if (secret.isEmpty()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            if (enabled) {
+                log.warn("[Proxy] Aucune clé proxy.session-id.secret : les identifiants de session marqués ne seront "
+                        + "reconnus que par cette instance, jusqu'à son redémarrage");
+            }
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        for (GridNode node : gridNodeService.getNodes()) {
+            String tag = nodeTag(node);
+            GridNode previous = nodesByTag.putIfAbsent(tag, node);
+            if (previous != null) {
+                throw new IllegalStateException("[Proxy] Nœuds Selenium indiscernables : " + previous.getUrl() + " et " + node.getUrl());
+            }
+            tagsByNode.put(node, tag);
+        }
+    }
+
+    /**
+     * Indique si les identifiants de session rendus aux clients sont marqués de leur nœud.
+     *
+     * @return true si le marquage est activé
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marque un identifiant de session attribué par le Grid du nœud qui héberge la session.
+     *
+     * @param sessionId l'identifiant de session attribué par le Grid
+     * @param node      le nœud qui héberge la session
+     * @return l'identifiant à rendre au client
+     */
+    public String tag(String sessionId, GridNode node) {
+        String nodeTag = tagsByNode.get(node);
+        return sessionId + SEPARATOR + nodeTag + mac(sessionId, nodeTag);
+    }
+
+    /**
+     * Remplace, dans la réponse de création d'une session, l'identifiant attribué par le Grid par l'identifiant marqué
+     * de son nœud. La réponse est renvoyée telle quelle si le marquage est désactivé ou si le nœud est inconnu.
+     *
+     * @param responseBody   la réponse de création de session du Grid
+     * @param sessionContext le contexte de la session créée
+     * @param node           le nœud qui héberge la session
+     * @return la réponse à renvoyer au client
+     */
+    public String tagResponse(String responseBody, SessionContext sessionContext, GridNode node) {
+        if (!enabled || node == null || !tagsByNode.containsKey(node)) {
+            return responseBody;
+        }
+        Map<String, Object> response = jsonMapper.convertRequest(responseBody);
+        String taggedId = tag(sessionContext.getSessionId(), node);
+        Map<String, Object> value = jsonMapper.asMap(response.get("value"));
+        if (value != null && value.containsKey("sessionId")) {
+            value.put("sessionId", taggedId);
+            response.put("value", value);
+        }
+        // Protocole JSON Wire : l'identifiant figure aussi à la racine de la réponse
+        if (response.containsKey("sessionId")) {
+            response.put("sessionId", taggedId);
+        }
+        return jsonMapper.toJson(response);
+    }
+
+    /**
+     * Retrouve le nœud et l'identifiant attribué par le Grid à partir d'un identifiant reçu d'un client.
+     *
+     * @param clientSessionId l'identifiant de session présent dans le chemin de la commande
+     * @return un contexte de session minimal (identifiant du Grid et URL du nœud), ou null si l'identifiant n'est pas
+     * marqué ou si le marquage est désactivé
+     * @throws IllegalArgumentException si l'identifiant est marqué mais altéré, ou désigne un nœud inconnu
+     */
+    public SessionContext untag(String clientSessionId) {
+        int separator = clientSessionId.lastIndexOf(SEPARATOR);
+        if (!enabled || separator < 0 || clientSessionId.length() - separator - 1 != NODE_TAG_LENGTH + MAC_LENGTH) {
+            return null;
+        }
+        String sessionId = clientSessionId.substring(0, separator);
+        String nodeTag = clientSessionId.substring(separator + 1, separator + 1 + NODE_TAG_LENGTH);
+        String mac = clientSessionId.substring(separator + 1 + NODE_TAG_LENGTH);
+        if (!MessageDigest.isEqual(mac.getBytes(StandardCharsets.US_ASCII),
+                mac(sessionId, nodeTag).getBytes(StandardCharsets.US_ASCII))) {
+            throw new IllegalArgumentException("[Proxy] Identifiant de session altéré : " + clientSessionId);
+        }
+        GridNode node = nodesByTag.get(nodeTag);
+        if (node == null) {
+            throw new IllegalArgumentException("[Proxy] Nœud Selenium inconnu pour la session : " + clientSessionId);
+        }
+        return new SessionContext().setSessionId(sessionId).setUrl(node.getUrl());
+    }
+
+    private String mac(String sessionId, String nodeTag) {
+        Mac mac = macs.get();
+        mac.update(sessionId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) SEPARATOR);
+        byte[] digest = mac.doFinal(nodeTag.getBytes(StandardCharsets.US_ASCII));
+        return BASE64.encodeToString(Arrays.copyOf(digest, MAC_BYTES));
+    }
+
+    private static String nodeTag(GridNode node) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(node.getUrl().toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, NODE_TAG_LENGTH / 2);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " indisponible", e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.PooledSession;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un service qui maintient un pool de sessions WebDriver créées à l'avance pour les jeux de capacités les plus demandés.
+ * Chaque demande de création est comptée sous la clé normalisée de ses capacités ; dès qu'une clé atteint le seuil
+ * {@code proxy.session-pool.min-requests}, le service garde {@code proxy.session-pool.size} sessions prêtes pour elle,
+ * créées en arrière-plan avec le corps de la première demande reçue. Une demande correspondante reçoit immédiatement
+ * une session du pool, qui est aussitôt remplacé. Les sessions restées inutilisées au-delà de
+ * {@code proxy.session-pool.idle-timeout} sont supprimées du nœud et recréées, et les clés qui ne sont plus demandées
+ * pendant {@code proxy.session-pool.key-timeout} sont abandonnées.
+ * <p>
+ * Les créations du pool sont soumises au contrôle d'admission lorsqu'il est activé, avec une priorité inférieure à
+ * celle de toutes les demandes des clients : le remplissage du pool ne dépasse jamais
+ * {@code proxy.admission.max-creates-per-node} et ne retarde pas les créations demandées par les clients.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class SessionPoolService {
+
+    private final boolean enabled;
+    private final int size;
+    private final int minRequests;
+    private final int maxKeys;
+    private final long idleTimeoutNanos;
+    private final long keyTimeoutNanos;
+    private final Duration createTimeout;
+
+    private final JsonMapper jsonMapper;
+    private final GridNodeService gridNodeService;
+    private final SessionAdmissionService sessionAdmissionService;
+    private final WebClient webClient;
+    private final Map<String, PoolEntry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Construit une instance de {@code SessionPoolService} et démarre la maintenance périodique si le pool est activé.
+     *
+     * @param jsonMapper              le service de mappage JSON utilisé pour lire les réponses de création
+     * @param gridNodeService         le service qui choisit le nœud Selenium des sessions du pool
+     * @param sessionAdmissionService le service de contrôle d'admission auquel les créations du pool sont soumises
+     * @param webClientBuilder        le constructeur du client HTTP utilisé pour créer et supprimer les sessions
+     * @param enabled                 true pour activer le pool
+     * @param size                    le nombre de sessions prêtes conservées par jeu de capacités
+     * @param minRequests             le nombre de demandes à partir duquel un jeu de capacités est mis en pool
+     * @param maxKeys                 le nombre maximal de jeux de capacités suivis
+     * @param idleTimeout             la durée au-delà de laquelle une session inutilisée est recyclée
+     * @param keyTimeout              la durée sans demande au-delà de laquelle un jeu de capacités est abandonné
+     * @param maintenanceInterval     l'intervalle entre deux passes de maintenance
+     * @param createTimeout           la durée maximale d'une création de session en arrière-plan
+     */
+    public SessionPoolService(JsonMapper jsonMapper, GridNodeService gridNodeService,
+                              SessionAdmissionService sessionAdmissionService, WebClient.Builder webClientBuilder,
+                              @Value("${proxy.session-pool.enabled:false}") boolean enabled,
+                              @Value("${proxy.session-pool.size:2}") int size,
+                              @Value("${proxy.session-pool.min-requests:3}") int minRequests,
+                              @Value("${proxy.session-pool.max-keys:8}") int maxKeys,
+                              @Value("${proxy.session-pool.idle-timeout:4m}") Duration idleTimeout,
+                              @Value("${proxy.session-pool.key-timeout:15m}") Duration keyTimeout,
+                              @Value("${proxy.session-pool.maintenance-interval:5s}") Duration maintenanceInterval,
+                              @Value("${proxy.session-pool.create-timeout:2m}") Duration createTimeout) {
+        this.enabled = enabled;
+        this.size = size;
+        this.minRequests = minRequests;
+        this.maxKeys = maxKeys;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.keyTimeoutNanos = keyTimeout.toNanos();
+        this.createTimeout = createTimeout;
+        this.jsonMapper = jsonMapper;
+        this.gridNodeService = gridNodeService;
+        this.sessionAdmissionService = sessionAdmissionService;
+        this.webClient = webClientBuilder.build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            long intervalMillis = maintenanceInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("[Proxy] Pool de sessions activé : {} session(s) par jeu de capacités", size);
+        }
+    }
+
+    /**
+     * Indique si le pool de sessions est activé.
+     *
+     * @return true si le pool est activé
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Compte une demande de création de session et retourne une session prête du pool si possible.
+     * Le pool du jeu de capacités est complété en arrière-plan après chaque demande.
+     *
+     * @param capabilitiesKey la clé normalisée des capacités demandées
+     * @param requestBody     le corps de la demande, utilisé pour les créations en arrière-plan
+     * @return une session prête, ou null si le pool n'en contient aucune pour ces capacités
+     */
+    public PooledSession acquire(String capabilitiesKey, String requestBody) {
+        if (!enabled) {
+            return null;
+        }
+        PoolEntry entry = entries.get(capabilitiesKey);
+        if (entry == null) {
+            if (entries.size() >= maxKeys) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            entry = entries.computeIfAbsent(capabilitiesKey, key -> new PoolEntry(requestBody));
+        }
+        entry.lastRequestedNanos = System.nanoTime();
+        entry.requestCount.incrementAndGet();
+        PooledSession session = pollFresh(entry);
+        if (session != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        refill(entry);
+        return session;
+    }
+
+    /**
+     * Retourne le nombre de sessions prêtes dans le pool, tous jeux de capacités confondus.
+     *
+     * @return le nombre de sessions prêtes
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (PoolEntry entry : entries.values()) {
+            count += entry.idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * Retourne le nombre de demandes servies par une session du pool.
+     *
+     * @return le nombre de demandes servies par le pool
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Retourne le nombre de demandes transmises au Grid faute de session prête.
+     *
+     * @return le nombre de demandes non servies par le pool
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Arrête la maintenance et supprime les sessions prêtes des nœuds, dans la limite de quelques secondes.
+     */
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+        List<PooledSession> sessions = new ArrayList<>();
+        for (PoolEntry entry : entries.values()) {
+            PooledSession session;
+            while ((session = entry.idle.pollFirst()) != null) {
+                sessions.add(session);
+            }
+        }
+        entries.clear();
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            Flux.fromIterable(sessions).flatMap(this::deleteSession).then().block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            log.warn("[Proxy] Sessions du pool non supprimées à l'arrêt : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recycle les sessions inutilisées trop longtemps, abandonne les jeux de capacités qui ne sont plus demandés
+     * et complète les autres.
+     */
+    void maintain() {
+        try {
+            long now = System.nanoTime();
+            Iterator<Map.Entry<String, PoolEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                PoolEntry entry = iterator.next().getValue();
+                if (now - entry.lastRequestedNanos > keyTimeoutNanos) {
+                    iterator.remove();
+                    PooledSession session;
+                    while ((session = entry.idle.pollFirst()) != null) {
+                        discard(session);
+                    }
+                    continue;
+                }
+                for (Iterator<PooledSession> sessions = entry.idle.iterator(); sessions.hasNext(); ) {
+                    PooledSession session = sessions.next();
+                    if (now - session.getCreatedNanos() > idleTimeoutNanos && entry.idle.remove(session)) {
+                        discard(session);
+                    }
+                }
+                refill(entry);
+            }
+        } catch (RuntimeException e) {
+            log.error("[Proxy] Erreur lors de la maintenance du pool de sessions : ", e);
+        }
+    }
+
+    private PooledSession pollFresh(PoolEntry entry) {
+        long now = System.nanoTime();
+        PooledSession session;
+        while ((session = entry.idle.pollFirst()) != null) {
+            if (now - session.getCreatedNanos() <= idleTimeoutNanos) {
+                return session;
+            }
+            discard(session);
+        }
+        return null;
+    }
+
+    private void refill(PoolEntry entry) {
+        if (entry.requestCount.get() < minRequests) {
+            return;
+        }
+        while (entry.idle.size() + entry.creating.get() < size) {
+            if (entry.creating.incrementAndGet() + entry.idle.size() > size) {
+                entry.creating.decrementAndGet();
+                return;
+            }
+            createSession(entry);
+        }
+    }
+
+    private void createSession(PoolEntry entry) {
+        if (!sessionAdmissionService.isEnabled()) {
+            createSession(entry, gridNodeService.reserveNode());
+            return;
+        }
+        sessionAdmissionService.admit(sessionAdmissionService.getBackgroundPriority())
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    entry.creating.decrementAndGet();
+                    log.debug("[Proxy] Création d'une session du pool refusée par le contrôle d'admission");
+                }))
+                .subscribe(node -> createSession(entry, node));
+    }
+
+    private void createSession(PoolEntry entry, GridNode node) {
+        long startNanos = System.nanoTime();
+        webClient.post()
+                .uri(node.getUrl() + "/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(entry.requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(createTimeout)
+                .subscribe(responseBody -> {
+                    Object sessionId = jsonMapper.extract(responseBody, JsonMapper.VALUE_SESSION_ID).get(JsonMapper.VALUE_SESSION_ID);
+                    entry.creating.decrementAndGet();
+                    if (sessionId == null) {
+                        gridNodeService.releaseSession(node);
+                        log.warn("[Proxy] Réponse de création sans identifiant de session pour le pool : {}", responseBody);
+                        return;
+                    }
+                    gridNodeService.commitSession(node, System.nanoTime() - startNanos);
+                    entry.idle.offerLast(new PooledSession()
+                            .setSessionId(sessionId.toString())
+                            .setNode(node)
+                            .setResponseBody(responseBody)
+                            .setCreatedNanos(System.nanoTime()));
+                    log.info("[Proxy] Session ajoutée au pool : {} sur {}", sessionId, node.getUrl());
+                }, error -> {
+                    entry.creating.decrementAndGet();
+                    gridNodeService.releaseSession(node);
+                    log.warn("[Proxy] Échec de création d'une session du pool sur {} : {}", node.getUrl(), error.getMessage());
+                });
+    }
+
+    /**
+     * Supprime une session du pool de son nœud, par exemple lorsqu'elle est trop ancienne ou inutilisable.
+     *
+     * @param session la session à supprimer
+     */
+    public void discard(PooledSession session) {
+        log.info("[Proxy] Session du pool recyclée : {}", session.getSessionId());
+        deleteSession(session).subscribe();
+    }
+
+    private Mono<Void> deleteSession(PooledSession session) {
+        return webClient.delete()
+                .uri(session.getNode().getUrl() + "/session/" + session.getSessionId())
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofSeconds(30))
+                .then()
+                .onErrorResume(error -> {
+                    log.warn("[Proxy] Échec de suppression de la session du pool {} : {}", session.getSessionId(), error.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> gridNodeService.closeSession(session.getNode().getUrl()));
+    }
+
+    /**
+     * L'état du pool d'un jeu de capacités.
+     */
+    private static final class PoolEntry {
+
+        private final String requestBody;
+        private final ConcurrentLinkedDeque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger creating = new AtomicInteger();
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private volatile long lastRequestedNanos = System.nanoTime();
+
+        private PoolEntry(String requestBody) {
+            this.requestBody = requestBody;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.SessionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Un service qui supprime sur le Grid les sessions abandonnées par leur client, afin de libérer leur navigateur.
+ * Une session est abandonnée lorsqu'elle ne reçoit plus aucune commande pendant {@code proxy.session.idle-timeout}
+ * (typiquement après l'arrêt brutal du processus de test), ou lorsque le client s'est déconnecté pendant la création de
+ * la session. Dans les deux cas, le proxy retire la session de son cache et envoie lui-même
+ * {@code DELETE /session/{id}} au nœud qui l'héberge. Une session évincée du cache faute de place, au-delà de
+ * {@code proxy.session.maximum-size}, est supprimée de la même façon : le proxy ne pourrait plus la router.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class SessionReaperService {
+
+    /** Le motif de suppression d'une session restée inactive. */
+    public static final String IDLE = "idle";
+
+    /** Le motif de suppression d'une session dont le client s'est déconnecté pendant la création. */
+    public static final String ABANDONED = "abandoned";
+
+    /** Le motif de suppression d'une session évincée du cache faute de place. */
+    public static final String EVICTED = "evicted";
+
+    private final SessionContextService sessionContextService;
+    private final NodeCommandService nodeCommandService;
+    private final Map<String, Counter> reapedCounters;
+    private final boolean enabled;
+    private final Duration deleteTimeout;
+
+    /**
+     * Construit une instance de {@code SessionReaperService} et l'abonne à l'expiration des sessions inactives et à
+     * l'éviction des sessions en surnombre.
+     *
+     * @param sessionContextService le service qui gère le contexte des sessions
+     * @param nodeCommandService    le service qui envoie les commandes aux nœuds Selenium
+     * @param meterRegistry         le registre Micrometer dans lequel les suppressions sont comptées
+     * @param enabled               indique si les sessions abandonnées sont supprimées sur le Grid
+     * @param deleteTimeout         la durée maximale de la suppression d'une session sur son nœud
+     */
+    public SessionReaperService(SessionContextService sessionContextService, NodeCommandService nodeCommandService,
+                                MeterRegistry meterRegistry,
+                                @Value("${proxy.session.reaper.enabled:true}") boolean enabled,
+                                @Value("${proxy.session.reaper.delete-timeout:30s}") Duration deleteTimeout) {
+        this.sessionContextService = sessionContextService;
+        this.nodeCommandService = nodeCommandService;
+        this.reapedCounters = Map.of(
+                IDLE, reapedCounter(meterRegistry, IDLE),
+                ABANDONED, reapedCounter(meterRegistry, ABANDONED),
+                EVICTED, reapedCounter(meterRegistry, EVICTED));
+        this.enabled = enabled;
+        this.deleteTimeout = deleteTimeout;
+        if (enabled) {
+            sessionContextService.addExpirationListener(sessionContext -> deleteSession(sessionContext, IDLE));
+            sessionContextService.addEvictionListener(sessionContext -> deleteSession(sessionContext, EVICTED));
+        }
+    }
+
+    private static Counter reapedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("proxy.session.reaped").tag("reason", reason)
+                .description("Sessions abandonnées supprimées sur le Grid par le proxy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retire une session du cache et la supprime sur son nœud, si elle y est encore.
+     * Plusieurs appels pour la même session n'envoient qu'une seule suppression.
+     *
+     * @param sessionContext le contexte de la session abandonnée
+     * @param reason         le motif de la suppression, {@link #IDLE}, {@link #ABANDONED} ou {@link #EVICTED}
+     */
+    public void reap(SessionContext sessionContext, String reason) {
+        if (enabled && sessionContextService.detachSessionContext(sessionContext)) {
+            deleteSession(sessionContext, reason);
+        }
+    }
+
+    private void deleteSession(SessionContext sessionContext, String reason) {
+        log.warn("[Proxy] Suppression de la session abandonnée ({}) : {} sur {}",
+                reason, sessionContext.getSessionId(), sessionContext.getUrl());
+        reapedCounters.get(reason).increment();
+        nodeCommandService.send(sessionContext, HttpMethod.DELETE, "", null, deleteTimeout, null)
+                .subscribe(response -> {
+                    if (response.getStatus() >= 300) {
+                        log.warn("[Proxy] Suppression de la session {} refusée par le nœud ({}) : {}",
+                                sessionContext.getSessionId(), response.getStatus(), response.getBody());
+                    }
+                });
+    }
+}
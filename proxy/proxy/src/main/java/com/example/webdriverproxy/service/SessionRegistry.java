@@ -0,0 +1,58 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.SessionContext;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * Le registre des contextes de session, derrière le cache local de {@link SessionContextService}.
+ * Il permet à une instance du proxy de retrouver une session créée par une autre instance ; l'implémentation est
+ * choisie par {@code proxy.session.registry.type} :
+ * <ul>
+ *     <li>{@code local} ({@link LocalSessionRegistry}) : une seule instance, le cache local est l'unique registre ;</li>
+ *     <li>{@code cluster} ({@link ClusterSessionRegistry}) : les sessions sont réparties et répliquées entre les
+ *     instances du proxy, et le cache local ne sert plus que de cache de proximité.</li>
+ * </ul>
+ */
+public interface SessionRegistry {
+
+    /**
+     * Indique si le registre est partagé entre plusieurs instances du proxy.
+     * Dans ce cas, l'expiration des sessions inactives est décidée par le registre, et non par le cache local.
+     *
+     * @return true si le registre est partagé
+     */
+    boolean isShared();
+
+    /**
+     * Enregistre une session nouvellement créée.
+     *
+     * @param sessionContext le contexte de la session, avec son identifiant
+     * @return un {@link Mono} qui se termine lorsque la session est enregistrée ; il ne se termine jamais en erreur
+     */
+    Mono<Void> register(SessionContext sessionContext);
+
+    /**
+     * Recherche une session absente du cache local.
+     *
+     * @param sessionId l'identifiant de la session
+     * @return un {@link Mono} émettant le contexte de la session, ou vide si elle est inconnue
+     */
+    Mono<SessionContext> lookup(String sessionId);
+
+    /**
+     * Retire une session du registre, typiquement après sa suppression.
+     *
+     * @param sessionId l'identifiant de la session
+     * @return un {@link Mono} qui se termine lorsque la session est retirée ; il ne se termine jamais en erreur
+     */
+    Mono<Void> unregister(String sessionId);
+
+    /**
+     * Enregistre une action exécutée pour chaque session expirée dans un registre partagé.
+     *
+     * @param listener l'action recevant le contexte de la session expirée
+     */
+    void addExpirationListener(Consumer<SessionContext> listener);
+}
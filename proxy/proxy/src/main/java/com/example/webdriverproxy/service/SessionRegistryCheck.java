@@ -0,0 +1,33 @@
+package com.example.webdriverproxy.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vérifie au démarrage que le registre des sessions instancié est bien celui demandé par
+ * {@code proxy.session.registry.type}. Sans Spring AOT, la condition est évaluée au lancement et les deux concordent
+ * toujours ; avec une archive construite par le profil Maven {@code fast-startup}, le registre a été choisi à la
+ * compilation par {@code -Daot.session-registry}, et une valeur différente au lancement serait ignorée sans bruit.
+ * Le démarrage est alors interrompu plutôt que de laisser tourner une instance isolée dans une grappe, ou l'inverse.
+ */
+@Component
+public class SessionRegistryCheck {
+
+    /**
+     * Construit une instance de {@code SessionRegistryCheck} et vérifie le type du registre des sessions.
+     *
+     * @param sessionRegistry le registre des sessions instancié
+     * @param registryType    le type de registre demandé, {@code local} ou {@code cluster}
+     * @throws IllegalStateException si le registre instancié n'est pas du type demandé
+     */
+    public SessionRegistryCheck(SessionRegistry sessionRegistry,
+                                @Value("${proxy.session.registry.type:local}") String registryType) {
+        String builtType = sessionRegistry.isShared() ? "cluster" : "local";
+        if (!builtType.equalsIgnoreCase(registryType.trim())) {
+            throw new IllegalStateException("[Proxy] Le registre des sessions \"" + builtType
+                    + "\" a été fixé à la compilation AOT alors que proxy.session.registry.type vaut \"" + registryType
+                    + "\" : reconstruire l'archive avec -Daot.session-registry=" + registryType
+                    + " ou la lancer sans -Dspring.aot.enabled=true");
+        }
+    }
+}
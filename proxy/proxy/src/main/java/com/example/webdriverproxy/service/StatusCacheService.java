@@ -0,0 +1,140 @@
+package com.example.webdriverproxy.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Un service qui met en cache la réponse de {@code /wd/hub/status} du Grid pour une courte durée.
+ * Une réponse plus récente que {@code proxy.status-cache.ttl} est servie telle quelle. Au-delà, la première demande
+ * lance un rafraîchissement unique, partagé par toutes les demandes qui arrivent pendant qu'il est en cours ; tant que
+ * la réponse précédente a moins de {@code proxy.status-cache.max-stale}, elle continue d'être servie sans attendre le
+ * Grid. Le Grid reçoit ainsi au plus une requête de statut par TTL, quel que soit le nombre de clients.
+ */
+@Slf4j(topic = "proxy")
+@Service
+public class StatusCacheService {
+
+    private final WebClient webClient;
+    private final String statusUrl;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final Duration timeout;
+
+    private final AtomicReference<CachedStatus> cachedStatus = new AtomicReference<>();
+    private final AtomicReference<Mono<CachedStatus>> refreshInFlight = new AtomicReference<>();
+    private final AtomicLong upstreamRequestCount = new AtomicLong();
+
+    /**
+     * Construit une instance de {@code StatusCacheService}.
+     *
+     * @param webClientBuilder le constructeur du client HTTP utilisé pour interroger le Grid
+     * @param seleniumUrl      l'URL du serveur Selenium dont le statut est relayé
+     * @param ttl              la durée pendant laquelle une réponse est servie sans rafraîchissement
+     * @param maxStale         l'âge maximal d'une réponse servie pendant un rafraîchissement
+     * @param timeout          la durée maximale d'une requête de statut vers le Grid
+     */
+    public StatusCacheService(WebClient.Builder webClientBuilder,
+                              @Value("${proxy.selenium.url}") String seleniumUrl,
+                              @Value("${proxy.status-cache.ttl:2s}") Duration ttl,
+                              @Value("${proxy.status-cache.max-stale:1m}") Duration maxStale,
+                              @Value("${proxy.status-cache.timeout:10s}") Duration timeout) {
+        this.webClient = webClientBuilder.build();
+        this.statusUrl = seleniumUrl + "/status";
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Retourne la réponse de statut du Grid, depuis le cache si possible.
+     * Sans réponse récente ni réponse périmée utilisable, la demande attend le rafraîchissement en cours.
+     *
+     * @return un {@link Mono} émettant la réponse de statut, ou une erreur si le Grid n'a pas pu être interrogé
+     */
+    public Mono<CachedStatus> getStatus() {
+        CachedStatus current = cachedStatus.get();
+        if (current != null) {
+            long age = System.nanoTime() - current.getFetchedNanos();
+            if (age < ttlNanos) {
+                return Mono.just(current);
+            }
+            if (age < maxStaleNanos) {
+                refresh();
+                return Mono.just(current);
+            }
+        }
+        return refresh();
+    }
+
+    /**
+     * Retourne le nombre de requêtes de statut envoyées au Grid.
+     *
+     * @return le nombre de requêtes de statut envoyées au Grid
+     */
+    public long getUpstreamRequestCount() {
+        return upstreamRequestCount.get();
+    }
+
+    /**
+     * Lance un rafraîchissement s'il n'y en a pas déjà un en cours, et retourne le rafraîchissement partagé.
+     * Le rafraîchissement est souscrit par le service lui-même : l'abandon d'une demande ne l'interrompt pas.
+     */
+    private Mono<CachedStatus> refresh() {
+        Mono<CachedStatus> inFlight = refreshInFlight.get();
+        if (inFlight != null) {
+            return inFlight;
+        }
+        Mono<CachedStatus> refresh = Mono.defer(() -> {
+                    upstreamRequestCount.incrementAndGet();
+                    return webClient.get()
+                            .uri(statusUrl)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                                    .defaultIfEmpty(new byte[0])
+                                    .map(body -> new CachedStatus(response.statusCode().value(),
+                                            response.headers().contentType().orElse(MediaType.APPLICATION_JSON),
+                                            body, System.nanoTime())));
+                })
+                .timeout(timeout)
+                .doOnNext(cachedStatus::set)
+                .doOnError(error -> log.warn("[Proxy] Échec de la récupération du statut du Grid : {}", error.getMessage()))
+                .doFinally(signal -> refreshInFlight.set(null))
+                .cache();
+        if (!refreshInFlight.compareAndSet(null, refresh)) {
+            return refresh();
+        }
+        refresh.subscribe(status -> { }, error -> { });
+        return refresh;
+    }
+
+    /**
+     * Une réponse de statut du Grid conservée en cache.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class CachedStatus {
+
+        /** Le code de statut HTTP de la réponse du Grid. */
+        private final int statusCode;
+
+        /** Le type de contenu de la réponse du Grid. */
+        private final MediaType contentType;
+
+        /** Le corps de la réponse du Grid. */
+        private final byte[] body;
+
+        /** L'instant de réception de la réponse, selon {@link System#nanoTime()}. */
+        private final long fetchedNanos;
+    }
+}
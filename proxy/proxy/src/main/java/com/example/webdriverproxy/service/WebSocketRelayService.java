@@ -0,0 +1,338 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.WebSocketTraffic;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Un service qui fait passer par le proxy les connexions WebSocket des sessions (WebDriver BiDi, CDP, VNC).
+ * Dans la réponse de création d'une session, chaque capacité dont la valeur est une URL {@code ws://} ou
+ * {@code wss://} désignant la session sur son nœud ({@code se:cdp}, {@code webSocketUrl}, {@code se:vnc}...) est
+ * remplacée par l'URL équivalente sur le proxy, {@code /wd/hub/session/{id}/...} ; le contexte de la session conserve
+ * les URL du nœud, vers lesquelles {@code WebSocketRelayFilter} relaie ensuite les trames.
+ * <p>
+ * L'URL publique du proxy est tirée de la requête de création de session (hôte et schéma, {@code ws} ou {@code wss}),
+ * ou de {@code proxy.websocket.public-url} derrière un répartiteur de charge. Les trames et octets relayés sont comptés
+ * par session, jusqu'à la fin de la session, et au total dans les métriques {@code proxy.websocket.*}.
+ * <p>
+ * Une session pilotée seulement par ses connexions WebSocket ne reçoit aucune commande HTTP : les trames relayées
+ * renouvellent donc son inactivité, au plus une fois par {@code proxy.websocket.touch-interval}, afin qu'elle n'expire
+ * pas et ne soit pas supprimée sur le Grid pendant que le client l'utilise.
+ */
+@Service
+public class WebSocketRelayService {
+
+    /** Le préfixe des chemins de session exposés par le proxy. */
+    public static final String SESSION_PATH = "/wd/hub/session/";
+
+    private static final String WS_SCHEME = "ws://";
+    private static final String WSS_SCHEME = "wss://";
+    private static final String SESSION_SEGMENT = "/session/";
+    private static final String VALUE = "value";
+    private static final String SESSION_ID = "sessionId";
+    private static final String CAPABILITIES = "capabilities";
+
+    private final JsonMapper jsonMapper;
+    private final SessionContextService sessionContextService;
+    private final boolean enabled;
+    private final String publicUrl;
+    private final int maxFrameSize;
+    private final long touchIntervalNanos;
+    private final Map<String, SessionTraffic> traffic = new ConcurrentHashMap<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final Counter framesToNode;
+    private final Counter bytesToNode;
+    private final Counter framesToClient;
+    private final Counter bytesToClient;
+
+    /**
+     * Construit une instance de {@code WebSocketRelayService}.
+     *
+     * @param jsonMapper            le service de mappage JSON utilisé pour réécrire les réponses de création de session
+     * @param sessionContextService le service qui conserve le contexte de chaque session
+     * @param meterRegistry         le registre Micrometer dans lequel le trafic relayé est compté
+     * @param enabled               indique si les connexions WebSocket des sessions passent par le proxy
+     * @param publicUrl             l'URL de base du proxy vue des clients, par exemple {@code wss://grid.example.com},
+     *                              ou vide pour la tirer de la requête de création de session
+     * @param maxFrameSize          la taille maximale d'une trame relayée
+     * @param touchInterval         l'intervalle minimal entre deux renouvellements de l'inactivité d'une session par
+     *                              ses trames relayées
+     */
+    public WebSocketRelayService(JsonMapper jsonMapper, SessionContextService sessionContextService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${proxy.websocket.enabled:true}") boolean enabled,
+                                 @Value("${proxy.websocket.public-url:}") String publicUrl,
+                                 @Value("${proxy.websocket.max-frame-size:64MB}") DataSize maxFrameSize,
+                                 @Value("${proxy.websocket.touch-interval:10s}") Duration touchInterval) {
+        this.jsonMapper = jsonMapper;
+        this.sessionContextService = sessionContextService;
+        this.enabled = enabled;
+        this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        this.maxFrameSize = (int) Math.min(Integer.MAX_VALUE, maxFrameSize.toBytes());
+        this.touchIntervalNanos = touchInterval.toNanos();
+        this.framesToNode = counter(meterRegistry, "proxy.websocket.frames", "to_node", "Trames WebSocket relayées");
+        this.bytesToNode = counter(meterRegistry, "proxy.websocket.bytes", "to_node", "Octets WebSocket relayés");
+        this.framesToClient = counter(meterRegistry, "proxy.websocket.frames", "to_client", "Trames WebSocket relayées");
+        this.bytesToClient = counter(meterRegistry, "proxy.websocket.bytes", "to_client", "Octets WebSocket relayés");
+        Gauge.builder("proxy.websocket.connections", openConnections, AtomicInteger::get)
+                .description("Connexions WebSocket relayées ouvertes")
+                .register(meterRegistry);
+        // Le trafic d'une session est conservé jusqu'à sa fin, ou jusqu'à la fermeture de sa dernière connexion
+        sessionContextService.addRemovalListener(sessionId ->
+                traffic.computeIfPresent(sessionId, (id, sessionTraffic) -> sessionTraffic.open.get() > 0 ? sessionTraffic : null));
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String direction, String description) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indique si les connexions WebSocket des sessions passent par le proxy.
+     *
+     * @return true si le relais WebSocket est activé
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retourne la taille maximale d'une trame relayée, dans un sens comme dans l'autre.
+     *
+     * @return la taille maximale d'une trame, en octets
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * Remplace, dans la réponse de création d'une session, les URL WebSocket de la session sur son nœud par celles du
+     * proxy. La réponse est renvoyée telle quelle si le relais est désactivé ou si elle ne contient aucune de ces URL.
+     *
+     * @param responseBody la réponse de création de session, avec l'identifiant rendu au client
+     * @param sessionId    l'identifiant de la session attribué par le Grid, présent dans les URL du nœud
+     * @param requestUri   l'URI de la requête de création de session, dont l'hôte est repris si aucune URL publique
+     *                     n'est configurée
+     * @return la réponse à renvoyer au client
+     */
+    public String rewriteResponse(String responseBody, String sessionId, URI requestUri) {
+        if (!enabled || (!responseBody.contains(WS_SCHEME) && !responseBody.contains(WSS_SCHEME))) {
+            return responseBody;
+        }
+        Map<String, Object> response = jsonMapper.convertRequest(responseBody);
+        Map<String, Object> value = jsonMapper.asMap(response.get(VALUE));
+        Map<String, Object> capabilities = value != null ? jsonMapper.asMap(value.get(CAPABILITIES)) : null;
+        if (capabilities == null) {
+            return responseBody;
+        }
+        String clientUrl = getPublicUrl(requestUri) + SESSION_PATH + value.get(SESSION_ID);
+        boolean rewritten = false;
+        for (Map.Entry<String, Object> capability : capabilities.entrySet()) {
+            String suffix = capability.getValue() instanceof String url ? getSessionSuffix(url, sessionId) : null;
+            if (suffix != null) {
+                capability.setValue(clientUrl + suffix);
+                rewritten = true;
+            }
+        }
+        if (!rewritten) {
+            return responseBody;
+        }
+        value.put(CAPABILITIES, capabilities);
+        response.put(VALUE, value);
+        return jsonMapper.toJson(response);
+    }
+
+    /**
+     * Retrouve, parmi les capacités d'une session, l'URL WebSocket du nœud correspondant au chemin demandé au proxy.
+     *
+     * @param sessionContext le contexte de la session, avec les capacités renvoyées par le nœud
+     * @param commandPath    le chemin relatif à la session, par exemple {@code /se/cdp}, ou vide pour BiDi
+     * @return l'URL WebSocket du nœud, ou null si la session n'en annonce aucune pour ce chemin
+     */
+    public URI getNodeUri(SessionContext sessionContext, String commandPath) {
+        if (sessionContext.getCapabilities() == null || sessionContext.getSessionId() == null) {
+            return null;
+        }
+        String path = stripTrailingSlash(commandPath);
+        for (Object capability : sessionContext.getCapabilities().values()) {
+            String suffix = capability instanceof String url ? getSessionSuffix(url, sessionContext.getSessionId()) : null;
+            if (suffix != null && stripTrailingSlash(suffix).equals(path)) {
+                return URI.create((String) capability);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compte l'ouverture d'une connexion WebSocket relayée pour une session.
+     *
+     * @param sessionId l'identifiant de la session attribué par le Grid
+     * @return les compteurs de la session, à passer à {@link #close(String, SessionTraffic)} à la fermeture
+     */
+    public SessionTraffic open(String sessionId) {
+        openConnections.incrementAndGet();
+        return traffic.compute(sessionId, (id, sessionTraffic) -> {
+            SessionTraffic opened = sessionTraffic != null ? sessionTraffic : new SessionTraffic(id);
+            opened.open.incrementAndGet();
+            opened.total.increment();
+            return opened;
+        });
+    }
+
+    /**
+     * Compte la fermeture d'une connexion WebSocket relayée. Les compteurs d'une session que le proxy ne connaît plus
+     * sont abandonnés avec sa dernière connexion.
+     *
+     * @param sessionId      l'identifiant de la session attribué par le Grid
+     * @param sessionTraffic les compteurs rendus par {@link #open(String)}
+     */
+    public void close(String sessionId, SessionTraffic sessionTraffic) {
+        openConnections.decrementAndGet();
+        sessionTraffic.open.decrementAndGet();
+        traffic.computeIfPresent(sessionId, (id, current) -> current.open.get() == 0
+                && sessionContextService.findSessionContext(id) == null ? null : current);
+    }
+
+    /**
+     * Retourne le trafic WebSocket relayé pour chaque session connue.
+     *
+     * @return le trafic par session
+     */
+    public List<WebSocketTraffic> getTraffic() {
+        List<WebSocketTraffic> sessions = new ArrayList<>(traffic.size());
+        traffic.forEach((sessionId, sessionTraffic) -> sessions.add(sessionTraffic.snapshot(sessionId)));
+        return sessions;
+    }
+
+    /**
+     * Retourne le trafic WebSocket relayé pour une session.
+     *
+     * @param sessionId l'identifiant de la session attribué par le Grid
+     * @return le trafic de la session, ou null si aucune connexion n'a été relayée pour elle
+     */
+    public WebSocketTraffic getTraffic(String sessionId) {
+        SessionTraffic sessionTraffic = traffic.get(sessionId);
+        return sessionTraffic != null ? sessionTraffic.snapshot(sessionId) : null;
+    }
+
+    private String getPublicUrl(URI requestUri) {
+        if (!publicUrl.isEmpty()) {
+            return publicUrl;
+        }
+        return ("https".equalsIgnoreCase(requestUri.getScheme()) ? WSS_SCHEME : WS_SCHEME) + requestUri.getRawAuthority();
+    }
+
+    /**
+     * Extrait d'une URL WebSocket du nœud le chemin qui suit {@code /session/{id}}.
+     *
+     * @return le chemin relatif à la session, éventuellement vide, ou null si l'URL ne désigne pas la session
+     */
+    static String getSessionSuffix(String url, String sessionId) {
+        if (!url.startsWith(WS_SCHEME) && !url.startsWith(WSS_SCHEME)) {
+            return null;
+        }
+        String path;
+        try {
+            path = URI.create(url).getRawPath();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String sessionPath = SESSION_SEGMENT + sessionId;
+        int start = path != null ? path.indexOf(sessionPath) : -1;
+        if (start < 0) {
+            return null;
+        }
+        int end = start + sessionPath.length();
+        return end == path.length() || path.charAt(end) == '/' ? path.substring(end) : null;
+    }
+
+    private static String stripTrailingSlash(String path) {
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * Les compteurs du trafic WebSocket relayé pour une session, mis à jour par chaque trame sans verrou.
+     */
+    public final class SessionTraffic {
+
+        private final String sessionId;
+        private final AtomicLong lastTouchNanos = new AtomicLong(System.nanoTime());
+        private final AtomicInteger open = new AtomicInteger();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder framesToNode = new LongAdder();
+        private final LongAdder bytesToNode = new LongAdder();
+        private final LongAdder framesToClient = new LongAdder();
+        private final LongAdder bytesToClient = new LongAdder();
+
+        private SessionTraffic(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        /**
+         * Compte une trame relayée du client vers le nœud.
+         *
+         * @param bytes la taille de la charge utile de la trame
+         */
+        public void recordToNode(int bytes) {
+            framesToNode.increment();
+            bytesToNode.add(bytes);
+            WebSocketRelayService.this.framesToNode.increment();
+            WebSocketRelayService.this.bytesToNode.increment(bytes);
+            touch();
+        }
+
+        /**
+         * Compte une trame relayée du nœud vers le client.
+         *
+         * @param bytes la taille de la charge utile de la trame
+         */
+        public void recordToClient(int bytes) {
+            framesToClient.increment();
+            bytesToClient.add(bytes);
+            WebSocketRelayService.this.framesToClient.increment();
+            WebSocketRelayService.this.bytesToClient.increment(bytes);
+            touch();
+        }
+
+        /**
+         * Renouvelle l'inactivité de la session si l'intervalle minimal est écoulé ; une seule des trames concurrentes
+         * s'en charge.
+         */
+        private void touch() {
+            long now = System.nanoTime();
+            long last = lastTouchNanos.get();
+            if (now - last >= touchIntervalNanos && lastTouchNanos.compareAndSet(last, now)) {
+                sessionContextService.touchSessionContext(sessionId);
+            }
+        }
+
+        private WebSocketTraffic snapshot(String sessionId) {
+            return new WebSocketTraffic()
+                    .setSessionId(sessionId)
+                    .setOpenConnections(open.get())
+                    .setTotalConnections(total.sum())
+                    .setFramesToNode(framesToNode.sum())
+                    .setBytesToNode(bytesToNode.sum())
+                    .setFramesToClient(framesToClient.sum())
+                    .setBytesToClient(bytesToClient.sum());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.journal.CommandJournal;
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.service.BatchCommandService;
+import com.example.webdriverproxy.service.CommandMetricsService;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.LocalSessionRegistry;
+import com.example.webdriverproxy.service.NodeCommandService;
+import com.example.webdriverproxy.service.ReadCacheService;
+import com.example.webdriverproxy.service.SessionAdmissionService;
+import com.example.webdriverproxy.service.SessionContextService;
+import com.example.webdriverproxy.service.SessionPoolService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCommandFilterTest {
+
+    private static final String NEW_SESSION_RESPONSE =
+            "{\"value\": {\"sessionId\": \"abc\", \"capabilities\": {\"browserName\": \"chrome\"}}}";
+    private static final String BATCH_PATH = "/wd/hub/session/abc/proxy/batch";
+    private static final String NO_SUCH_ELEMENT =
+            "{\"value\": {\"error\": \"no such element\", \"message\": \"Unable to locate element\"}}";
+    private static final String BAD_GATEWAY = "<html><body><h1>502 \"Bad Gateway\"</h1>\n</body></html>";
+
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+    private final JsonMapper jsonMapper = new JsonMapper();
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+    private final SessionContextService sessionContextService = new SessionContextService(jsonMapper, gridNodeService,
+            new LocalSessionRegistry(), 100, Duration.ofHours(1), Duration.ofSeconds(30));
+
+    private GatewayFilter filter;
+    private boolean forwarded;
+
+    @BeforeEach
+    void setUp() {
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE, sessionContextService.initSessionContext());
+        filter = newFilter(3);
+    }
+
+    /**
+     * Construit le filtre sur un nœud simulé qui répond "no such element" à la recherche d'élément, une page HTML 502 à
+     * la capture d'écran, et réussit toutes les autres commandes.
+     */
+    private GatewayFilter newFilter(int maxCommands) {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            if (request.url().getPath().endsWith("/screenshot")) {
+                return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE)
+                        .body(BAD_GATEWAY)
+                        .build());
+            }
+            boolean notFound = request.url().getPath().endsWith("/element");
+            return Mono.just(ClientResponse.create(notFound ? HttpStatus.NOT_FOUND : HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(notFound ? NO_SUCH_ELEMENT : "{\"value\": null}")
+                    .build());
+        });
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SessionPoolService sessionPoolService = new SessionPoolService(jsonMapper, gridNodeService,
+                new SessionAdmissionService(gridNodeService, meterRegistry, 0, 200, Duration.ofMinutes(1),
+                        List.of("default"), "default"),
+                webClientBuilder, false, 2, 3, 8, Duration.ofMinutes(4), Duration.ofMinutes(15), Duration.ofSeconds(5),
+                Duration.ofMinutes(2));
+        BatchCommandService batchCommandService = new BatchCommandService(jsonMapper, gridNodeService,
+                sessionContextService,
+                new CommandJournal(false, "journal", DataSize.ofKilobytes(1), 1, 16, 2048, 1.0),
+                new CommandMetricsService(meterRegistry, gridNodeService, sessionContextService, sessionPoolService),
+                new NodeCommandService(jsonMapper, gridNodeService, webClientBuilder),
+                maxCommands, Duration.ofSeconds(5));
+        return new BatchCommandFilter(batchCommandService,
+                new ReadCacheService(sessionContextService, meterRegistry, true, Duration.ofSeconds(2), 64),
+                sessionContextService, gridNodeService, new PathMapper(), jsonMapper)
+                .apply(new BatchCommandFilter.Config());
+    }
+
+    private MockServerWebExchange execute(String path, String body) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+        filter.filter(exchange, routed -> {
+            forwarded = true;
+            return Mono.empty();
+        }).block();
+        return exchange;
+    }
+
+    private static String batch(boolean stopOnError) {
+        return "{\"stopOnError\": " + stopOnError + ", \"commands\": ["
+                + "{\"method\": \"POST\", \"path\": \"/url\", \"body\": {\"url\": \"https://example.com\"}},"
+                + " {\"method\": \"POST\", \"path\": \"/element\", \"body\": {\"using\": \"css selector\", \"value\": \"#login\"}},"
+                + " {\"method\": \"GET\", \"path\": \"/title\"}]}";
+    }
+
+    @Test
+    void batchStopsOnTheFirstErrorWhenRequested() {
+        MockServerWebExchange exchange = execute(BATCH_PATH, batch(true));
+
+        String response = exchange.getResponse().getBodyAsString().block();
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertTrue(response.startsWith("{\"value\": {\"completed\": false, \"results\": [{\"status\": 200"));
+        assertTrue(response.contains("{\"status\": 404, \"response\": " + NO_SUCH_ELEMENT + "}]}}"));
+        assertEquals(2, requests.size());
+        assertFalse(forwarded);
+    }
+
+    @Test
+    void batchRunsEveryCommandWithoutStopOnError() {
+        MockServerWebExchange exchange = execute(BATCH_PATH, batch(false));
+
+        String response = exchange.getResponse().getBodyAsString().block();
+        assertTrue(response.startsWith("{\"value\": {\"completed\": true"));
+        assertEquals(3, requests.size());
+        assertEquals("/wd/hub/session/abc/title", requests.get(2).url().getPath());
+        assertEquals(HttpMethod.GET, requests.get(2).method());
+    }
+
+    @Test
+    void nonJsonNodeResponseIsEmbeddedAsAString() throws Exception {
+        MockServerWebExchange exchange = execute(BATCH_PATH, "{\"commands\": [{\"method\": \"GET\", \"path\": \"/screenshot\"},"
+                + " {\"method\": \"GET\", \"path\": \"/title\"}]}");
+
+        JsonNode results = new ObjectMapper().readTree(exchange.getResponse().getBodyAsString().block())
+                .get("value").get("results");
+        assertEquals(502, results.get(0).get("status").asInt());
+        assertEquals(BAD_GATEWAY, results.get(0).get("response").asText());
+        assertTrue(results.get(1).get("response").has("value"));
+    }
+
+    @Test
+    void deleteWithAnEmptyPathRemovesTheSession() {
+        MockServerWebExchange exchange = execute(BATCH_PATH, "{\"commands\": [{\"method\": \"DELETE\", \"path\": \"\"}]}");
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("/wd/hub/session/abc", requests.get(0).url().getPath());
+        assertNull(sessionContextService.findSessionContext("abc"));
+    }
+
+    @Test
+    void invalidMethodPathOrCommandCountIsRejected() {
+        String unknownMethod = "{\"commands\": [{\"method\": \"PUT\", \"path\": \"/url\"}]}";
+        String relativePath = "{\"commands\": [{\"method\": \"GET\", \"path\": \"url\"}]}";
+        String parentPath = "{\"commands\": [{\"method\": \"GET\", \"path\": \"/../../status\"}]}";
+        String tooMany = "{\"commands\": [" + "{\"method\": \"GET\", \"path\": \"/title\"}, ".repeat(3)
+                + "{\"method\": \"GET\", \"path\": \"/title\"}]}";
+
+        for (String batch : List.of(unknownMethod, relativePath, parentPath, tooMany)) {
+            MockServerWebExchange exchange = execute(BATCH_PATH, batch);
+
+            assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode(), batch);
+            assertTrue(exchange.getResponse().getBodyAsString().block().contains("invalid argument"));
+        }
+        assertTrue(requests.isEmpty());
+        assertNotNull(sessionContextService.findSessionContext("abc"));
+    }
+
+    @Test
+    void malformedBatchIsRejectedAsInvalidArgument() {
+        for (String batch : List.of("{\"commands\": ", "{\"commands\": []}", "{\"commands\": [\"GET /title\"]}")) {
+            MockServerWebExchange exchange = execute(BATCH_PATH, batch);
+
+            assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode(), batch);
+            assertTrue(exchange.getResponse().getBodyAsString().block().contains("invalid argument"));
+        }
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void unknownSessionIsRejected() {
+        MockServerWebExchange exchange = execute("/wd/hub/session/unknown/proxy/batch", batch(false));
+
+        assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getBodyAsString().block().contains("invalid session id"));
+        assertTrue(requests.isEmpty());
+        assertFalse(forwarded);
+    }
+}
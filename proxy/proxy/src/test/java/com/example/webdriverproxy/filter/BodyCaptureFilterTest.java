@@ -0,0 +1,86 @@
+package com.example.webdriverproxy.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BodyCaptureFilterTest {
+
+    private final GatewayFilter filter = new BodyCaptureFilter(8).apply(new BodyCaptureFilter.Config());
+
+    private MockServerWebExchange exchange(String requestBody) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/wd/hub/session/abc/url").body(requestBody));
+    }
+
+    /**
+     * Fait traverser le filtre à l'échange : le nœud simulé lit le corps de la requête puis répond avec le statut et le
+     * corps donnés.
+     */
+    private String filter(MockServerWebExchange exchange, HttpStatus status, String responseBody) {
+        StringBuilder forwardedBody = new StringBuilder();
+        filter.filter(exchange, routed -> DataBufferUtils.join(routed.getRequest().getBody())
+                .doOnNext(buffer -> forwardedBody.append(buffer.toString(StandardCharsets.UTF_8)))
+                .then(Mono.defer(() -> respond(routed, status, responseBody)))).block();
+        return forwardedBody.toString();
+    }
+
+    private static Mono<Void> respond(ServerWebExchange routed, HttpStatus status, String responseBody) {
+        routed.getResponse().setStatusCode(status);
+        return routed.getResponse().writeWith(Mono.just(DefaultDataBufferFactory.sharedInstance
+                .wrap(responseBody.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void requestBodyUnderTheLimitIsCapturedWhole() {
+        MockServerWebExchange exchange = exchange("{\"a\":1}");
+
+        String forwarded = filter(exchange, HttpStatus.OK, "{}");
+
+        assertEquals("{\"a\":1}", forwarded);
+        assertEquals("{\"a\":1}", exchange.getAttribute("cachedRequestBody"));
+    }
+
+    @Test
+    void requestBodyOverTheLimitIsTruncatedButForwardedWhole() {
+        MockServerWebExchange exchange = exchange("{\"url\":\"http://example.com\"}");
+
+        String forwarded = filter(exchange, HttpStatus.OK, "{}");
+
+        assertEquals("{\"url\":\"http://example.com\"}", forwarded);
+        assertEquals("{\"url\":\"…", exchange.getAttribute("cachedRequestBody"));
+    }
+
+    @Test
+    void truncationDoesNotSplitAMultiByteCharacter() {
+        // Le premier "é" occupe les octets 8 et 9 : la limite de 8 octets le coupe en deux.
+        MockServerWebExchange exchange = exchange("{\"ab\":\"éé\"}");
+
+        filter(exchange, HttpStatus.OK, "{}");
+
+        assertEquals("{\"ab\":\"…", exchange.getAttribute("cachedRequestBody"));
+    }
+
+    @Test
+    void responseBodyIsCapturedOnlyForErrorStatuses() {
+        MockServerWebExchange success = exchange("{}");
+        MockServerWebExchange error = exchange("{}");
+
+        filter(success, HttpStatus.OK, "{\"value\":null}");
+        filter(error, HttpStatus.NOT_FOUND, "{\"value\":{\"error\":\"no such element\"}}");
+
+        assertNull(success.getAttribute("cachedResponseBody"));
+        assertEquals("{\"value\"…", error.getAttribute("cachedResponseBody"));
+        assertEquals("{\"value\":{\"error\":\"no such element\"}}", error.getResponse().getBodyAsString().block());
+    }
+}
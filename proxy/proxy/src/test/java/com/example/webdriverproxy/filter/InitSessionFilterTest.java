@@ -0,0 +1,81 @@
+package com.example.webdriverproxy.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class InitSessionFilterTest {
+
+    private static final String REFUSED = "{\"value\": {\"error\": \"session not created\","
+            + " \"message\": \"Could not start a new session.\\nMessage: \\\"no free slot\\\"\", \"stacktrace\": \"\"}}";
+
+    /** Un nœud Selenium simulé : refuse les demandes "refused" et répond par une page HTML aux demandes "broken". */
+    private static final DisposableServer NODE = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                    .post("/wd/hub/session", (request, response) -> request.receive().aggregate().asString()
+                            .flatMap(body -> body.contains("refused")
+                                    ? response.status(500).header("Content-Type", "application/json")
+                                            .sendString(Mono.just(REFUSED)).then()
+                                    : response.status(200).header("Content-Type", "application/json")
+                                            .sendString(Mono.just("<html>\"Bad gateway\"\n</html>")).then()))
+                    .get("/wd/hub/status", (request, response) -> response.sendString(Mono.just("{\"value\": {\"ready\": true}}"))))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void nodeProperties(DynamicPropertyRegistry registry) {
+        registry.add("proxy.selenium.url", () -> "http://localhost:" + NODE.port() + "/wd/hub");
+        registry.add("proxy.session-journal.enabled", () -> "false");
+    }
+
+    @AfterAll
+    static void stopNode() {
+        NODE.disposeNow();
+    }
+
+    private static String createRequest(String browserName) {
+        return "{\"capabilities\": {\"alwaysMatch\": {\"browserName\": \"" + browserName + "\"}}}";
+    }
+
+    @Test
+    void gridErrorIsRelayedWithItsStatus() {
+        String body = webTestClient.post().uri("/wd/hub/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest("refused"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(REFUSED, body);
+    }
+
+    @Test
+    void unreadableGridResponseGivesAValidJsonError() throws Exception {
+        String body = webTestClient.post().uri("/wd/hub/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest("broken"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        JsonNode error = new ObjectMapper().readTree(body).get("value");
+        assertEquals("session not created", error.get("error").asText());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.ClusterSessionRegistry;
+import com.example.webdriverproxy.service.GridNodeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRegistryFilterTest {
+
+    private static final String SECRET = "cluster-secret";
+    private static final String PATH = ClusterSessionRegistry.REGISTRY_PATH + "abc";
+
+    private final JsonMapper jsonMapper = new JsonMapper();
+    private final ClusterSessionRegistry registry = new ClusterSessionRegistry(jsonMapper, WebClient.builder(),
+            List.of("http://proxy-a"), "http://proxy-a", 1, 100, Duration.ofHours(1), Duration.ofSeconds(2),
+            Duration.ofSeconds(10), SECRET);
+    private final GatewayFilter filter = new SessionRegistryFilter(registry,
+            new GridNodeService(List.of("http://localhost:4444/wd/hub")), jsonMapper)
+            .apply(new SessionRegistryFilter.Config());
+
+    private MockServerWebExchange execute(HttpMethod method, String secret, String body) {
+        MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.method(method, PATH)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (secret != null) {
+            request.header(ClusterSessionRegistry.SECRET_HEADER, secret);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request.body(body));
+        filter.filter(exchange, routed -> Mono.empty()).block();
+        return exchange;
+    }
+
+    private static String session(String url) {
+        return "{\"sessionId\": \"abc\", \"url\": \"" + url + "\"}";
+    }
+
+    @Test
+    void sessionOfAConfiguredNodeIsStoredAndRead() {
+        MockServerWebExchange put = execute(HttpMethod.PUT, SECRET, session("http://localhost:4444/wd/hub"));
+        MockServerWebExchange get = execute(HttpMethod.GET, SECRET, "");
+
+        assertEquals(HttpStatus.NO_CONTENT, put.getResponse().getStatusCode());
+        assertEquals(HttpStatus.OK, get.getResponse().getStatusCode());
+        SessionContext sessionContext = jsonMapper.fromJson(get.getResponse().getBodyAsString().block(),
+                SessionContext.class);
+        assertEquals("http://localhost:4444/wd/hub", sessionContext.getUrl().toString());
+    }
+
+    @Test
+    void exchangeWithoutTheClusterSecretIsForbidden() {
+        registry.storeLocal(jsonMapper.fromJson(session("http://localhost:4444/wd/hub"), SessionContext.class));
+
+        for (String secret : new String[] {null, "", "wrong-secret"}) {
+            for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.PUT, HttpMethod.DELETE)) {
+                MockServerWebExchange exchange = execute(method, secret, session("http://attacker:4444/wd/hub"));
+
+                assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode(), method + " " + secret);
+                assertTrue(exchange.getResponse().getBodyAsString().block().contains("unknown error"));
+            }
+        }
+        assertEquals("http://localhost:4444/wd/hub", registry.findLocal("abc").getUrl().toString());
+    }
+
+    @Test
+    void sessionOfAnUnknownNodeIsRejected() {
+        for (String body : List.of(session("http://attacker:4444/wd/hub"), "{\"sessionId\": \"abc\"}")) {
+            MockServerWebExchange exchange = execute(HttpMethod.PUT, SECRET, body);
+
+            assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode(), body);
+            assertTrue(exchange.getResponse().getBodyAsString().block().contains("invalid argument"));
+        }
+        assertNull(registry.findLocal("abc"));
+    }
+
+    @Test
+    void clusterRequiresASecret() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new ClusterSessionRegistry(jsonMapper, WebClient.builder(), List.of("http://proxy-a"),
+                        "http://proxy-a", 1, 100, Duration.ofHours(1), Duration.ofSeconds(2), Duration.ofSeconds(10), ""));
+
+        assertTrue(error.getMessage().contains("proxy.session.registry.secret"));
+    }
+}
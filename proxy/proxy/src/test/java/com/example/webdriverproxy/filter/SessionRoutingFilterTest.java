@@ -0,0 +1,128 @@
+package com.example.webdriverproxy.filter;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.mapper.PathMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.LocalSessionRegistry;
+import com.example.webdriverproxy.service.SessionContextService;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+class SessionRoutingFilterTest {
+
+    private static final String ROUTE_URL = "http://node-a:4444";
+    private static final String NEW_SESSION_RESPONSE =
+            "{\"value\": {\"sessionId\": \"abc\", \"capabilities\": {\"browserName\": \"chrome\"}}}";
+
+    private final GridNodeService gridNodeService =
+            new GridNodeService(List.of("http://node-a:4444/wd/hub", "http://node-b:4444/wd/hub"));
+    private final LocalSessionRegistry sessionRegistry = new LocalSessionRegistry();
+    private final SessionContextService sessionContextService = new SessionContextService(new JsonMapper(),
+            gridNodeService, sessionRegistry, 100, Duration.ofHours(1), Duration.ofSeconds(30));
+    private final GatewayFilter filter = new SessionRoutingFilter(sessionContextService, gridNodeService,
+            new PathMapper(), new JsonMapper()).apply(new SessionRoutingFilter.Config());
+
+    private ServerWebExchange forwarded;
+
+    private MockServerWebExchange exchange(HttpMethod method, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create(ROUTE_URL + path));
+        return exchange;
+    }
+
+    private void filter(MockServerWebExchange exchange) {
+        filter.filter(exchange, routed -> {
+            forwarded = routed;
+            return Mono.empty();
+        }).block();
+    }
+
+    private GridNode submitOnSecondNode() {
+        GridNode nodeB = gridNodeService.getNodes().get(1);
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE, sessionContextService.initSessionContext(nodeB));
+        return nodeB;
+    }
+
+    @Test
+    void commandIsRewrittenToTheSessionNode() {
+        GridNode nodeB = submitOnSecondNode();
+        MockServerWebExchange exchange = exchange(HttpMethod.POST, "/wd/hub/session/abc/url");
+
+        filter(exchange);
+
+        assertNotNull(forwarded);
+        assertEquals(URI.create("http://node-b:4444/wd/hub/session/abc/url"), forwarded.getAttribute(GATEWAY_REQUEST_URL_ATTR));
+        assertSame(nodeB, forwarded.getAttribute(SessionRoutingFilter.ROUTED_NODE_ATTR));
+    }
+
+    @Test
+    void taggedSessionIsRoutedToTheNodeOfItsIdentifier() {
+        GridNode nodeB = submitOnSecondNode();
+        MockServerWebExchange exchange = exchange(HttpMethod.GET, "/wd/hub/session/abc/title");
+        exchange.getAttributes().put(SessionIdFilter.TAGGED_SESSION_ATTR, new SessionContext()
+                .setSessionId("abc")
+                .setUrl(nodeB.getUrl()));
+
+        filter(exchange);
+
+        assertEquals(URI.create("http://node-b:4444/wd/hub/session/abc/title"), forwarded.getAttribute(GATEWAY_REQUEST_URL_ATTR));
+    }
+
+    @Test
+    void successfulDeleteRemovesTheSession() {
+        submitOnSecondNode();
+        MockServerWebExchange exchange = exchange(HttpMethod.DELETE, "/wd/hub/session/abc");
+
+        filter.filter(exchange, routed -> {
+            routed.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block();
+
+        assertNull(sessionContextService.findSessionContext("abc"));
+    }
+
+    @Test
+    void unknownSessionIsRejectedInsteadOfRoutedToTheRouteNode() {
+        MockServerWebExchange exchange = exchange(HttpMethod.GET, "/wd/hub/session/unknown/title");
+
+        filter(exchange);
+
+        assertNull(forwarded);
+        assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getBodyAsString().block().contains("invalid session id"));
+    }
+
+    @Test
+    void unknownTaggedSessionIsRoutedToItsNodeWithLocalRegistry() {
+        // Session créée avant un redémarrage du proxy ou par une autre instance : absente du cache local
+        MockServerWebExchange exchange = exchange(HttpMethod.GET, "/wd/hub/session/restarted/title");
+        exchange.getAttributes().put(SessionIdFilter.TAGGED_SESSION_ATTR, new SessionContext()
+                .setSessionId("restarted")
+                .setUrl(gridNodeService.getNodes().get(1).getUrl()));
+
+        filter(exchange);
+
+        assertNotNull(forwarded);
+        assertEquals(URI.create("http://node-b:4444/wd/hub/session/restarted/title"),
+                forwarded.getAttribute(GATEWAY_REQUEST_URL_ATTR));
+    }
+}
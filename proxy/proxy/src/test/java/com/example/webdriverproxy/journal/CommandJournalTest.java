@@ -0,0 +1,95 @@
+package com.example.webdriverproxy.journal;
+
+import com.example.webdriverproxy.model.CommandRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreWrittenAndReadBackWithTruncatedBodies() throws Exception {
+        CommandJournal journal = new CommandJournal(true, directory.toString(), DataSize.ofKilobytes(1), 2, 64, 8, 1.0);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(journal.record(new CommandRecord()
+                    .setTimestamp(i)
+                    .setStatus(200)
+                    .setSessionId("abc")
+                    .setMethod("POST")
+                    .setPath("/wd/hub/session/abc/element")
+                    .setBody("{\"using\":\"css selector\"}")));
+        }
+        journal.record(new CommandRecord().setTimestamp(20).setStatus(404).setMethod("GET").setPath("/wd/hub/status"));
+        journal.close();
+
+        List<CommandRecord> records = new ArrayList<>();
+        List<Path> segments = CommandJournalReader.listSegments(directory);
+        for (Path segment : segments) {
+            CommandJournalReader.read(segment, records::add);
+        }
+
+        assertEquals(2, segments.size());
+        assertFalse(records.isEmpty());
+        CommandRecord last = records.get(records.size() - 1);
+        assertEquals(20, last.getTimestamp());
+        assertEquals(404, last.getStatus());
+        assertNull(last.getSessionId());
+        assertEquals("{\"using\"", records.get(0).getBody());
+        assertEquals(21, journal.getRecordedCount());
+    }
+
+    @Test
+    void idleWriterIsWokenByANewRecord() throws Exception {
+        CommandJournal journal = new CommandJournal(true, directory.toString(), DataSize.ofKilobytes(1), 2, 64, 8, 1.0);
+        // Laisse le thread d'écriture se suspendre sur le tampon vide
+        Thread.sleep(50);
+
+        journal.record(new CommandRecord().setTimestamp(1).setStatus(200).setMethod("GET").setPath("/wd/hub/status"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (journal.getRecordedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, journal.getRecordedCount());
+        journal.close();
+    }
+
+    @Test
+    void truncatedBodyEndsOnACharacterBoundary() throws Exception {
+        CommandJournal journal = new CommandJournal(true, directory.toString(), DataSize.ofKilobytes(1), 2, 64, 8, 1.0);
+        // Le premier "é" occupe les octets 8 et 9 : la limite de 8 octets le coupe en deux
+        journal.record(new CommandRecord().setStatus(200).setMethod("POST").setBody("{\"ab\":\"éé\"}"));
+        journal.close();
+
+        List<CommandRecord> records = new ArrayList<>();
+        CommandJournalReader.read(CommandJournalReader.listSegments(directory).get(0), records::add);
+
+        assertEquals("{\"ab\":\"", records.get(0).getBody());
+    }
+
+    @Test
+    void ringBufferRejectsWhenFull() {
+        JournalRingBuffer<Integer> ringBuffer = new JournalRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(0, ringBuffer.poll());
+        assertTrue(ringBuffer.offer(4));
+        assertEquals(1, ringBuffer.poll());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.webdriverproxy.journal;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.service.GridNodeService;
+import com.example.webdriverproxy.service.LocalSessionRegistry;
+import com.example.webdriverproxy.service.SessionContextService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private GridNodeService gridNodeService;
+
+    private SessionContextService newSessionContextService() {
+        return newSessionContextService("http://localhost:4444/wd/hub");
+    }
+
+    private SessionContextService newSessionContextService(String nodeUrl) {
+        gridNodeService = new GridNodeService(List.of(nodeUrl));
+        return new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(), 1000,
+                Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    private SessionJournal newJournal(SessionContextService sessionContextService, DataSize minCompactionSize) throws IOException {
+        return new SessionJournal(sessionContextService, new LocalSessionRegistry(), new JsonMapper(), true,
+                directory.toString(), 1024, 2.0, minCompactionSize);
+    }
+
+    private static void submit(SessionContextService sessionContextService, String sessionId) {
+        SessionContext sessionContext = sessionContextService.initSessionContext();
+        sessionContextService.submitSessionContext(
+                "{\"value\": {\"sessionId\": \"" + sessionId + "\", \"capabilities\": {\"browserName\": \"chrome\"}}}",
+                sessionContext);
+    }
+
+    @Test
+    void sessionsAreRestoredAfterRestart() throws Exception {
+        SessionContextService before = newSessionContextService();
+        SessionJournal journal = newJournal(before, DataSize.ofMegabytes(1));
+        submit(before, "a");
+        submit(before, "b");
+        before.removeSessionContext("a");
+        journal.close();
+
+        SessionContextService after = newSessionContextService();
+        newJournal(after, DataSize.ofMegabytes(1)).close();
+
+        assertNull(after.findSessionContext("a"));
+        assertEquals("chrome", after.findSessionContext("b").getCapabilities().get("browserName"));
+        assertEquals(1, gridNodeService.getDefaultNode().getActiveSessions().get());
+    }
+
+    @Test
+    void resubmittedSessionOutlivesItsEarlierRemoval() throws Exception {
+        SessionContextService before = newSessionContextService();
+        SessionJournal journal = newJournal(before, DataSize.ofMegabytes(1));
+        submit(before, "a");
+        before.removeSessionContext("a");
+        submit(before, "a");
+        journal.close();
+
+        SessionContextService after = newSessionContextService();
+        newJournal(after, DataSize.ofMegabytes(1)).close();
+
+        assertNotNull(after.findSessionContext("a"));
+    }
+
+    @Test
+    void sessionsOfARemovedNodeAreDroppedFromTheJournal() throws Exception {
+        SessionContextService before = newSessionContextService();
+        SessionJournal journal = newJournal(before, DataSize.ofMegabytes(1));
+        submit(before, "a");
+        submit(before, "b");
+        journal.close();
+
+        // Le nœud n'est plus configuré : ses sessions ne sont pas rétablies et le journal est compacté sans elles
+        SessionContextService withoutNode = newSessionContextService("http://localhost:5555/wd/hub");
+        newJournal(withoutNode, DataSize.ofMegabytes(1)).close();
+        assertEquals(0, withoutNode.getSessionCount());
+        assertEquals(Integer.BYTES, Files.size(directory.resolve(SessionJournal.JOURNAL_FILE)));
+
+        SessionContextService withNode = newSessionContextService();
+        newJournal(withNode, DataSize.ofMegabytes(1)).close();
+        assertNull(withNode.findSessionContext("a"));
+        assertEquals(0, withNode.getSessionCount());
+    }
+
+    @Test
+    void tornTailIsIgnoredAndJournalIsCompacted() throws Exception {
+        SessionContextService before = newSessionContextService();
+        SessionJournal journal = newJournal(before, DataSize.ofBytes(0));
+        for (int i = 0; i < 50; i++) {
+            submit(before, "s" + i);
+            if (i > 0) {
+                before.removeSessionContext("s" + (i - 1));
+            }
+        }
+        journal.close();
+        assertEquals(0, journal.getDroppedCount());
+        assertTrue(journal.getCompactionCount() > 0);
+        Path file = directory.resolve(SessionJournal.JOURNAL_FILE);
+        Files.write(file, new byte[]{0, 0, 1, 0, 1, '{'}, StandardOpenOption.APPEND);
+
+        SessionContextService after = newSessionContextService();
+        newJournal(after, DataSize.ofMegabytes(1)).close();
+
+        assertNotNull(after.findSessionContext("s49"));
+        assertEquals(1, after.getSessionCount());
+    }
+}
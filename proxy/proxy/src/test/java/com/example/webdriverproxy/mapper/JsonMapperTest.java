@@ -0,0 +1,75 @@
+package com.example.webdriverproxy.mapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonMapperTest {
+
+    private final JsonMapper jsonMapper = new JsonMapper();
+
+    @Test
+    void extractsRequestedPathsOnly() {
+        String response = "{\"value\": {\"capabilities\": {\"browserName\": \"chrome\", \"timeouts\": {\"implicit\": 0}},"
+                + " \"other\": [1, 2, {\"sessionId\": \"nested\"}], \"sessionId\": \"abc\"}}";
+
+        Map<String, Object> fields = jsonMapper.extract(response, JsonMapper.VALUE_SESSION_ID, JsonMapper.VALUE_CAPABILITIES);
+
+        assertEquals("abc", fields.get(JsonMapper.VALUE_SESSION_ID));
+        assertEquals("chrome", ((Map<?, ?>) fields.get(JsonMapper.VALUE_CAPABILITIES)).get("browserName"));
+        assertEquals(2, fields.size());
+    }
+
+    @Test
+    void stopsBeforeTruncatedTail() {
+        String truncated = "{\"value\": {\"error\": \"no such element\", \"message\": \"Unable to loc…";
+
+        assertEquals("no such element", jsonMapper.getError(truncated));
+        assertTrue(jsonMapper.isErrorResponse(truncated));
+    }
+
+    @Test
+    void successResponseHasNoError() {
+        String response = "{\"value\": \"iVBORw0KGgo=\"}";
+
+        assertNull(jsonMapper.getError(response));
+        assertFalse(jsonMapper.isErrorResponse(response));
+        assertNull(jsonMapper.getValue(response));
+    }
+
+    @Test
+    void onlyCompleteSingleValueDocumentsAreJson() {
+        assertTrue(jsonMapper.isJson("{\"value\": [1, {\"a\": null}]}"));
+        assertTrue(jsonMapper.isJson("null"));
+        assertFalse(jsonMapper.isJson("<html>502 Bad Gateway</html>"));
+        assertFalse(jsonMapper.isJson("{\"value\": \"iVBORw0K"));
+        assertFalse(jsonMapper.isJson("{} {}"));
+        assertFalse(jsonMapper.isJson(""));
+    }
+
+    @Test
+    void capabilitiesKeyIgnoresKeyOrder() {
+        String first = "{\"capabilities\": {\"alwaysMatch\": {\"browserName\": \"chrome\", \"goog:chromeOptions\": {\"args\": [\"--headless\"]}}}}";
+        String second = "{\"capabilities\":{\"alwaysMatch\":{\"goog:chromeOptions\":{\"args\":[\"--headless\"]},\"browserName\":\"chrome\"}}}";
+
+        assertEquals(jsonMapper.getCapabilitiesKey(first), jsonMapper.getCapabilitiesKey(second));
+        assertNull(jsonMapper.getCapabilitiesKey("{}"));
+    }
+
+    @Test
+    void requestedCapabilityIsReadFromAlwaysMatchThenFirstMatch() {
+        String both = "{\"capabilities\": {\"alwaysMatch\": {\"proxy:elementWait\": 500},"
+                + " \"firstMatch\": [{\"proxy:elementWait\": 900}]}}";
+        String firstMatch = "{\"capabilities\": {\"firstMatch\": [{\"browserName\": \"firefox\"},"
+                + " {\"browserName\": \"chrome\", \"proxy:priority\": \"high\"}]}}";
+
+        assertEquals(500, jsonMapper.getRequestedCapability(both, JsonMapper.ELEMENT_WAIT_CAPABILITY));
+        assertEquals("high", jsonMapper.getRequestedCapability(firstMatch, JsonMapper.PRIORITY_CAPABILITY));
+        assertNull(jsonMapper.getRequestedCapability(firstMatch, JsonMapper.READ_CACHE_CAPABILITY));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.webdriverproxy.mapper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathMapperTest {
+
+    private final PathMapper pathMapper = new PathMapper();
+
+    @Test
+    void sessionIdIsReadFromCommandAndSessionPaths() {
+        assertEquals("abc", pathMapper.getSessionId("/wd/hub/session/abc/element/e1/click"));
+        assertEquals("abc", pathMapper.getSessionId("/wd/hub/session/abc"));
+        assertEquals("abc", pathMapper.getSessionId("/wd/hub/session/abc/"));
+        assertNull(pathMapper.getSessionId("/wd/hub/session"));
+        assertNull(pathMapper.getSessionId("/wd/hub/session/"));
+        assertNull(pathMapper.getSessionId("/wd/hub/status"));
+    }
+
+    @Test
+    void sessionPathHasNoCommand() {
+        assertTrue(pathMapper.isSessionPath("/wd/hub/session/abc"));
+        assertTrue(pathMapper.isSessionPath("/wd/hub/session/abc/"));
+        assertFalse(pathMapper.isSessionPath("/wd/hub/session/abc/url"));
+        assertFalse(pathMapper.isSessionPath("/wd/hub/session/"));
+        assertFalse(pathMapper.isSessionPath("/wd/hub/status"));
+    }
+
+    @Test
+    void commandPathIsRelativeToTheSession() {
+        assertEquals("/element/e1/text", pathMapper.getCommandPath("/wd/hub/session/abc/element/e1/text"));
+        assertEquals("", pathMapper.getCommandPath("/wd/hub/session/abc"));
+        assertNull(pathMapper.getCommandPath("/wd/hub/status"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.webdriverproxy.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionReadCacheTest {
+
+    private static SessionReadCache.CachedRead read(long expiresAtNanos) {
+        return new SessionReadCache.CachedRead(200, "{\"value\":\"Example\"}".getBytes(), expiresAtNanos);
+    }
+
+    @Test
+    void readIsServedUntilItExpires() {
+        SessionReadCache readCache = new SessionReadCache(8);
+
+        assertTrue(readCache.put("/title", readCache.getGeneration(), read(1_000)));
+
+        assertNotNull(readCache.get("/title", 999));
+        assertNull(readCache.get("/url", 999));
+        assertNull(readCache.get("/title", 1_000));
+        assertNull(readCache.get("/title", 999));
+    }
+
+    @Test
+    void modificationClearsCacheAndDiscardsReadsInFlight() {
+        SessionReadCache readCache = new SessionReadCache(8);
+        readCache.put("/title", readCache.getGeneration(), read(Long.MAX_VALUE));
+        long sentAtGeneration = readCache.getGeneration();
+
+        // Un clic est relayé pendant que la lecture de l'URL attend sa réponse
+        readCache.invalidate();
+
+        assertNull(readCache.get("/title", 0));
+        assertFalse(readCache.put("/url", sentAtGeneration, read(Long.MAX_VALUE)));
+        assertNull(readCache.get("/url", 0));
+    }
+}
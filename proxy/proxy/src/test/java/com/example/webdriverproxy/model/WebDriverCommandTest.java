@@ -0,0 +1,30 @@
+package com.example.webdriverproxy.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebDriverCommandTest {
+
+    private static final String SESSION = "/wd/hub/session/6f7e0a2c9bb4c3f1d2e5a8b7c6d5e4f3";
+
+    @Test
+    void normalizesIdentifiersIntoTemplate() {
+        WebDriverCommand command = WebDriverCommand.of(HttpMethod.POST, SESSION + "/element");
+
+        assertEquals(WebDriverCommand.FIND_ELEMENT, command);
+        assertEquals("POST /session/{id}/element", command.getTemplate());
+        assertEquals(WebDriverCommand.ELEMENT_CLICK, WebDriverCommand.of(HttpMethod.POST, SESSION + "/element/f.1.e-7/click"));
+        assertEquals(WebDriverCommand.GET_ACTIVE_ELEMENT, WebDriverCommand.of(HttpMethod.GET, SESSION + "/element/active"));
+        assertEquals(WebDriverCommand.DELETE_SESSION, WebDriverCommand.of(HttpMethod.DELETE, SESSION + "/"));
+        assertEquals(WebDriverCommand.NEW_SESSION, WebDriverCommand.of(HttpMethod.POST, "/wd/hub/session"));
+    }
+
+    @Test
+    void unknownCommandsShareOneTemplate() {
+        assertEquals(WebDriverCommand.OTHER, WebDriverCommand.of(HttpMethod.GET, SESSION + "/element"));
+        assertEquals(WebDriverCommand.OTHER, WebDriverCommand.of(HttpMethod.POST, SESSION + "/unknown/command"));
+        assertEquals(WebDriverCommand.OTHER, WebDriverCommand.of(HttpMethod.GET, "/wd/hub/session//url"));
+    }
+}
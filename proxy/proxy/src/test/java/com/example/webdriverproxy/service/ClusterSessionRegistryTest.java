@@ -0,0 +1,124 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.SessionContext;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterSessionRegistryTest {
+
+    private static final List<String> MEMBERS = List.of("http://proxy-a", "http://proxy-b", "http://proxy-c");
+
+    private final Map<String, ClusterSessionRegistry> registries = new HashMap<>();
+    private final Set<String> stopped = new HashSet<>();
+
+    /** Un transport qui appelle directement les registres du même processus, sauf ceux arrêtés. */
+    private final ClusterSessionRegistry.Transport transport = new ClusterSessionRegistry.Transport() {
+        @Override
+        public Mono<Void> put(String member, SessionContext sessionContext) {
+            return call(member).doOnSuccess(registry -> registry.storeLocal(sessionContext)).then();
+        }
+
+        @Override
+        public Mono<SessionContext> get(String member, String sessionId) {
+            return call(member).mapNotNull(registry -> registry.findLocal(sessionId));
+        }
+
+        @Override
+        public Mono<Void> remove(String member, String sessionId) {
+            return call(member).doOnSuccess(registry -> registry.removeLocal(sessionId)).then();
+        }
+
+        private Mono<ClusterSessionRegistry> call(String member) {
+            return stopped.contains(member)
+                    ? Mono.error(new IllegalStateException("connexion refusée"))
+                    : Mono.fromSupplier(() -> registries.get(member));
+        }
+    };
+
+    private void startCluster(Duration idleTimeout) {
+        MEMBERS.forEach(member -> registries.put(member, new ClusterSessionRegistry(MEMBERS, member, 2, 1000,
+                idleTimeout, Duration.ofMinutes(1), "secret", transport)));
+    }
+
+    private SessionContext session(String sessionId) throws Exception {
+        return new SessionContext().setSessionId(sessionId).setUrl(new URL("http://localhost:4444/wd/hub"));
+    }
+
+    @Test
+    void sessionIsPartitionedAndFoundFromEveryInstance() throws Exception {
+        startCluster(Duration.ofMinutes(5));
+        for (int i = 0; i < 300; i++) {
+            registries.get(MEMBERS.get(i % 3)).register(session("s" + i)).block();
+        }
+
+        for (ClusterSessionRegistry registry : registries.values()) {
+            // Deux répliques par session, réparties sur les trois instances
+            assertTrue(registry.getPartitionSize() > 150 && registry.getPartitionSize() < 250);
+            assertNotNull(registry.lookup("s42").block());
+        }
+        assertEquals("http://localhost:4444/wd/hub", registries.get("http://proxy-a").lookup("s7").block().getUrl().toString());
+        assertNull(registries.get("http://proxy-a").lookup("unknown").block());
+    }
+
+    @Test
+    void sessionSurvivesLossOfOneInstanceAndIsRepaired() throws Exception {
+        startCluster(Duration.ofMinutes(5));
+        ClusterSessionRegistry entry = registries.get("http://proxy-a");
+        entry.register(session("abc")).block();
+        List<String> owners = entry.getOwners("abc");
+        String primary = owners.get(0);
+
+        stopped.add(primary);
+        String survivor = MEMBERS.stream().filter(member -> !member.equals(primary)).findFirst().orElseThrow();
+        assertNotNull(registries.get(survivor).lookup("abc").block());
+
+        // L'instance redémarre sans ses sessions : la lecture suivante lui rend sa réplique
+        stopped.remove(primary);
+        registries.put(primary, new ClusterSessionRegistry(MEMBERS, primary, 2, 1000, Duration.ofMinutes(5),
+                Duration.ofMinutes(1), "secret", transport));
+        assertNotNull(registries.get(primary).lookup("abc").block());
+        assertNotNull(registries.get(primary).findLocal("abc"));
+    }
+
+    @Test
+    void unregisteredSessionIsGoneEverywhere() throws Exception {
+        startCluster(Duration.ofMinutes(5));
+        registries.get("http://proxy-b").register(session("abc")).block();
+
+        registries.get("http://proxy-c").unregister("abc").block();
+
+        for (ClusterSessionRegistry registry : registries.values()) {
+            assertNull(registry.lookup("abc").block());
+        }
+    }
+
+    @Test
+    void expiredSessionIsReportedByOneInstance() throws Exception {
+        startCluster(Duration.ofMillis(100));
+        List<String> expired = new CopyOnWriteArrayList<>();
+        registries.values().forEach(registry -> registry.addExpirationListener(ctx -> expired.add(ctx.getSessionId())));
+        registries.get("http://proxy-a").register(session("abc")).block();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (expired.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(200);
+
+        assertEquals(List.of("abc"), expired);
+    }
+}
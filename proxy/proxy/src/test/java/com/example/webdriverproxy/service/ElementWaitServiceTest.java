@@ -0,0 +1,70 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.NodeResponse;
+import com.example.webdriverproxy.model.SessionContext;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElementWaitServiceTest {
+
+    private static final String NOT_FOUND = "{\"value\": {\"error\": \"no such element\", \"message\": \"absent\", \"stacktrace\": \"\"}}";
+    private static final String FOUND = "{\"value\": {\"element-6066-11e4-a52e-4f735466cecf\": \"e1\"}}";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+
+    private ElementWaitService service(int attemptsBeforeFound) {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            boolean found = requests.incrementAndGet() > attemptsBeforeFound;
+            return Mono.just(ClientResponse.create(found ? HttpStatus.OK : HttpStatus.NOT_FOUND)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(found ? FOUND : NOT_FOUND)
+                    .build());
+        });
+        JsonMapper jsonMapper = new JsonMapper();
+        return new ElementWaitService(new NodeCommandService(jsonMapper, gridNodeService, webClientBuilder), jsonMapper,
+                new SimpleMeterRegistry(), Duration.ofMillis(10), Duration.ofMillis(50), 2, Duration.ofSeconds(30),
+                Duration.ofSeconds(5));
+    }
+
+    private SessionContext session() throws Exception {
+        return new SessionContext().setSessionId("s1").setUrl(new URL("http://localhost:4444/wd/hub"));
+    }
+
+    @Test
+    void findIsRetriedUntilElementAppears() throws Exception {
+        NodeResponse response = service(3)
+                .find(session(), WebDriverCommand.FIND_ELEMENT, "/element", "{}", 5000, null)
+                .block();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(FOUND, response.getBody());
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void lastErrorIsReturnedAfterDeadline() throws Exception {
+        NodeResponse response = service(Integer.MAX_VALUE)
+                .find(session(), WebDriverCommand.FIND_ELEMENT, "/element", "{}", 200, null)
+                .block();
+
+        assertEquals(404, response.getStatus());
+        assertTrue(requests.get() > 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.ErrorReport;
+import com.example.webdriverproxy.model.WebDriverCommand;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorAnalyticsServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ErrorAnalyticsService service = new ErrorAnalyticsService(new JsonMapper(), true,
+            Duration.ofMinutes(1), 5, 3, 256, 4, now::get);
+
+    private static String find(String css) {
+        return "{\"using\":\"css selector\",\"value\":\"" + css + "\"}";
+    }
+
+    @Test
+    void flakyLocatorsStandOutFromManyRareOnes() {
+        for (int i = 0; i < 5000; i++) {
+            service.record(WebDriverCommand.FIND_ELEMENT, "no such element", find("#rare-" + i));
+            if (i % 10 == 0) {
+                service.record(WebDriverCommand.FIND_ELEMENT, "no such element", find("#submit"));
+            }
+            if (i % 20 == 0) {
+                service.record(WebDriverCommand.FIND_ELEMENTS, "stale element reference", find(".row"));
+            }
+        }
+        service.record(WebDriverCommand.ELEMENT_CLICK, "element not interactable", "{}");
+
+        ErrorReport report = service.report(Duration.ofMinutes(5));
+
+        List<ErrorReport.FailingLocator> locators = report.getLocators();
+        assertEquals(3, locators.size());
+        assertEquals("css selector=#submit", locators.get(0).getLocator());
+        assertTrue(locators.get(0).getCount() >= 500);
+        assertEquals("css selector=.row", locators.get(1).getLocator());
+        assertEquals("stale element reference", locators.get(1).getLastErrorType());
+        assertEquals(5751, report.getTotal());
+        assertEquals(5500L, report.getErrorTypes().get("no such element"));
+        assertEquals(1L, report.getEndpoints().get("POST /session/{id}/element/{elementId}/click"));
+    }
+
+    @Test
+    void windowSlidesOverTimeBuckets() {
+        service.record(WebDriverCommand.FIND_ELEMENT, "no such element", find("#old"));
+        now.addAndGet(Duration.ofMinutes(3).toMillis());
+        service.record(WebDriverCommand.FIND_ELEMENT, "timeout", find("#new"));
+
+        assertEquals(1, service.report(Duration.ofMinutes(1)).getTotal());
+        assertEquals(2, service.report(Duration.ofMinutes(5)).getTotal());
+
+        // Au-delà des cinq tranches conservées, la première erreur est oubliée
+        now.addAndGet(Duration.ofMinutes(3).toMillis());
+        ErrorReport report = service.report(Duration.ofHours(1));
+        assertEquals("PT5M", report.getWindow());
+        assertEquals(1, report.getTotal());
+        assertEquals("css selector=#new", report.getLocators().get(0).getLocator());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.GridNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GridNodeServiceTest {
+
+    private final GridNodeService service = new GridNodeService(List.of("http://node-a:4444/wd/hub", "http://node-b:4444/wd/hub"));
+
+    @Test
+    void circuitOpensAfterConsecutiveProbeFailuresAndClosesOnSuccess() {
+        GridNode nodeA = service.getNodes().get(0);
+
+        service.recordProbe(nodeA, false, 2);
+        assertFalse(nodeA.isCircuitOpen());
+        service.recordProbe(nodeA, false, 2);
+        assertTrue(nodeA.isCircuitOpen());
+        service.recordProbe(nodeA, true, 2);
+        assertFalse(nodeA.isCircuitOpen());
+    }
+
+    @Test
+    void newSessionsGoToTheLeastLoadedNode() {
+        GridNode nodeA = service.getNodes().get(0);
+        GridNode nodeB = service.getNodes().get(1);
+
+        assertEquals(nodeA, service.reserveNode());
+        assertEquals(nodeB, service.reserveNode());
+        service.commitSession(nodeA, TimeUnit.SECONDS.toNanos(2));
+        service.commitSession(nodeB, TimeUnit.SECONDS.toNanos(2));
+        service.closeSession(nodeB.getUrl());
+
+        assertEquals(nodeB, service.reserveNode());
+        assertEquals(1, nodeA.getActiveSessions().get());
+        assertEquals(0, nodeB.getActiveSessions().get());
+        assertEquals(1, nodeB.getPendingSessions().get());
+    }
+
+    @Test
+    void slowerNodeReceivesFewerSessions() {
+        GridNode nodeA = service.getNodes().get(0);
+        GridNode nodeB = service.getNodes().get(1);
+        service.commitSession(service.reserveNode(), TimeUnit.SECONDS.toNanos(30));
+        service.commitSession(service.reserveNode(), TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(nodeB, service.reserveNode());
+        assertTrue(nodeA.getLoadScore(1) > nodeB.getLoadScore(1));
+    }
+
+    @Test
+    void nodeWithoutMeasuredLatencyIsNotFavouredOverMeasuredNodes() {
+        GridNode nodeA = service.getNodes().get(0);
+        GridNode nodeB = service.getNodes().get(1);
+        service.commitSession(service.reserveNode(), TimeUnit.SECONDS.toNanos(5));
+
+        for (int i = 0; i < 4; i++) {
+            service.reserveNode();
+        }
+
+        // Le nœud B, sans mesure, est évalué avec la latence du nœud A : la vague se répartit entre les deux
+        assertEquals(2, nodeA.getPendingSessions().get());
+        assertEquals(2, nodeB.getPendingSessions().get());
+    }
+
+    @Test
+    void newSessionsAvoidNodesWithOpenCircuit() {
+        GridNode nodeA = service.getNodes().get(0);
+        GridNode nodeB = service.getNodes().get(1);
+        service.recordProbe(nodeA, false, 1);
+
+        assertEquals(nodeB, service.reserveNode());
+        assertEquals(nodeB, service.reserveNode());
+        assertNull(service.tryReserveNode(2));
+    }
+}
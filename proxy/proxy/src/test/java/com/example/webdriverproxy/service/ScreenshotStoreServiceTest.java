@@ -0,0 +1,74 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.StoredScreenshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScreenshotStoreServiceTest {
+
+    private static final byte[] IMAGE = "\u0089PNG fausse image".getBytes(StandardCharsets.ISO_8859_1);
+
+    @TempDir
+    Path directory;
+
+    private ScreenshotStoreService service;
+
+    private ScreenshotStoreService service() {
+        service = new ScreenshotStoreService(new JsonMapper(), true, directory.toString(), Duration.ofHours(1),
+                DataSize.ofMegabytes(1), Duration.ofHours(1));
+        return service;
+    }
+
+    private ByteArrayInputStream response(byte[] image) {
+        String json = "{\"value\": \"" + Base64.getEncoder().encodeToString(image) + "\"}";
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void close() {
+        service.close();
+    }
+
+    @Test
+    void identicalScreenshotsAreStoredOnce() throws Exception {
+        ScreenshotStoreService service = service();
+
+        StoredScreenshot first = service.store(response(IMAGE));
+        StoredScreenshot second = service.store(response(IMAGE));
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(IMAGE.length, first.getSize());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        ByteBuffer content = service.open(first.getId());
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        assertArrayEquals(IMAGE, bytes);
+    }
+
+    @Test
+    void unknownOrInvalidIdsAreNotServed() {
+        ScreenshotStoreService service = service();
+
+        assertNull(service.open("0".repeat(64)));
+        assertNull(service.open("../application.yml"));
+        assertNull(service.store(new ByteArrayInputStream("{\"value\": null}".getBytes(StandardCharsets.UTF_8))));
+    }
+}
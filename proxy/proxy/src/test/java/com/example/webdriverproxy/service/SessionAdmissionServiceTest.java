@@ -0,0 +1,63 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.model.GridNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SessionAdmissionServiceTest {
+
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+
+    private SessionAdmissionService service(int maxQueueSize) {
+        return new SessionAdmissionService(gridNodeService, new SimpleMeterRegistry(), 1, maxQueueSize,
+                Duration.ofMinutes(1), List.of("interactive", "default", "ci"), "default");
+    }
+
+    @Test
+    void waitingRequestsAreAdmittedByPriority() {
+        SessionAdmissionService service = service(10);
+        GridNode node = service.admit(service.getPriority(null)).block();
+        List<String> admitted = new ArrayList<>();
+
+        service.admit(service.getPriority("ci")).subscribe(n -> admitted.add("ci"));
+        service.admit(service.getPriority("interactive")).subscribe(n -> admitted.add("interactive"));
+        assertEquals(2, service.getQueuedCount());
+
+        gridNodeService.releaseSession(node);
+        assertEquals(List.of("interactive"), admitted);
+        gridNodeService.releaseSession(node);
+        assertEquals(List.of("interactive", "ci"), admitted);
+    }
+
+    @Test
+    void requestsBeyondQueueAreRejected() {
+        SessionAdmissionService service = service(1);
+        assertNotNull(service.admit(0).block());
+        Mono<GridNode> queued = service.admit(0);
+        queued.subscribe();
+
+        assertNull(service.admit(0).block());
+        assertEquals(1, service.getQueuedCount());
+    }
+
+    @Test
+    void cancelledRequestsLeaveTheQueue() {
+        SessionAdmissionService service = service(10);
+        GridNode node = service.admit(0).block();
+
+        service.admit(0).subscribe().dispose();
+        assertEquals(0, service.getQueuedCount());
+
+        gridNodeService.releaseSession(node);
+        assertEquals(0, node.getPendingSessions().get());
+    }
+}
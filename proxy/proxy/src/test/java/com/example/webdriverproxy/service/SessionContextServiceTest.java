@@ -0,0 +1,63 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionContextServiceTest {
+
+    private static final String NEW_SESSION_RESPONSE =
+            "{\"value\": {\"sessionId\": \"abc\", \"capabilities\": {\"browserName\": \"chrome\"}}}";
+
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+    private final SessionContextService service =
+            new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(),
+                    100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+    @Test
+    void submittedSessionIsFoundAndCounted() {
+        SessionContext sessionContext = service.initSessionContext();
+
+        assertEquals("abc", service.submitSessionContext(NEW_SESSION_RESPONSE, sessionContext));
+        assertSame(sessionContext, service.getSessionContext("abc"));
+        assertEquals("chrome", sessionContext.getCapabilities().get("browserName"));
+        assertNull(service.findSessionContext("unknown"));
+        assertEquals(1, service.getCacheStats().hitCount());
+        assertEquals(1, service.getCacheStats().missCount());
+    }
+
+    @Test
+    void removedSessionIsNoLongerFound() {
+        service.submitSessionContext(NEW_SESSION_RESPONSE, service.initSessionContext());
+
+        service.removeSessionContext("abc");
+
+        assertThrows(RuntimeException.class, () -> service.getSessionContext("abc"));
+    }
+
+    @Test
+    void registeredSessionOfAnUnknownNodeIsNotResolved() throws Exception {
+        ClusterSessionRegistry registry = new ClusterSessionRegistry(new JsonMapper(), WebClient.builder(),
+                List.of("http://proxy-a"), "http://proxy-a", 1, 100, Duration.ofHours(1), Duration.ofSeconds(2),
+                Duration.ofSeconds(10), "cluster-secret");
+        SessionContextService clusterService = new SessionContextService(new JsonMapper(), gridNodeService, registry,
+                100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        registry.storeLocal(new SessionContext().setSessionId("known").setUrl(new URL("http://localhost:4444/wd/hub")));
+        registry.storeLocal(new SessionContext().setSessionId("foreign").setUrl(new URL("http://attacker:4444/wd/hub")));
+
+        assertNotNull(clusterService.resolveSessionContext("known").block());
+        assertNull(clusterService.resolveSessionContext("foreign").block());
+        assertNull(clusterService.findSessionContext("foreign"));
+    }
+}
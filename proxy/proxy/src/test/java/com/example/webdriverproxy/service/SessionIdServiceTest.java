@@ -0,0 +1,54 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.GridNode;
+import com.example.webdriverproxy.model.SessionContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionIdServiceTest {
+
+    private final GridNodeService gridNodeService =
+            new GridNodeService(List.of("http://localhost:4444/wd/hub", "http://localhost:4445/wd/hub"));
+    private final SessionIdService service = new SessionIdService(gridNodeService, new JsonMapper(), true, "secret");
+
+    @Test
+    void taggedIdLeadsBackToItsNode() {
+        GridNode node = gridNodeService.getNodes().get(1);
+        String taggedId = service.tag("abc", node);
+
+        SessionContext sessionContext = new SessionIdService(gridNodeService, new JsonMapper(), true, "secret").untag(taggedId);
+
+        assertEquals("abc", sessionContext.getSessionId());
+        assertEquals(node.getUrl(), sessionContext.getUrl());
+        assertNull(service.untag("abc"));
+    }
+
+    @Test
+    void alteredIdIsRejected() {
+        String taggedId = service.tag("abc", gridNodeService.getNodes().get(0));
+
+        assertThrows(IllegalArgumentException.class, () -> service.untag("abd" + taggedId.substring(3)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SessionIdService(gridNodeService, new JsonMapper(), true, "other").untag(taggedId));
+    }
+
+    @Test
+    void newSessionResponseCarriesTaggedId() {
+        GridNode node = gridNodeService.getNodes().get(0);
+        SessionContext sessionContext = new SessionContext().setSessionId("abc").setUrl(node.getUrl());
+
+        String response = service.tagResponse(
+                "{\"value\": {\"sessionId\": \"abc\", \"capabilities\": {\"browserName\": \"chrome\"}}}", sessionContext, node);
+
+        String taggedId = (String) new JsonMapper().extract(response, JsonMapper.VALUE_SESSION_ID).get(JsonMapper.VALUE_SESSION_ID);
+        assertTrue(taggedId.startsWith("abc."));
+        assertEquals("abc", service.untag(taggedId).getSessionId());
+    }
+}
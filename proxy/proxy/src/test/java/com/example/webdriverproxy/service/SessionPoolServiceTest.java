@@ -0,0 +1,147 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.PooledSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionPoolServiceTest {
+
+    private static final String CHROME = "{\"capabilities\": {\"alwaysMatch\": {\"browserName\": \"chrome\"}}}";
+    private static final String FIREFOX = "{\"capabilities\": {\"alwaysMatch\": {\"browserName\": \"firefox\"}}}";
+
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+
+    private boolean pendingCreates;
+    private SessionPoolService sessionPoolService;
+
+    @AfterEach
+    void close() {
+        sessionPoolService.close();
+    }
+
+    private SessionPoolService pool(int maxKeys, Duration idleTimeout, int maxCreatesPerNode) {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            if (request.method() == HttpMethod.POST && pendingCreates) {
+                return Mono.never();
+            }
+            String body = request.method() == HttpMethod.POST
+                    ? "{\"value\": {\"sessionId\": \"pool-" + created.incrementAndGet() + "\", \"capabilities\": {}}}"
+                    : "{\"value\": null}";
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        });
+        SessionAdmissionService sessionAdmissionService = new SessionAdmissionService(gridNodeService,
+                new SimpleMeterRegistry(), maxCreatesPerNode, 10, Duration.ofMinutes(1), List.of("default"), "default");
+        sessionPoolService = new SessionPoolService(new JsonMapper(), gridNodeService, sessionAdmissionService,
+                webClientBuilder, true, 1, 1, maxKeys, idleTimeout, Duration.ofMinutes(15), Duration.ofHours(1),
+                Duration.ofSeconds(5));
+        return sessionPoolService;
+    }
+
+    private long count(HttpMethod method) {
+        return requests.stream().filter(request -> request.method() == method).count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void requestIsServedFromThePoolOfItsCapabilitiesOnly() throws Exception {
+        SessionPoolService pool = pool(8, Duration.ofMinutes(4), 0);
+
+        assertNull(pool.acquire("chrome", CHROME));
+        await(() -> pool.getIdleCount() == 1);
+        PooledSession session = pool.acquire("chrome", CHROME);
+        PooledSession other = pool.acquire("firefox", FIREFOX);
+
+        assertNotNull(session);
+        assertEquals("pool-1", session.getSessionId());
+        assertNull(other);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    void poolIsRefilledAfterAcquire() throws Exception {
+        SessionPoolService pool = pool(8, Duration.ofMinutes(4), 0);
+        pool.acquire("chrome", CHROME);
+        await(() -> pool.getIdleCount() == 1);
+
+        pool.acquire("chrome", CHROME);
+
+        await(() -> pool.getIdleCount() == 1);
+        assertEquals(2, count(HttpMethod.POST));
+        assertEquals(2, gridNodeService.getNodes().get(0).getActiveSessions().get());
+    }
+
+    @Test
+    void idleSessionsAreRecycledWithAGridDelete() throws Exception {
+        SessionPoolService pool = pool(8, Duration.ofMillis(50), 0);
+        pool.acquire("chrome", CHROME);
+        await(() -> pool.getIdleCount() == 1);
+        Thread.sleep(100);
+
+        pool.maintain();
+
+        await(() -> count(HttpMethod.DELETE) == 1 && count(HttpMethod.POST) == 2);
+        ClientRequest delete = requests.stream().filter(request -> request.method() == HttpMethod.DELETE).findFirst().get();
+        assertEquals("/wd/hub/session/pool-1", delete.url().getPath());
+    }
+
+    @Test
+    void capabilitiesBeyondMaxKeysAreNotPooled() throws Exception {
+        SessionPoolService pool = pool(1, Duration.ofMinutes(4), 0);
+        pool.acquire("chrome", CHROME);
+        await(() -> pool.getIdleCount() == 1);
+
+        assertNull(pool.acquire("firefox", FIREFOX));
+        assertNull(pool.acquire("firefox", FIREFOX));
+
+        assertEquals(1, count(HttpMethod.POST));
+        assertEquals(3, pool.getMissCount());
+    }
+
+    @Test
+    void refillsAreSubjectToAdmission() throws Exception {
+        pendingCreates = true;
+        SessionPoolService pool = pool(8, Duration.ofMinutes(4), 1);
+
+        pool.acquire("chrome", CHROME);
+        pool.acquire("firefox", FIREFOX);
+
+        // Une seule création à la fois sur le nœud : celle du second jeu de capacités attend son admission
+        await(() -> count(HttpMethod.POST) == 1);
+        assertEquals(1, gridNodeService.getNodes().get(0).getPendingSessions().get());
+    }
+}
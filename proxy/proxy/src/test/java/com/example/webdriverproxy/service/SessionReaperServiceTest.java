@@ -0,0 +1,93 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionReaperServiceTest {
+
+    private static final String NEW_SESSION_RESPONSE =
+            "{\"value\": {\"sessionId\": \"abc\", \"capabilities\": {\"browserName\": \"chrome\"}}}";
+
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+    private final GridNodeService gridNodeService = new GridNodeService(List.of("http://localhost:4444/wd/hub"));
+
+    private SessionReaperService reaper(SessionContextService sessionContextService) {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            return Mono.just(ClientResponse.create(HttpStatus.OK).body("{\"value\": null}").build());
+        });
+        JsonMapper jsonMapper = new JsonMapper();
+        return new SessionReaperService(sessionContextService,
+                new NodeCommandService(jsonMapper, gridNodeService, webClientBuilder),
+                new SimpleMeterRegistry(), true, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void abandonedSessionIsDeletedOnce() {
+        SessionContextService sessionContextService =
+                new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(),
+                        100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        SessionReaperService reaper = reaper(sessionContextService);
+        SessionContext sessionContext = sessionContextService.initSessionContext();
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE, sessionContext);
+
+        reaper.reap(sessionContext, SessionReaperService.ABANDONED);
+        reaper.reap(sessionContext, SessionReaperService.ABANDONED);
+
+        assertNull(sessionContextService.findSessionContext("abc"));
+        assertEquals(1, requests.size());
+        assertEquals("DELETE", requests.get(0).method().name());
+        assertEquals("/wd/hub/session/abc", requests.get(0).url().getPath());
+    }
+
+    @Test
+    void idleSessionIsDeletedOnExpiration() throws Exception {
+        SessionContextService sessionContextService =
+                new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(),
+                        100, Duration.ofMillis(50), Duration.ofSeconds(30));
+        reaper(sessionContextService);
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE, sessionContextService.initSessionContext());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (requests.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(requests.stream().anyMatch(request -> request.url().getPath().equals("/wd/hub/session/abc")));
+    }
+
+    @Test
+    void sessionEvictedBySizeIsDeleted() throws Exception {
+        SessionContextService sessionContextService =
+                new SessionContextService(new JsonMapper(), gridNodeService, new LocalSessionRegistry(),
+                        1, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        reaper(sessionContextService);
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE, sessionContextService.initSessionContext());
+        sessionContextService.submitSessionContext(NEW_SESSION_RESPONSE.replace("abc", "def"),
+                sessionContextService.initSessionContext());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (requests.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, requests.size());
+        assertEquals("DELETE", requests.get(0).method().name());
+        assertEquals(1, sessionContextService.getSessionCount());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.webdriverproxy.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRegistryCheckTest {
+
+    @Test
+    void matchingRegistryTypeIsAccepted() {
+        assertDoesNotThrow(() -> new SessionRegistryCheck(new LocalSessionRegistry(), "local"));
+    }
+
+    @Test
+    void registryFixedAtBuildTimeMustMatchTheConfiguredType() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new SessionRegistryCheck(new LocalSessionRegistry(), "cluster"));
+
+        assertTrue(e.getMessage().contains("-Daot.session-registry=cluster"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.webdriverproxy.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatusCacheServiceTest {
+
+    private static final String STATUS = "{\"value\": {\"ready\": true, \"message\": \"ok\"}}";
+
+    private final AtomicBoolean gridUp = new AtomicBoolean(true);
+
+    private StatusCacheService service(Duration ttl) {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> gridUp.get()
+                ? Mono.delay(Duration.ofMillis(100)).map(tick -> ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(STATUS)
+                        .build())
+                : Mono.error(new IllegalStateException("Grid injoignable")));
+        return new StatusCacheService(webClientBuilder, "http://localhost:4444/wd/hub", ttl, Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void concurrentCallersShareOneUpstreamRequest() {
+        StatusCacheService service = service(Duration.ofMinutes(1));
+
+        Flux.range(0, 100)
+                .flatMap(i -> service.getStatus())
+                .doOnNext(status -> assertEquals(STATUS, new String(status.getBody(), StandardCharsets.UTF_8)))
+                .blockLast();
+
+        assertEquals(1, service.getUpstreamRequestCount());
+    }
+
+    @Test
+    void staleStatusIsServedWhileGridIsDown() {
+        StatusCacheService service = service(Duration.ZERO);
+        service.getStatus().block();
+        gridUp.set(false);
+
+        assertEquals(200, service.getStatus().block().getStatusCode());
+        assertEquals(200, service.getStatus().block().getStatusCode());
+    }
+}
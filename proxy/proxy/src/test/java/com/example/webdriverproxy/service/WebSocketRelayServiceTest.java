@@ -0,0 +1,84 @@
+package com.example.webdriverproxy.service;
+
+import com.example.webdriverproxy.mapper.JsonMapper;
+import com.example.webdriverproxy.model.SessionContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WebSocketRelayServiceTest {
+
+    private static final String RESPONSE = "{\"value\": {\"sessionId\": \"abc.tagged\", \"capabilities\": {"
+            + "\"browserName\": \"chrome\","
+            + "\"se:cdp\": \"ws://172.18.0.3:4444/session/abc/se/cdp\","
+            + "\"webSocketUrl\": \"ws://172.18.0.3:4444/session/abc\","
+            + "\"se:vncLocalAddress\": \"ws://172.18.0.3:7900\"}}}";
+
+    private final SessionContextService sessionContextService = new SessionContextService(new JsonMapper(),
+            new GridNodeService(List.of("http://localhost:4444/wd/hub")), new LocalSessionRegistry(), 1000,
+            Duration.ofHours(1), Duration.ofSeconds(30));
+
+    private WebSocketRelayService newService(String publicUrl) {
+        return new WebSocketRelayService(new JsonMapper(), sessionContextService, new SimpleMeterRegistry(), true,
+                publicUrl, DataSize.ofMegabytes(64), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void sessionUrlsPointToTheProxy() {
+        String response = newService("").rewriteResponse(RESPONSE, "abc", URI.create("http://proxy:8086/wd/hub/session"));
+
+        Map<String, Object> capabilities = new JsonMapper().getCapabilities(new JsonMapper().getValue(response));
+        assertEquals("ws://proxy:8086/wd/hub/session/abc.tagged/se/cdp", capabilities.get("se:cdp"));
+        assertEquals("ws://proxy:8086/wd/hub/session/abc.tagged", capabilities.get("webSocketUrl"));
+        assertEquals("ws://172.18.0.3:7900", capabilities.get("se:vncLocalAddress"));
+
+        String behindBalancer = newService("wss://grid.example.com/")
+                .rewriteResponse(RESPONSE, "abc", URI.create("http://proxy:8086/wd/hub/session"));
+        assertEquals("wss://grid.example.com/wd/hub/session/abc.tagged/se/cdp",
+                new JsonMapper().getCapabilities(new JsonMapper().getValue(behindBalancer)).get("se:cdp"));
+    }
+
+    @Test
+    void proxyPathLeadsToTheNodeUrl() {
+        SessionContext sessionContext = new SessionContext()
+                .setSessionId("abc")
+                .setCapabilities(new JsonMapper().getCapabilities(new JsonMapper().getValue(RESPONSE)));
+        WebSocketRelayService service = newService("");
+
+        assertEquals(URI.create("ws://172.18.0.3:4444/session/abc/se/cdp"), service.getNodeUri(sessionContext, "/se/cdp"));
+        assertEquals(URI.create("ws://172.18.0.3:4444/session/abc"), service.getNodeUri(sessionContext, ""));
+        assertNull(service.getNodeUri(sessionContext, "/se/vnc"));
+    }
+
+    @Test
+    void activeRelayKeepsTheSessionAlive() throws Exception {
+        SessionContextService shortLived = new SessionContextService(new JsonMapper(),
+                new GridNodeService(List.of("http://localhost:4444/wd/hub")), new LocalSessionRegistry(), 1000,
+                Duration.ofMillis(300), Duration.ofSeconds(30));
+        WebSocketRelayService service = new WebSocketRelayService(new JsonMapper(), shortLived, new SimpleMeterRegistry(),
+                true, "", DataSize.ofMegabytes(64), Duration.ofMillis(50));
+        shortLived.submitSessionContext("{\"value\": {\"sessionId\": \"relayed\", \"capabilities\": {}}}",
+                shortLived.initSessionContext());
+        shortLived.submitSessionContext("{\"value\": {\"sessionId\": \"idle\", \"capabilities\": {}}}",
+                shortLived.initSessionContext());
+        WebSocketRelayService.SessionTraffic traffic = service.open("relayed");
+
+        for (int i = 0; i < 12; i++) {
+            Thread.sleep(100);
+            traffic.recordToClient(16);
+        }
+
+        assertNotNull(shortLived.findSessionContext("relayed"));
+        assertNull(shortLived.findSessionContext("idle"));
+        service.close("relayed", traffic);
+    }
+}